@@ -0,0 +1,123 @@
+package edu.upc.epsevg.prop.oust;
+
+import edu.upc.epsevg.prop.oust.players.EstadisticasBusqueda;
+import edu.upc.epsevg.prop.oust.players.MovimientoBusqueda;
+import edu.upc.epsevg.prop.oust.players.PerfilAsignaciones;
+import edu.upc.epsevg.prop.oust.players.PropPlayer;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Bytes reservats per node i per moviment de cada jugador sobre les
+ * posicions fixes de {@link FixturePositions}, llegits de
+ * {@code com.sun.management.ThreadMXBean.getThreadAllocatedBytes}. Per als
+ * PropPlayer també es reparteixen per fase amb {@link PerfilAsignaciones}:
+ * generació de jugades, avaluació, completar camins i la resta.
+ *
+ * Cada jugador fa primer una passada sense mesurar, perquè el JIT ja hagi
+ * compilat (i eliminat les reserves que l'anàlisi d'escapament pot
+ * eliminar) quan es compta. Cada posició es juga amb un jugador nou, sense
+ * telemetria.
+ *
+ * Amb un pressupost de bytes per node, el procés acaba amb codi 1 si
+ * algun jugador el supera, per poder-lo fer servir de control.
+ *
+ * Ús: AllocationProfile [pressupost bytes/node (0 = cap)] [posicions] [mida] [jugadors de PlayerSpec...]
+ */
+public class AllocationProfile {
+
+    static final String[] DEFAULT_PLAYERS = {"prop:perfil:64:nodes=2000"};
+
+    public static void main(String[] args) {
+        double budget = args.length > 0 ? Double.parseDouble(args[0]) : 0;
+        int count = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+        int size = args.length > 2 ? Integer.parseInt(args[2]) : 7;
+        String[] specs = args.length > 3 ? Arrays.copyOfRange(args, 3, args.length) : DEFAULT_PLAYERS;
+        if (!PerfilAsignaciones.disponible()) {
+            System.err.println("Aquesta JVM no compta els bytes reservats per fil");
+            System.exit(2);
+        }
+
+        List<GameStatus> positions = FixturePositions.generate(size, count, 42);
+        System.out.printf("%d posicions, mida %d%n", count, size);
+        System.out.printf("%-28s %10s %14s %11s", "jugador", "nodes", "bytes/moviment", "bytes/node");
+        for (String n : PerfilAsignaciones.NOMBRES) {
+            System.out.printf(" %11s", n);
+        }
+        System.out.println();
+        List<String> over = new ArrayList<>();
+        for (String spec : specs) {
+            PlayerFactory factory = PlayerSpec.parse(spec, 0);
+            run(factory, positions, null);
+            Result r = run(factory, positions, new PerfilAsignaciones());
+            System.out.printf("%-28s %10d %14.0f %11.1f", spec, r.nodes, r.perMove(), r.perNode());
+            if (r.profile != null) {
+                for (int f = 0; f < PerfilAsignaciones.FASES; f++) {
+                    System.out.printf(" %11.1f", r.nodes == 0 ? 0 : (double) r.profile.getBytes(f) / r.nodes);
+                }
+            }
+            System.out.println();
+            if (budget > 0 && r.perNode() > budget) over.add(spec);
+        }
+        if (!over.isEmpty()) {
+            System.out.println("Per sobre del pressupost de " + budget + " bytes/node: " + over);
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Bytes i nodes d'un jugador sobre totes les posicions.
+     */
+    static class Result {
+
+        long moves;
+        long nodes;
+        long bytes;
+        /** Per fase; null si el jugador no és un PropPlayer. */
+        PerfilAsignaciones profile;
+
+        double perMove() {
+            return moves == 0 ? 0 : (double) bytes / moves;
+        }
+
+        double perNode() {
+            return nodes == 0 ? 0 : (double) bytes / nodes;
+        }
+    }
+
+    /**
+     * Un move() de cada posició, amb un jugador nou cada cop.
+     *
+     * @param profile perfil per als PropPlayer, o null
+     */
+    static Result run(PlayerFactory factory, List<GameStatus> positions, PerfilAsignaciones profile) {
+        com.sun.management.ThreadMXBean mx = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        Result r = new Result();
+        long thread = Thread.currentThread().getId();
+        for (GameStatus s : positions) {
+            IPlayer p = factory.create();
+            if (p instanceof PropPlayer) {
+                PropPlayer prop = (PropPlayer) p;
+                prop.setTelemetria(false);
+                if (profile != null) {
+                    prop.setPerfil(profile);
+                    r.profile = profile;
+                }
+            }
+            GameStatus copy = new GameStatus(s);
+            long b0 = mx.getThreadAllocatedBytes(thread);
+            PlayerMove m = p.move(copy);
+            r.bytes += mx.getThreadAllocatedBytes(thread) - b0;
+            r.moves++;
+            if (m instanceof MovimientoBusqueda) {
+                EstadisticasBusqueda st = ((MovimientoBusqueda) m).getEstadisticas();
+                r.nodes += st.nodos + st.nodosQuiescencia;
+            } else if (m != null) {
+                r.nodes += m.getNumerOfNodesExplored();
+            }
+        }
+        return r;
+    }
+}
@@ -0,0 +1,408 @@
+package edu.upc.epsevg.prop.oust;
+
+import edu.upc.epsevg.prop.oust.players.EstadisticasBusqueda;
+import edu.upc.epsevg.prop.oust.players.JugadaAnalizada;
+import edu.upc.epsevg.prop.oust.players.LimiteBusqueda;
+import edu.upc.epsevg.prop.oust.players.PropPlayer;
+import edu.upc.epsevg.prop.oust.players.TablaTransposicion;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Servidor d'anàlisi per TCP a localhost: rep posicions i retorna els
+ * torns ordenats amb el seu valor, sense obrir el Board.
+ *
+ * Cada connexió és una sessió amb el seu estat: les seves peticions es
+ * resolen d'una en una i en ordre, amb una porció pròpia d'una taula de
+ * transposició compartida, i es poden cancel·lar sense afectar les altres.
+ * Les cerques de totes les sessions es fan en un pool de fils compartit.
+ *
+ * Protocol de línies (torns com a {@link Engine}: {@code 3,4+5,2}):
+ * <pre>
+ *   analyze id mida [depth d] [movetime ms] [nodes n] [top k] [turns t1 t2 ...]
+ *     → result id profunditat nodes ms torn:valor torn:valor ...
+ *   cancel id   → cancelled id (la petició, en cua o en curs, no respon res més)
+ *   quit        (com tancar l'escriptura: respon les pendents i tanca)
+ *   errors      → error id missatge
+ * </pre>
+ * Amb {@code top k} només es calculen els valors exactes de les k millors
+ * (multi-PV de {@link PropPlayer#analizar(GameStatus, int, LimiteBusqueda)}).
+ *
+ * Un client pot enviar peticions sense esperar les respostes. Les respostes
+ * les escriu un fil propi de cada sessió, de manera que els fils del pool no
+ * es queden mai encallats en un client que no llegeix. Quan una sessió té
+ * {@value #MAX_PENDING} peticions pendents o respostes per enviar se'n deixa
+ * de llegir la connexió, i és el TCP qui frena el client. Quan el client
+ * tanca la seva banda de la connexió (o envia {@code quit}), la sessió acaba
+ * les peticions que tenia i envia les respostes abans de tancar; només un
+ * error d'escriptura les avorta.
+ *
+ * Ús: AnalysisServer [port=7070] [fils] [bits de la taula=22]
+ */
+public class AnalysisServer implements Closeable {
+
+    /** Peticions pendents (en cua o en curs) per sessió. */
+    public static final int MAX_PENDING = 16;
+    /** Entrades de la porció de taula de cada sessió (2^bits). */
+    static final int SLICE_BITS = 16;
+    static final int DEFAULT_DEPTH = 4;
+    static final int MAX_DEPTH = 64;
+
+    private final ServerSocket server;
+    private final ExecutorService pool;
+    private final TablaTransposicion table;
+    private final AtomicInteger sessions = new AtomicInteger();
+
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 7070;
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        int bits = args.length > 2 ? Integer.parseInt(args[2]) : 22;
+        AnalysisServer s = new AnalysisServer(port, threads, bits);
+        System.out.println("Servidor d'anàlisi a " + s.getPort() + " amb " + threads + " fils");
+        s.serve();
+    }
+
+    /**
+     * @param port 0 per a un port lliure
+     * @param bits la taula compartida té 2^bits entrades
+     */
+    public AnalysisServer(int port, int threads, int bits) throws IOException {
+        server = new ServerSocket(port, 128, InetAddress.getLoopbackAddress());
+        pool = Tournament.newPool(threads);
+        table = new TablaTransposicion(Math.max(bits, SLICE_BITS));
+    }
+
+    public int getPort() {
+        return server.getLocalPort();
+    }
+
+    /**
+     * Accepta connexions fins que es tanca el servidor.
+     */
+    public void serve() throws IOException {
+        while (!server.isClosed()) {
+            Socket s;
+            try {
+                s = server.accept();
+            } catch (SocketException ex) {
+                // Servidor tancat
+                return;
+            }
+            Session session = new Session(s, sessions.getAndIncrement());
+            Thread t = new Thread(session::read, "analysis-session-" + session.number);
+            t.setDaemon(true);
+            t.start();
+            Thread w = new Thread(session::write, "analysis-writer-" + session.number);
+            w.setDaemon(true);
+            w.start();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        server.close();
+        pool.shutdownNow();
+    }
+
+    /**
+     * Una petició d'anàlisi.
+     */
+    private static class Request {
+
+        final String id;
+        final GameStatus status;
+        final int depth;
+        final LimiteBusqueda limit;
+        final int top;
+        volatile PropPlayer player;
+        volatile boolean cancelled;
+
+        Request(String id, GameStatus status, int depth, LimiteBusqueda limit, int top) {
+            this.id = id;
+            this.status = status;
+            this.depth = depth;
+            this.limit = limit;
+            this.top = top;
+        }
+    }
+
+    /**
+     * Una connexió: llegeix les peticions en el seu fil i les passa al pool
+     * d'una en una; un altre fil escriu les respostes.
+     */
+    private class Session {
+
+        final Socket socket;
+        final int number;
+        final TablaTransposicion slice;
+        final PrintWriter out;
+        /** Peticions pendents; la primera és la que s'està fent, si n'hi ha. */
+        final Deque<Request> pending = new ArrayDeque<>();
+        /** Respostes que el fil d'escriptura encara no ha enviat. */
+        final Deque<String> outbox = new ArrayDeque<>();
+        boolean running;
+        /** El client ja no envia més peticions. */
+        boolean eof;
+        boolean closed;
+
+        Session(Socket socket, int number) throws IOException {
+            this.socket = socket;
+            this.number = number;
+            this.slice = table.porcion(number, SLICE_BITS);
+            out = new PrintWriter(new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8)));
+        }
+
+        void read() {
+            // No es tanca el lector: tancaria el socket abans d'enviar les respostes
+            try {
+                BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+                String line;
+                while ((line = in.readLine()) != null) {
+                    String[] f = line.trim().split("\\s+");
+                    if (f[0].equals("quit")) break;
+                    if (f[0].isEmpty()) continue;
+                    try {
+                        switch (f[0]) {
+                            case "analyze":
+                                submit(parse(f));
+                                break;
+                            case "cancel":
+                                if (f.length != 2) throw new IllegalArgumentException("Cal cancel id");
+                                cancel(f[1]);
+                                break;
+                            default:
+                                throw new IllegalArgumentException("Ordre desconeguda: " + f[0]);
+                        }
+                    } catch (RuntimeException ex) {
+                        reply("error " + (f.length > 1 ? f[1] : "-") + " " + ex.getMessage());
+                    }
+                }
+                endOfInput();
+            } catch (IOException ex) {
+                // Connexió tallada pel client
+                close();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                close();
+            }
+        }
+
+        /**
+         * No arribaran més peticions: el fil d'escriptura tanca la sessió quan
+         * ha enviat la resposta de l'última.
+         */
+        private synchronized void endOfInput() {
+            eof = true;
+            notifyAll();
+        }
+
+        Request parse(String[] f) {
+            if (f.length < 3) throw new IllegalArgumentException("Cal analyze id mida ...");
+            GameStatus s = new GameStatus(Integer.parseInt(f[2]));
+            int depth = DEFAULT_DEPTH;
+            long movetime = 0;
+            long nodes = 0;
+            int top = Integer.MAX_VALUE;
+            int i = 3;
+            while (i < f.length) {
+                switch (f[i]) {
+                    case "depth":
+                        depth = Math.max(1, Math.min(MAX_DEPTH, Integer.parseInt(f[i + 1])));
+                        i += 2;
+                        break;
+                    case "movetime":
+                        movetime = Long.parseLong(f[i + 1]);
+                        // Amb temps, la profunditat només fa de límit si s'ha donat
+                        if (!contains(f, "depth")) depth = MAX_DEPTH;
+                        i += 2;
+                        break;
+                    case "nodes":
+                        nodes = Long.parseLong(f[i + 1]);
+                        if (!contains(f, "depth")) depth = MAX_DEPTH;
+                        i += 2;
+                        break;
+                    case "top":
+                        top = Math.max(1, Integer.parseInt(f[i + 1]));
+                        i += 2;
+                        break;
+                    case "turns":
+                        for (i++; i < f.length; i++) {
+                            Engine.apply(s, f[i]);
+                        }
+                        break;
+                    default:
+                        throw new IllegalArgumentException("Paràmetre desconegut: " + f[i]);
+                }
+            }
+            if (s.isGameOver()) throw new IllegalArgumentException("La partida ja s'ha acabat");
+            LimiteBusqueda limit = nodes > 0 ? LimiteBusqueda.nodos(nodes)
+                    : movetime > 0 ? LimiteBusqueda.tiempo(movetime) : LimiteBusqueda.NINGUNO;
+            return new Request(f[1], s, depth, limit, top);
+        }
+
+        /**
+         * Encua la petició; espera (sense llegir més) si la sessió ja en té
+         * massa.
+         */
+        synchronized void submit(Request r) throws InterruptedException {
+            while (pending.size() + outbox.size() >= MAX_PENDING && !closed) {
+                wait();
+            }
+            if (closed) return;
+            pending.addLast(r);
+            schedule();
+        }
+
+        synchronized void cancel(String id) throws InterruptedException {
+            for (Iterator<Request> it = pending.iterator(); it.hasNext();) {
+                Request r = it.next();
+                if (!r.id.equals(id) || r.cancelled) continue;
+                r.cancelled = true;
+                if (running && r == pending.peekFirst()) {
+                    // La cerca en curs s'atura i finish() la treu
+                    PropPlayer p = r.player;
+                    if (p != null) p.timeout();
+                } else {
+                    it.remove();
+                    notifyAll();
+                }
+                reply("cancelled " + id);
+                return;
+            }
+            throw new IllegalArgumentException("No hi ha cap petició pendent " + id);
+        }
+
+        private void schedule() {
+            if (running || pending.isEmpty() || closed) return;
+            running = true;
+            Request r = pending.peekFirst();
+            pool.execute(() -> run(r));
+        }
+
+        private void run(Request r) {
+            String res = null;
+            try {
+                if (!r.cancelled) res = analyze(r);
+            } catch (RuntimeException ex) {
+                res = "error " + r.id + " " + ex;
+            }
+            finish(r, res);
+        }
+
+        private synchronized void finish(Request r, String res) {
+            pending.pollFirst();
+            running = false;
+            if (res != null && !r.cancelled) send(res);
+            notifyAll();
+            schedule();
+        }
+
+        private String analyze(Request r) {
+            PropPlayer p = new PropPlayer("analysis-" + number, r.depth).setTabla(slice);
+            p.setTelemetria(false);
+            r.player = p;
+            // cancel() pot haver arribat abans que el jugador existís
+            if (r.cancelled) return null;
+            List<JugadaAnalizada> turns = p.analizar(r.status, r.top, r.limit);
+            EstadisticasBusqueda st = p.getEstadisticas();
+            StringBuilder sb = new StringBuilder("result ").append(r.id);
+            sb.append(' ').append(turns.isEmpty() ? 0 : turns.get(0).profundidad);
+            sb.append(' ').append(st.nodos + st.nodosQuiescencia);
+            sb.append(' ').append(st.nanos / 1_000_000);
+            for (int i = 0; i < turns.size(); i++) {
+                sb.append(' ').append(Engine.format(turns.get(i).camino)).append(':').append(turns.get(i).valor);
+            }
+            return sb.toString();
+        }
+
+        /**
+         * Encua una resposta per al fil d'escriptura; no bloqueja mai, així
+         * que es pot cridar des dels fils del pool.
+         */
+        private synchronized void send(String line) {
+            if (closed) return;
+            outbox.addLast(line);
+            notifyAll();
+        }
+
+        /**
+         * Com send(), des del fil de lectura: si el client no llegeix les
+         * respostes, espera, i deixa de llegir-ne les peticions.
+         */
+        private synchronized void reply(String line) throws InterruptedException {
+            while (outbox.size() >= MAX_PENDING && !closed) {
+                wait();
+            }
+            send(line);
+        }
+
+        /**
+         * Fil d'escriptura: envia les respostes en ordre fins que s'han
+         * enviat totes les de les peticions rebudes o falla l'escriptura.
+         * Només aquest fil es bloqueja si el client no llegeix.
+         */
+        void write() {
+            try {
+                while (true) {
+                    String line;
+                    boolean last;
+                    synchronized (this) {
+                        while (outbox.isEmpty() && !closed && !(eof && pending.isEmpty())) {
+                            wait();
+                        }
+                        if (closed) return;
+                        // Ja s'ha respost tot el que ha demanat el client
+                        if (outbox.isEmpty()) break;
+                        line = outbox.pollFirst();
+                        last = outbox.isEmpty();
+                        notifyAll();
+                    }
+                    out.println(line);
+                    if (last) out.flush();
+                    if (out.checkError()) break;
+                }
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            close();
+        }
+
+        private synchronized void close() {
+            closed = true;
+            for (Request r : pending) {
+                r.cancelled = true;
+                PropPlayer p = r.player;
+                if (p != null) p.timeout();
+            }
+            notifyAll();
+            try {
+                socket.close();
+            } catch (IOException ex) {
+                // Ja tancat
+            }
+        }
+    }
+
+    private static boolean contains(String[] f, String token) {
+        for (String s : f) {
+            if (s.equals(token)) return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,387 @@
+package edu.upc.epsevg.prop.oust;
+
+import edu.upc.epsevg.prop.oust.players.EstadisticasBusqueda;
+import edu.upc.epsevg.prop.oust.players.JugadaAnalizada;
+import edu.upc.epsevg.prop.oust.players.LimiteBusqueda;
+import edu.upc.epsevg.prop.oust.players.PropPlayer;
+import java.awt.Point;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.RandomAccessFile;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Analitza en paral·lel totes les posicions d'un fitxer i n'escriu el
+ * resultat, una línia per posició i en el mateix ordre que l'entrada.
+ *
+ * L'entrada és un fitxer {@link PositionShard} ({@code .bin}) o un fitxer
+ * de text amb una posició per línia (les buides i les que comencen per #
+ * no compten):
+ * <pre>
+ *   mida mou caselles        mou 1 o 2; caselles: '.', '1' o '2' per cada
+ *                            casella, en l'ordre de Geometria.puntos
+ *   mida turns t1 t2 ...     torns des de l'inici, com a {@link Engine}
+ * </pre>
+ * Cada línia de sortida és {@code n profunditat nodes torn:valor ...}
+ * (com el result d'{@link AnalysisServer}) o {@code n error missatge}.
+ * Totes les posicions han de ser de la mida de la primera: GameStatus
+ * guarda en una taula estàtica els veïns d'una sola mida i la refà sense
+ * sincronitzar quan canvia, cosa que amb diversos fils alhora la deixaria
+ * a mitges. Per això també es construeix al fil que llegeix, abans de
+ * repartir cap posició.
+ *
+ * Les posicions es reparteixen en un ForkJoinPool, que roba feina entre
+ * fils, amb un PropPlayer per fil que es reaprofita d'una posició a la
+ * següent. Mai hi ha més de {@code fils * 4} posicions llegides i sense
+ * escriure: la lectura s'espera quan la més antiga encara s'està
+ * analitzant. Si la sortida ja existeix, es continua a partir de l'última
+ * línia sencera, de manera que una anàlisi interrompuda es pot reprendre.
+ *
+ * Ús: BatchAnalysis entrada sortida [profunditat=4] [fils] [ms per posició=0] [top=1]
+ */
+public class BatchAnalysis {
+
+    /** Posicions en curs o pendents d'escriure per fil. */
+    static final int WINDOW_PER_THREAD = 4;
+    private static final long REPORT_NANOS = TimeUnit.SECONDS.toNanos(10);
+
+    private final int top;
+    private final LimiteBusqueda limit;
+    private final ThreadLocal<PropPlayer> players;
+    private final AtomicLong nodes = new AtomicLong();
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length < 2) {
+            System.err.println("Ús: BatchAnalysis entrada sortida [profunditat=4] [fils] [ms per posició=0] [top=1]");
+            System.exit(2);
+        }
+        int depth = args.length > 2 ? Integer.parseInt(args[2]) : 4;
+        int threads = args.length > 3 ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+        long ms = args.length > 4 ? Long.parseLong(args[4]) : 0;
+        int top = args.length > 5 ? Integer.parseInt(args[5]) : 1;
+        BatchAnalysis b = new BatchAnalysis(depth, top, ms > 0 ? LimiteBusqueda.tiempo(ms) : LimiteBusqueda.NINGUNO);
+        b.run(new File(args[0]), new File(args[1]), threads);
+    }
+
+    public BatchAnalysis(int depth, int top, LimiteBusqueda limit) {
+        this.top = Math.max(1, top);
+        this.limit = limit;
+        players = ThreadLocal.withInitial(() -> {
+            PropPlayer p = new PropPlayer("batch-" + Thread.currentThread().getName(), depth);
+            p.setTelemetria(false);
+            return p;
+        });
+    }
+
+    /**
+     * Analitza les posicions d'{@code in} que encara no són a {@code out}.
+     */
+    public void run(File in, File out, int threads) throws IOException, InterruptedException {
+        long done = resume(out);
+        if (done > 0) System.err.println("Es continua a partir de la posició " + done);
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        long t0 = System.nanoTime();
+        long analysed;
+        try (PositionSource source = open(in);
+                Writer w = new BufferedWriter(new OutputStreamWriter(Files.newOutputStream(out.toPath(),
+                        StandardOpenOption.CREATE, StandardOpenOption.APPEND), StandardCharsets.UTF_8))) {
+            OrderedOutput output = new OrderedOutput(w, done, threads * WINDOW_PER_THREAD);
+            long skipped = source.skip(done);
+            if (skipped < done) throw new IOException("La sortida té " + done + " posicions i l'entrada només " + skipped);
+            long next = done;
+            long report = t0 + REPORT_NANOS;
+            int size = 0;
+            Source s;
+            while ((s = source.next()) != null) {
+                if (size == 0 && s.size > 0) {
+                    size = s.size;
+                    new GameStatus(size).isInBounds(new Point(0, 0));
+                }
+                output.reserve();
+                long n = next++;
+                Source position = s;
+                int expected = size;
+                pool.execute(() -> analyse(n, position, expected, output));
+                if (System.nanoTime() - report > 0) {
+                    report(output.written() - done, System.nanoTime() - t0, "");
+                    report += REPORT_NANOS;
+                }
+            }
+            output.drain();
+            analysed = output.written() - done;
+        } finally {
+            pool.shutdownNow();
+        }
+        report(analysed, System.nanoTime() - t0, " en total");
+    }
+
+    private void report(long positions, long nanos, String suffix) {
+        double s = nanos / 1e9;
+        System.err.printf("%d posicions%s, %.1f s: %.1f posicions/s, %.0f nodes/s%n",
+                positions, suffix, s, positions / s, nodes.get() / s);
+    }
+
+    /**
+     * Analitza la posició {@code n} i la passa a {@code output} passi el que
+     * passi: sense la seva línia l'escriptor no avançaria mai més.
+     */
+    private void analyse(long n, Source source, int size, OrderedOutput output) {
+        String line = null;
+        try {
+            line = analyse(n, source, size);
+        } catch (Error ex) {
+            // StackOverflowError, OutOfMemoryError...: surt com a error i es propaga
+            line = n + " error " + String.valueOf(ex).replaceAll("\\s+", " ");
+            throw ex;
+        } finally {
+            output.complete(n, line);
+        }
+    }
+
+    private String analyse(long n, Source source, int size) {
+        try {
+            if (source.size <= 0) throw new IllegalArgumentException("Mida il·legible");
+            if (source.size != size) throw new IllegalArgumentException("Mida " + source.size + " i la primera és " + size);
+            GameStatus s = source.status.get();
+            if (s.isGameOver()) throw new IllegalArgumentException("La partida ja s'ha acabat");
+            PropPlayer p = players.get();
+            List<JugadaAnalizada> turns = p.analizar(s, top, limit);
+            EstadisticasBusqueda st = p.getEstadisticas();
+            nodes.addAndGet(st.nodos + st.nodosQuiescencia);
+            StringBuilder sb = new StringBuilder().append(n);
+            sb.append(' ').append(turns.isEmpty() ? 0 : turns.get(0).profundidad);
+            sb.append(' ').append(st.nodos + st.nodosQuiescencia);
+            for (JugadaAnalizada t : turns) {
+                sb.append(' ').append(Engine.format(t.camino)).append(':').append(t.valor);
+            }
+            return sb.toString();
+        } catch (RuntimeException ex) {
+            return n + " error " + String.valueOf(ex.getMessage()).replaceAll("\\s+", " ");
+        }
+    }
+
+    /**
+     * Posicions ja escrites a {@code out}. Una última línia a mitges (el
+     * procés s'ha aturat escrivint-la) es treu.
+     */
+    static long resume(File out) throws IOException {
+        if (!out.exists()) return 0;
+        long lines = 0;
+        long end = 0;
+        try (RandomAccessFile f = new RandomAccessFile(out, "rw")) {
+            byte[] buf = new byte[1 << 16];
+            long pos = 0;
+            int r;
+            while ((r = f.read(buf)) > 0) {
+                for (int i = 0; i < r; i++) {
+                    if (buf[i] == '\n') {
+                        lines++;
+                        end = pos + i + 1;
+                    }
+                }
+                pos += r;
+            }
+            if (end < f.length()) f.setLength(end);
+        }
+        return lines;
+    }
+
+    /**
+     * Escriu els resultats en ordre d'entrada. Guarda els que arriben
+     * avançats en un anell de {@code window} posicions; reserve() bloqueja
+     * la lectura mentre l'anell és ple.
+     */
+    static class OrderedOutput {
+
+        private final Writer out;
+        private final String[] ring;
+        private final Semaphore free;
+        private long next;
+        private IOException error;
+
+        OrderedOutput(Writer out, long first, int window) {
+            this.out = out;
+            this.ring = new String[window];
+            this.free = new Semaphore(window);
+            this.next = first;
+        }
+
+        void reserve() throws InterruptedException, IOException {
+            free.acquire();
+            check();
+        }
+
+        synchronized void complete(long n, String line) {
+            ring[(int) (n % ring.length)] = line;
+            int released = 0;
+            try {
+                String l;
+                while ((l = ring[(int) (next % ring.length)]) != null) {
+                    ring[(int) (next % ring.length)] = null;
+                    if (error == null) {
+                        out.write(l);
+                        out.write('\n');
+                    }
+                    next++;
+                    released++;
+                }
+                // Una línia sencera és una posició acabada encara que es mati el procés
+                if (released > 0 && error == null) out.flush();
+            } catch (IOException ex) {
+                error = ex;
+            }
+            free.release(released);
+        }
+
+        /**
+         * Espera que s'hagin escrit totes les posicions llegides.
+         */
+        void drain() throws InterruptedException, IOException {
+            free.acquire(ring.length);
+            free.release(ring.length);
+            check();
+        }
+
+        synchronized long written() {
+            return next;
+        }
+
+        private synchronized void check() throws IOException {
+            if (error != null) throw error;
+        }
+    }
+
+    /**
+     * Una posició llegida; es construeix al fil que l'analitza.
+     */
+    static class Source {
+
+        /** -1 si no s'ha pogut llegir. */
+        final int size;
+        final Supplier<GameStatus> status;
+
+        Source(int size, Supplier<GameStatus> status) {
+            this.size = size;
+            this.status = status;
+        }
+    }
+
+    /**
+     * Posicions d'un fitxer, en ordre.
+     */
+    interface PositionSource extends AutoCloseable {
+
+        /** La següent, o null si no n'hi ha més. */
+        Source next() throws IOException;
+
+        /** Salta fins a n posicions i retorna quantes n'ha saltat. */
+        default long skip(long n) throws IOException {
+            long i = 0;
+            while (i < n && next() != null) i++;
+            return i;
+        }
+
+        @Override
+        void close() throws IOException;
+    }
+
+    static PositionSource open(File in) throws IOException {
+        if (in.getName().endsWith(".bin")) {
+            PositionShard shard = PositionShard.open(in);
+            return new PositionSource() {
+                long i;
+
+                @Override
+                public Source next() throws IOException {
+                    if (i >= shard.count()) return null;
+                    byte[] rec = new byte[shard.width];
+                    shard.read(i++, rec);
+                    return new Source(shard.size, () -> shard.status(rec));
+                }
+
+                @Override
+                public long skip(long n) {
+                    long s = Math.min(n, shard.count() - i);
+                    i += s;
+                    return s;
+                }
+
+                @Override
+                public void close() throws IOException {
+                    shard.close();
+                }
+            };
+        }
+        BufferedReader r = Files.newBufferedReader(in.toPath(), StandardCharsets.UTF_8);
+        return new PositionSource() {
+            @Override
+            public Source next() throws IOException {
+                String line;
+                while ((line = r.readLine()) != null) {
+                    String l = line.trim();
+                    if (!l.isEmpty() && !l.startsWith("#")) return new Source(size(l), () -> parse(l));
+                }
+                return null;
+            }
+
+            @Override
+            public void close() throws IOException {
+                r.close();
+            }
+        };
+    }
+
+    private static int size(String line) {
+        try {
+            return Integer.parseInt(line.split("\\s+", 2)[0]);
+        } catch (NumberFormatException ex) {
+            return -1;
+        }
+    }
+
+    /**
+     * Posició d'una línia de text de l'entrada.
+     */
+    static GameStatus parse(String line) {
+        String[] f = line.split("\\s+");
+        int size = Integer.parseInt(f[0]);
+        if (f.length == 1 || f[1].equals("turns")) {
+            GameStatus s = new GameStatus(size);
+            for (int i = 2; i < f.length; i++) {
+                Engine.apply(s, f[i]);
+            }
+            return s;
+        }
+        if (f.length != 3) throw new IllegalArgumentException("Cal mida mou caselles o mida turns ...: " + line);
+        PlayerType toMove;
+        switch (f[1]) {
+            case "1":
+                toMove = PlayerType.PLAYER1;
+                break;
+            case "2":
+                toMove = PlayerType.PLAYER2;
+                break;
+            default:
+                throw new IllegalArgumentException("Qui mou ha de ser 1 o 2: " + f[1]);
+        }
+        byte[] color = new byte[f[2].length()];
+        for (int k = 0; k < color.length; k++) {
+            char c = f[2].charAt(k);
+            if (c != '.' && c != '1' && c != '2') throw new IllegalArgumentException("Casella desconeguda '" + c + "'");
+            color[k] = (byte) (c == '.' ? 0 : c - '0');
+        }
+        return PositionShard.status(size, color, toMove);
+    }
+}
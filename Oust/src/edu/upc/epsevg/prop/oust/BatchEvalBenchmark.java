@@ -0,0 +1,80 @@
+package edu.upc.epsevg.prop.oust;
+
+import edu.upc.epsevg.prop.oust.players.EvaluacionLotes;
+import edu.upc.epsevg.prop.oust.players.Heuristica;
+import java.awt.Point;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compara l'avaluació un a un dels fills (còpia + placeStone +
+ * Heuristica.eval) amb EvaluacionLotes, per a diferents mides de lot.
+ * Abans de mesurar comprova que totes dues donen els mateixos valors.
+ *
+ * Ús: BatchEvalBenchmark [mida]
+ */
+public class BatchEvalBenchmark {
+
+    private static final int[] BATCH_SIZES = {1, 2, 4, 8, 16, 32, 64};
+    private static final long MEASURE_NANOS = 1_000_000_000L;
+
+    public static void main(String[] args) {
+        int size = args.length > 0 ? Integer.parseInt(args[0]) : 7;
+        List<GameStatus> positions = FixturePositions.generate(size, 300, 1234);
+        EvaluacionLotes lotes = new EvaluacionLotes(size);
+
+        int checked = 0;
+        for (GameStatus s : positions) {
+            List<Point> moves = s.getMoves();
+            int[] batch = lotes.evaluar(s, moves, s.getCurrentPlayer());
+            int[] scalar = scalar(s, moves);
+            for (int i = 0; i < moves.size(); i++) {
+                if (batch[i] != scalar[i]) {
+                    throw new IllegalStateException("Diferència a " + moves.get(i) + ": " + batch[i] + " != " + scalar[i] + "\n" + s);
+                }
+            }
+            checked += moves.size();
+        }
+        System.out.println("Fills comprovats: " + checked);
+
+        System.out.printf("%6s %14s %14s %9s%n", "lot", "ns/fill (1a1)", "ns/fill (lot)", "speedup");
+        for (int n : BATCH_SIZES) {
+            List<GameStatus> parents = new ArrayList<>();
+            List<List<Point>> children = new ArrayList<>();
+            for (GameStatus s : positions) {
+                List<Point> moves = s.getMoves();
+                if (moves.size() >= n) {
+                    parents.add(s);
+                    children.add(new ArrayList<>(moves.subList(0, n)));
+                }
+            }
+            if (parents.isEmpty()) continue;
+            double one = Microbench.nanosPerRun(() -> {
+                long sum = 0;
+                for (int i = 0; i < parents.size(); i++) {
+                    for (int v : scalar(parents.get(i), children.get(i))) sum += v;
+                }
+                return sum;
+            }, MEASURE_NANOS) / (parents.size() * (double) n);
+            double batch = Microbench.nanosPerRun(() -> {
+                long sum = 0;
+                for (int i = 0; i < parents.size(); i++) {
+                    GameStatus s = parents.get(i);
+                    for (int v : lotes.evaluar(s, children.get(i), s.getCurrentPlayer())) sum += v;
+                }
+                return sum;
+            }, MEASURE_NANOS) / (parents.size() * (double) n);
+            System.out.printf("%6d %14.0f %14.0f %8.1fx%n", n, one, batch, one / batch);
+        }
+    }
+
+    private static int[] scalar(GameStatus s, List<Point> moves) {
+        int[] res = new int[moves.size()];
+        for (int i = 0; i < res.length; i++) {
+            GameStatus temp = new GameStatus(s);
+            temp.placeStone(moves.get(i));
+            res[i] = Heuristica.eval(temp, s.getCurrentPlayer());
+        }
+        return res;
+    }
+}
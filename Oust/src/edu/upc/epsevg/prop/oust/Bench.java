@@ -0,0 +1,157 @@
+package edu.upc.epsevg.prop.oust;
+
+import edu.upc.epsevg.prop.oust.players.EstadisticasBusqueda;
+import edu.upc.epsevg.prop.oust.players.PropPlayer;
+import java.awt.Point;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Bench reproduïble: un move() de PropPlayer amb límit de nodes a cada
+ * posició d'un joc fix ({@link FixturePositions} amb una llavor
+ * constant), sense temps ni gestor de temps.
+ *
+ * La signatura de la cerca és el total de nodes i un hash dels torns triats
+ * a cada posició: no depèn de la màquina, de la càrrega ni del nombre de
+ * fils, i només canvia si canvia el que fa la cerca. Amb el límit exacte, la
+ * part minimax dels nodes és sempre límit × posicions; el que queda (passos
+ * de completar camins) i sobretot els torns són els que delaten un canvi. Un
+ * canvi que només hauria de fer-la més ràpida ha de deixar la signatura
+ * igual; els nodes per segon diuen quant més ràpida.
+ *
+ * Amb diversos fils el repartiment és fix: el fil t fa les posicions t,
+ * t + fils, t + 2·fils... cadascuna amb un jugador nou, sense res
+ * compartit. Les estadístiques es sumen en ordre de posició, de manera
+ * que el resultat és el mateix amb qualsevol nombre de fils.
+ *
+ * Amb {@code -Doust.cache} els jugadors fan servir la caché persistent i
+ * el resultat depèn del que hi hagi; el bench ho avisa.
+ *
+ * Ús: Bench [nodes per posició] [fils] [llavor de desempat] [posicions] [mida]
+ */
+public class Bench {
+
+    public static final long DEFAULT_NODES = 2000;
+    public static final int DEFAULT_POSITIONS = 24;
+    public static final int DEFAULT_SIZE = 7;
+    /** Llavor de les posicions del joc de proves; no s'ha de canviar. */
+    static final long SUITE_SEED = 0x4F555354L;
+    /** Prou gran perquè sempre mani el límit de nodes. */
+    static final int MAX_DEPTH = 64;
+
+    public static void main(String[] args) {
+        long nodes = args.length > 0 ? Long.parseLong(args[0]) : DEFAULT_NODES;
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : 1;
+        long seed = args.length > 2 ? Long.parseLong(args[2]) : 0;
+        int positions = args.length > 3 ? Integer.parseInt(args[3]) : DEFAULT_POSITIONS;
+        int size = args.length > 4 ? Integer.parseInt(args[4]) : DEFAULT_SIZE;
+        System.out.println(run(positions, size, nodes, seed, threads));
+    }
+
+    /**
+     * Resultat d'un bench.
+     */
+    public static class Result {
+
+        public final int positions;
+        /** Nodes (minimax i completar camins) de totes les posicions. */
+        public final long nodes;
+        /** Hash dels torns triats, en ordre de posició. */
+        public final long turns;
+        public final long nanos;
+
+        Result(int positions, long nodes, long turns, long nanos) {
+            this.positions = positions;
+            this.nodes = nodes;
+            this.turns = turns;
+            this.nanos = nanos;
+        }
+
+        public double getNodesPerSecond() {
+            return nanos == 0 ? 0 : nodes * 1e9 / nanos;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT, "bench positions %d nodes %d turns %016x time %d nps %.0f",
+                    positions, nodes, turns, nanos / 1_000_000, getNodesPerSecond());
+        }
+    }
+
+    public static Result run(int positions, int size, long nodes, long seed, int threads) {
+        if (System.getProperty("oust.cache") != null) {
+            System.err.println("Avís: amb -Doust.cache el bench depèn del contingut de la caché");
+        }
+        // Generar-les aquí també fa, abans dels fils, la taula estàtica de veïns de GameStatus
+        List<GameStatus> suite = FixturePositions.generate(size, positions, SUITE_SEED);
+        int n = Math.max(1, Math.min(threads, positions));
+        long[] perPosition = new long[positions];
+        long[] turnHash = new long[positions];
+        long t0 = System.nanoTime();
+        if (n == 1) {
+            search(suite, 0, 1, nodes, seed, perPosition, turnHash);
+        } else {
+            ExecutorService pool = Tournament.newPool(n);
+            try {
+                List<Future<?>> done = new ArrayList<>();
+                for (int t = 0; t < n; t++) {
+                    int first = t;
+                    done.add(pool.submit(() -> search(suite, first, n, nodes, seed, perPosition, turnHash)));
+                }
+                for (Future<?> f : done) {
+                    f.get();
+                }
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("Bench interromput", ex);
+            } catch (ExecutionException ex) {
+                throw new RuntimeException("Error al bench", ex.getCause());
+            } finally {
+                pool.shutdownNow();
+            }
+        }
+        long nanos = System.nanoTime() - t0;
+        long total = 0;
+        long turns = FNV_BASIS;
+        for (int i = 0; i < positions; i++) {
+            total += perPosition[i];
+            turns = (turns ^ turnHash[i]) * FNV_PRIME;
+        }
+        return new Result(positions, total, turns, nanos);
+    }
+
+    /**
+     * Les posicions first, first + step, ...
+     */
+    private static void search(List<GameStatus> suite, int first, int step, long nodes, long seed,
+            long[] perPosition, long[] turnHash) {
+        for (int i = first; i < suite.size(); i += step) {
+            PropPlayer p = new PropPlayer("bench", MAX_DEPTH).setLimiteNodos(nodes).setSemilla(seed);
+            p.setTelemetria(false);
+            PlayerMove m = p.move(new GameStatus(suite.get(i)));
+            EstadisticasBusqueda st = p.getEstadisticas();
+            perPosition[i] = st.nodos + st.nodosQuiescencia;
+            turnHash[i] = hash(m.getPoints());
+        }
+    }
+
+    private static final long FNV_BASIS = 0xCBF29CE484222325L;
+    private static final long FNV_PRIME = 0x100000001B3L;
+
+    /**
+     * FNV-1a de les caselles del torn, en ordre.
+     */
+    static long hash(List<Point> turn) {
+        long h = FNV_BASIS;
+        if (turn == null) return h;
+        for (Point q : turn) {
+            h = (h ^ q.x) * FNV_PRIME;
+            h = (h ^ q.y) * FNV_PRIME;
+        }
+        return h;
+    }
+}
@@ -11,14 +11,14 @@ import java.awt.image.BufferedImage;
 import java.io.IOException;
 import java.io.PrintWriter;
 import java.io.StringWriter;
-import java.lang.ref.WeakReference;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.logging.Logger;
 import javax.imageio.ImageIO;
 import javax.swing.JFrame;
 import javax.swing.JPanel;
-import javax.swing.SwingWorker;
+import javax.swing.SwingUtilities;
+import javax.swing.Timer;
 
 
 /**
@@ -57,6 +57,10 @@ public class Board extends MouseAdapter {
     private JControlsPanel controlPanel;
     private JPanel boardPanel;
     private List<Point> currentClickedPath;
+    private MemoryMode memoryMode = MemoryMode.fromProperty();
+    /** Refresc de la telemetria del jugador que pensa (ms). */
+    private static final int TELEMETRY_PERIOD = 100;
+    private Timer telemetryTimer;
 
     private IPlayer getCurrentPlayer() {
         return players[PlayerType.to_01(curPlayer)];
@@ -214,16 +218,48 @@ public class Board extends MouseAdapter {
     private void startTurn() {
         if (isCurrentPlayerAuto()) {
             this.controlPanel.setThinking(true);
-            Mover m = new Mover();
-            Watchdog w = new Watchdog(m, timeoutSeconds);
-            m.setWatchdog(w);
-            w.execute();
-            m.execute();
-            //(new Mover()).doInBackground();
+            final IPlayer player = getCurrentPlayer();
+            final GameStatus copy = new GameStatus(status);
+            MoveExecutor.MoveTask task = MoveExecutor.shared().start(player, () -> {
+                memoryMode.apply();
+                PlayerMove m = player.move(copy);
+                memoryMode.apply();
+                return m;
+            }, timeoutSeconds * 1000L, HeadlessGame.WAIT_EXTRA_TIME);
+            startTelemetry(player);
+            task.onOverdue(() -> Logger.getLogger(Board.class.getName()).log(java.util.logging.Level.WARNING,
+                    "Espera il·legal ! Player trampós: {0}", player.getName()));
+            task.whenDone((m, ex) -> SwingUtilities.invokeLater(() -> applyAutoMove(m, ex)));
         } else {
 
         }
     }
+    /**
+     * Mostra periòdicament l'estat de la cerca del jugador, si en publica.
+     * El Timer s'executa al fil de Swing i només llegeix l'últim snapshot.
+     */
+    private void startTelemetry(IPlayer player) {
+        stopTelemetry();
+        if (!(player instanceof SearchTelemetry)) return;
+        SearchTelemetry t = (SearchTelemetry) player;
+        PlayerType thinking = status.getCurrentPlayer();
+        telemetryTimer = new Timer(TELEMETRY_PERIOD, e -> {
+            SearchSnapshot s = t.getSnapshot();
+            if (s == null) return;
+            controlPanel.setInfo(s.toString());
+            if (thinking == PlayerType.PLAYER1) controlPanel.setScore1(s.score);
+            else controlPanel.setScore2(s.score);
+        });
+        telemetryTimer.start();
+    }
+
+    private void stopTelemetry() {
+        if (telemetryTimer != null) {
+            telemetryTimer.stop();
+            telemetryTimer = null;
+        }
+    }
+
     /**
      * Fi del torn
      */
@@ -242,139 +278,70 @@ public class Board extends MouseAdapter {
         }
     }
 
-    /**
-     * Vigilant del timeout
-     */
-    class Watchdog extends SwingWorker<Void, Object> {
-
-        Mover m;
-        int timeoutSeconds;
-
-        Watchdog(Mover m, int timeoutSeconds) {
-            this.m = m;
-            this.timeoutSeconds = timeoutSeconds;
-        }
-
-        @Override
-        public Void doInBackground() {
-            try {
-                Thread.sleep(timeoutSeconds * 1000);
-            } catch (InterruptedException ex) {
-            }
-            return null;
-        }
-
-        @Override
-        protected void done() {
-            m.timeout();
-        }
-    }
     /**
      * This method guarantees that garbage collection is done unlike
      * <code>{@link System#gc()}</code>
      */
     public static void gc() {
-        Object obj = new Object();
-        WeakReference ref = new WeakReference<Object>(obj);
-        obj = null;
-        while (ref.get() != null) {
-            System.gc();
-        }
+        MemoryMode.fullGc();
     }
     /**
-     * Fil per realitzar el moviment
+     * Aplica el moviment d'un jugador automàtic (en el fil de Swing)
      */
-    class Mover extends SwingWorker<PlayerMove, Object> {
-
-        Watchdog w;
-        boolean hasMoved = false;
-
-        Mover() {
-
+    private void applyAutoMove(PlayerMove m, Throwable error) {
+        PlayerType currentPlayer = status.getCurrentPlayer();
+        stopTelemetry();
+        if (m != null) {
+            String info = "Profunditat màxima:" + m.getMaxDepthReached() + "\n";
+            info += "Node explorats:    " + m.getNumerOfNodesExplored();
+            controlPanel.setInfo(info);
         }
-
-        public void timeout() {
-            if (!hasMoved) {
-                getCurrentPlayer().timeout();
-            }
-        }
-
-        @Override
-        public PlayerMove doInBackground() {
-            try {
-                gc();
-                PlayerMove m = getCurrentPlayer().move(new GameStatus(status));//, curPlayer); 
-                String info = "Profunditat màxima:" + m.getMaxDepthReached() + "\n";
-                info += "Node explorats:    " + m.getNumerOfNodesExplored();
-                Board.this.controlPanel.setInfo(info);
-                hasMoved = true;
-                gc();
-                
-                return m;
-            } catch (Exception e) {
+        try {
+            if (error != null) {
                 StringWriter sw = new StringWriter();
                 PrintWriter pw = new PrintWriter(sw);
-                e.printStackTrace(pw);
+                error.printStackTrace(pw);
                 System.out.println(sw.toString());
-                e.printStackTrace();
             }
-            return null;
-        }
-
-        public void setWatchdog(Watchdog w) {
-            this.w = w;
-        }
-
-        @Override
-        protected void done() {
-            PlayerType currentPlayer = status.getCurrentPlayer();
-            try {
-                PlayerMove m = get();
+            if (m != null && m.getPoints()!= null) {
+                
+                List<Point> points = m.getPoints();
                 
-                if (w != null) {
-                    w.cancel(true);
+                for(Point p:points){
+                    if(currentPlayer != status.getCurrentPlayer()) throw new Exception("Invalid move sequence, non-capturing move should be the last.");
+                    status.placeStone(p);
+                    lastPostAuto = p;// posició de destí (la última del path)
                 }
-                if (m != null && m.getPoints()!= null) {
-                    
-                    List<Point> points = m.getPoints();
-                    
-                    for(Point p:points){
-                        if(currentPlayer != status.getCurrentPlayer()) throw new Exception("Invalid move sequence, non-capturing move should be the last.");
-                        status.placeStone(p);
-                        lastPostAuto = p;// posició de destí (la última del path)
-                    }
-                    if( !status.isGameOver() && currentPlayer == status.getCurrentPlayer()) throw new Exception("Invalid move sequence, it must end in non-capturing move.");
-                                        
-                    Board.this.controlPanel.setThinking(false);
-                    //System.out.println(">" + status.toString());
-                    boardPanel.repaint();
+                if( !status.isGameOver() && currentPlayer == status.getCurrentPlayer()) throw new Exception("Invalid move sequence, it must end in non-capturing move.");
+                                    
+                Board.this.controlPanel.setThinking(false);
+                //System.out.println(">" + status.toString());
+                boardPanel.repaint();
+                
+                if(Board.this.pauseInAutomatic){
                     
-                    if(Board.this.pauseInAutomatic){
-                        
-                        gameEstatus = UIStates.WAIT_TO_CONTINUE;
-                        showCurrentStatus();
-                    } else {                                        
-                        endTurn();
-                    }
-                } else {
-                    Logger.getLogger(Board.class.getName()).log(java.util.logging.Level.SEVERE, "Player is returning a null move or a null position ("+m+"), game is lost...",
-                            "");
-                    status.forceLoser(currentPlayer);
-                    Board.this.controlPanel.setThinking(false);
+                    gameEstatus = UIStates.WAIT_TO_CONTINUE;
+                    showCurrentStatus();
+                } else {                                        
                     endTurn();
-
                 }
-            } catch (Exception ignore) {
-                if(ignore!=null) ignore.printStackTrace();
-                Logger.getLogger(Board.class.getName()).log(java.util.logging.Level.SEVERE, "Player is throwing an Exception, game is lost...",
+            } else {
+                Logger.getLogger(Board.class.getName()).log(java.util.logging.Level.SEVERE, "Player is returning a null move or a null position ("+m+"), game is lost...",
                         "");
                 status.forceLoser(currentPlayer);
                 Board.this.controlPanel.setThinking(false);
                 endTurn();
 
             }
-        }
+        } catch (Exception ignore) {
+            if(ignore!=null) ignore.printStackTrace();
+            Logger.getLogger(Board.class.getName()).log(java.util.logging.Level.SEVERE, "Player is throwing an Exception, game is lost...",
+                    "");
+            status.forceLoser(currentPlayer);
+            Board.this.controlPanel.setThinking(false);
+            endTurn();
 
+        }
     }
 
     private int getX(int col) {
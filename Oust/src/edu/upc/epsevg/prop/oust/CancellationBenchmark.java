@@ -0,0 +1,75 @@
+package edu.upc.epsevg.prop.oust;
+
+import edu.upc.epsevg.prop.oust.players.PropPlayer;
+import java.awt.Point;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Mesura quant triga PropPlayer a tornar de move() després de l'avís de
+ * timeout(), sobre posicions de mitja partida i amb temps per moviment
+ * aleatoris, i comprova que el moviment retornat sigui legal.
+ *
+ * Ús: CancellationBenchmark [moviments] [mida] [ms mínim] [ms màxim]
+ */
+public class CancellationBenchmark {
+
+    public static void main(String[] args) throws InterruptedException {
+        int moves = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+        int size = args.length > 1 ? Integer.parseInt(args[1]) : 6;
+        int minMs = args.length > 2 ? Integer.parseInt(args[2]) : 5;
+        int maxMs = args.length > 3 ? Integer.parseInt(args[3]) : 50;
+        int warmup = Math.min(100, moves / 10);
+
+        List<GameStatus> positions = FixturePositions.generate(size, moves + warmup, 42);
+        Random rand = new Random(7);
+        PropPlayer player = new PropPlayer("cancel", 64);
+        LatencyHistogram toReturn = new LatencyHistogram();
+        LatencyHistogram lateness = new LatencyHistogram();
+        int early = 0;
+        int illegal = 0;
+        for (int i = 0; i < positions.size(); i++) {
+            GameStatus s = positions.get(i);
+            long budget = minMs + rand.nextInt(maxMs - minMs + 1);
+            MoveExecutor.MoveTask task = MoveExecutor.shared().start(player, new GameStatus(s), budget, HeadlessGame.WAIT_EXTRA_TIME);
+            PlayerMove m = task.join();
+            if (i < warmup) continue;
+            if (!legal(s, m)) illegal++;
+            long t = task.getTimeoutToReturnNanos();
+            if (t < 0) {
+                early++;
+                continue;
+            }
+            toReturn.record(t);
+            lateness.record(task.getTimeoutLatenessNanos());
+        }
+        System.out.printf("%d moviments, mida %d, %d-%d ms per moviment%n", moves, size, minMs, maxMs);
+        print("timeout→retorn", toReturn);
+        print("retard avís", lateness);
+        System.out.printf("  acabats abans de l'avís: %d   il·legals: %d%n", early, illegal);
+    }
+
+    private static void print(String name, LatencyHistogram h) {
+        System.out.printf("  %-15s n=%d  p50 %.3f ms  p99 %.3f ms  p99.9 %.3f ms  màx %.3f ms%n", name, h.getCount(),
+                h.percentile(50) / 1e6, h.percentile(99) / 1e6, h.percentile(99.9) / 1e6, h.getMax() / 1e6);
+    }
+
+    /**
+     * El camí s'ha de poder jugar sencer i acabar en una jugada que passa
+     * el torn, com exigeix HeadlessGame.
+     */
+    private static boolean legal(GameStatus s, PlayerMove m) {
+        if (m == null || m.getPoints() == null || m.getPoints().isEmpty()) return false;
+        GameStatus c = new GameStatus(s);
+        PlayerType cp = c.getCurrentPlayer();
+        try {
+            for (Point p : m.getPoints()) {
+                if (cp != c.getCurrentPlayer()) return false;
+                c.placeStone(p);
+            }
+        } catch (RuntimeException ex) {
+            return false;
+        }
+        return c.isGameOver() || cp != c.getCurrentPlayer();
+    }
+}
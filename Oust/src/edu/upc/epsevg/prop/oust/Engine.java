@@ -0,0 +1,330 @@
+package edu.upc.epsevg.prop.oust;
+
+import edu.upc.epsevg.prop.oust.players.PropPlayer;
+import java.awt.Point;
+import java.io.BufferedReader;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Motor per línia d'ordres amb un protocol de text a l'estil UCI, perquè
+ * un gestor de partides extern (o un altre procés) pugui fer jugar
+ * qualsevol jugador. El procés es manté viu entre partides, amb el JIT i
+ * les taules del jugador calents.
+ *
+ * Ordres (una per línia):
+ * <pre>
+ *   oust                          → id name ... / oustok
+ *   isready                       → readyok
+ *   player espec                  jugador de {@link PlayerSpec}
+ *   position mida [turns t1 t2 ...]
+ *   turn t                        aplica un torn a la posició actual
+ *   go [movetime ms] [nodes n] [infinite]
+ *   stop
+ *   bench [nodes n] [threads t] [seed s]   → bench positions p nodes n turns h time ms nps x
+ *   quit
+ * </pre>
+ * Un torn és la llista de caselles que col·loca el jugador, separades per
+ * '+': {@code 3,4+5,2}. Durant la cerca el motor escriu
+ * {@code info depth d nodes n nps x time ms score s pv ...} (si el jugador
+ * publica {@link SearchTelemetry}) i, en acabar, {@code bestmove t}. Els
+ * errors es responen amb {@code error missatge}.
+ *
+ * Amb un PropPlayer, {@code go nodes n} para la cerca exactament als n
+ * nodes (amb {@link PropPlayer#setLimiteNodos(long)}) i, sense movetime, el
+ * resultat és reproduïble; amb altres jugadors el motor l'atura quan en
+ * veu n o més. {@code bench} és el de {@link Bench}.
+ *
+ * Ús: Engine [jugador] (per defecte {@value #DEFAULT_PLAYER})
+ *     Engine bench [nodes] [fils] [llavor]
+ */
+public class Engine {
+
+    public static final String DEFAULT_PLAYER = "prop:engine:64";
+    /** Temps de go sense límits. */
+    static final long DEFAULT_MOVETIME = 1000;
+    /** Cada quant es mira si cal escriure info o aturar per nodes. */
+    private static final long POLL_MILLIS = 5;
+    /** Interval mínim entre línies info sense canvi de profunditat. */
+    private static final long INFO_MILLIS = 500;
+
+    private final PrintStream out;
+    private IPlayer player;
+    private GameStatus status = new GameStatus(7);
+    private volatile MoveExecutor.MoveTask task;
+    /** Desfà el límit de nodes que go ha posat al jugador. */
+    private Runnable restore;
+    private Thread searcher;
+
+    public Engine(PrintStream out, IPlayer player) {
+        this.out = out;
+        this.player = player;
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        PrintStream protocol = new PrintStream(new FileOutputStream(FileDescriptor.out), true, "UTF-8");
+        // El que escriguin els jugadors no s'ha de barrejar amb el protocol
+        System.setOut(System.err);
+        if (args.length > 0 && args[0].equals("bench")) {
+            protocol.println(Bench.run(Bench.DEFAULT_POSITIONS, Bench.DEFAULT_SIZE,
+                    args.length > 1 ? Long.parseLong(args[1]) : Bench.DEFAULT_NODES,
+                    args.length > 3 ? Long.parseLong(args[3]) : 0,
+                    args.length > 2 ? Integer.parseInt(args[2]) : 1));
+            System.exit(0);
+        }
+        String spec = args.length > 0 ? args[0] : DEFAULT_PLAYER;
+        Engine e = new Engine(protocol, PlayerSpec.parse(spec, DEFAULT_MOVETIME).create());
+        BufferedReader in = new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8));
+        String line;
+        while ((line = in.readLine()) != null && e.execute(line)) {
+            // Següent ordre
+        }
+        e.stop();
+        e.waitSearch();
+        System.exit(0);
+    }
+
+    /**
+     * Executa una ordre.
+     *
+     * @return false si és quit
+     */
+    public boolean execute(String line) throws InterruptedException {
+        String[] f = line.trim().split("\\s+");
+        try {
+            switch (f[0]) {
+                case "":
+                    break;
+                case "oust":
+                    send("id name " + player.getName());
+                    send("oustok");
+                    break;
+                case "isready":
+                    send("readyok");
+                    break;
+                case "player":
+                    idle();
+                    if (f.length != 2) throw new IllegalArgumentException("Cal player espec");
+                    player = PlayerSpec.parse(f[1], DEFAULT_MOVETIME).create();
+                    break;
+                case "position":
+                    idle();
+                    position(f);
+                    break;
+                case "turn":
+                    idle();
+                    if (f.length != 2) throw new IllegalArgumentException("Cal turn t");
+                    GameStatus s = new GameStatus(status);
+                    apply(s, f[1]);
+                    status = s;
+                    break;
+                case "go":
+                    idle();
+                    go(f);
+                    break;
+                case "stop":
+                    stop();
+                    break;
+                case "bench":
+                    idle();
+                    bench(f);
+                    break;
+                case "quit":
+                    return false;
+                default:
+                    throw new IllegalArgumentException("Ordre desconeguda: " + f[0]);
+            }
+        } catch (RuntimeException ex) {
+            send("error " + ex.getMessage());
+        }
+        return true;
+    }
+
+    private void position(String[] f) {
+        if (f.length < 2) throw new IllegalArgumentException("Cal position mida [turns ...]");
+        GameStatus s = new GameStatus(Integer.parseInt(f[1]));
+        if (f.length > 2) {
+            if (!f[2].equals("turns")) throw new IllegalArgumentException("S'esperava turns: " + f[2]);
+            for (int i = 3; i < f.length; i++) {
+                apply(s, f[i]);
+            }
+        }
+        status = s;
+    }
+
+    /**
+     * Aplica un torn sencer amb les mateixes regles que HeadlessGame: totes
+     * les caselles del jugador que mou i acabant amb un canvi de torn.
+     */
+    static void apply(GameStatus s, String turn) {
+        if (s.isGameOver()) throw new IllegalArgumentException("La partida ja s'ha acabat");
+        PlayerType cp = s.getCurrentPlayer();
+        for (String c : turn.split("\\+")) {
+            if (cp != s.getCurrentPlayer() || s.isGameOver()) {
+                throw new IllegalArgumentException("Torn massa llarg: " + turn);
+            }
+            Point p = parsePoint(c);
+            if (!s.getMoves().contains(p)) throw new IllegalArgumentException("Casella il·legal " + c + " a " + turn);
+            s.placeStone(p);
+        }
+        if (!s.isGameOver() && cp == s.getCurrentPlayer()) {
+            throw new IllegalArgumentException("Torn incomplet: " + turn);
+        }
+    }
+
+    static Point parsePoint(String c) {
+        String[] xy = c.split(",");
+        if (xy.length != 2) throw new IllegalArgumentException("Casella mal formada: " + c);
+        return new Point(Integer.parseInt(xy[0]), Integer.parseInt(xy[1]));
+    }
+
+    static String format(List<Point> turn) {
+        StringBuilder sb = new StringBuilder();
+        for (Point p : turn) {
+            if (sb.length() > 0) sb.append('+');
+            sb.append(p.x).append(',').append(p.y);
+        }
+        return sb.toString();
+    }
+
+    private void go(String[] f) {
+        if (status.isGameOver()) throw new IllegalArgumentException("La partida ja s'ha acabat");
+        long movetime = DEFAULT_MOVETIME;
+        long nodes = 0;
+        boolean limited = false;
+        for (int i = 1; i < f.length; i++) {
+            switch (f[i]) {
+                case "movetime":
+                    movetime = Long.parseLong(f[++i]);
+                    limited = true;
+                    break;
+                case "nodes":
+                    nodes = Long.parseLong(f[++i]);
+                    if (!limited) movetime = TimeUnit.DAYS.toMillis(1);
+                    break;
+                case "infinite":
+                    movetime = TimeUnit.DAYS.toMillis(1);
+                    limited = true;
+                    break;
+                default:
+                    throw new IllegalArgumentException("Paràmetre de go desconegut: " + f[i]);
+            }
+        }
+        boolean exact = player instanceof PropPlayer && nodes > 0;
+        if (exact) {
+            PropPlayer p = (PropPlayer) player;
+            long own = p.getLimiteNodos();
+            p.setLimiteNodos(own > 0 ? Math.min(own, nodes) : nodes);
+            restore = () -> p.setLimiteNodos(own);
+        }
+        // El límit del PropPlayer és exacte; llavors el motor no l'ha de vigilar
+        long nodeLimit = exact ? 0 : nodes;
+        SearchSnapshot previous = player instanceof SearchTelemetry ? ((SearchTelemetry) player).getSnapshot() : null;
+        // Sense temps de gràcia: el motor espera el que calgui
+        MoveExecutor.MoveTask t = MoveExecutor.shared().start(player, new GameStatus(status), movetime, TimeUnit.DAYS.toMillis(1));
+        task = t;
+        searcher = new Thread(() -> report(t, nodeLimit, previous), "engine-search");
+        searcher.setDaemon(true);
+        searcher.start();
+    }
+
+    /**
+     * Escriu info mentre dura la cerca, l'atura si passa de {@code nodes}
+     * i escriu el bestmove.
+     *
+     * @param previous últim estat de la cerca anterior, que no s'ha d'escriure
+     */
+    private void report(MoveExecutor.MoveTask t, long nodes, SearchSnapshot previous) {
+        SearchTelemetry telemetry = player instanceof SearchTelemetry ? (SearchTelemetry) player : null;
+        int depth = -1;
+        long last = 0;
+        PlayerMove m;
+        try {
+            while (!t.isDone()) {
+                Thread.sleep(POLL_MILLIS);
+                SearchSnapshot s = telemetry == null ? null : telemetry.getSnapshot();
+                if (s == null || s == previous) continue;
+                if (nodes > 0 && s.nodes >= nodes) t.stop();
+                long now = System.nanoTime();
+                if (s.completedDepth != depth || now - last > TimeUnit.MILLISECONDS.toNanos(INFO_MILLIS)) {
+                    depth = s.completedDepth;
+                    last = now;
+                    info(s);
+                }
+            }
+            m = t.join();
+        } catch (InterruptedException ex) {
+            return;
+        }
+        SearchSnapshot s = telemetry == null ? null : telemetry.getSnapshot();
+        if (s != null && s != previous) info(s);
+        if (restore != null) {
+            restore.run();
+            restore = null;
+        }
+        task = null;
+        if (m == null || m.getPoints() == null || m.getPoints().isEmpty()) {
+            Throwable e = t.getError();
+            send("error el jugador no ha retornat cap moviment" + (e == null ? "" : ": " + e));
+        } else {
+            send("bestmove " + format(m.getPoints()));
+        }
+    }
+
+    private void bench(String[] f) {
+        long nodes = Bench.DEFAULT_NODES;
+        int threads = 1;
+        long seed = 0;
+        for (int i = 1; i < f.length; i++) {
+            switch (f[i]) {
+                case "nodes":
+                    nodes = Long.parseLong(f[++i]);
+                    break;
+                case "threads":
+                    threads = Integer.parseInt(f[++i]);
+                    break;
+                case "seed":
+                    seed = Long.parseLong(f[++i]);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Paràmetre de bench desconegut: " + f[i]);
+            }
+        }
+        send(Bench.run(Bench.DEFAULT_POSITIONS, Bench.DEFAULT_SIZE, nodes, seed, threads).toString());
+    }
+
+    private void info(SearchSnapshot s) {
+        send(String.format(Locale.ROOT, "info depth %d nodes %d nps %.0f time %d score %d pv %s",
+                s.completedDepth, s.nodes, s.getNodesPerSecond(), s.elapsedNanos / 1_000_000, s.score, s.pv));
+    }
+
+    /**
+     * Atura la cerca en curs, si n'hi ha; el bestmove arriba igualment.
+     */
+    public void stop() {
+        MoveExecutor.MoveTask t = task;
+        if (t != null) t.stop();
+    }
+
+    /**
+     * Espera que acabi la cerca en curs.
+     */
+    public void waitSearch() throws InterruptedException {
+        if (searcher != null) searcher.join();
+    }
+
+    private void idle() {
+        if (task != null) throw new IllegalStateException("Hi ha una cerca en curs");
+    }
+
+    private synchronized void send(String line) {
+        out.println(line);
+    }
+}
@@ -0,0 +1,37 @@
+package edu.upc.epsevg.prop.oust;
+
+import java.awt.Point;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Posicions de prova reproduïbles per als benchmarks: partides aleatòries
+ * amb una llavor fixa, aturades a mitja partida.
+ */
+public class FixturePositions {
+
+    /**
+     * Genera {@code count} posicions no acabades d'un tauler de mida
+     * {@code size}. La mateixa llavor dona sempre les mateixes posicions.
+     */
+    public static List<GameStatus> generate(int size, int count, long seed) {
+        Random rand = new Random(seed);
+        List<GameStatus> res = new ArrayList<>(count);
+        int cells = 3 * size * (size - 1) + 1;
+        while (res.size() < count) {
+            GameStatus s = new GameStatus(size);
+            // Entre un 20% i un 60% del tauler col·locat
+            int stones = cells / 5 + rand.nextInt(Math.max(1, 2 * cells / 5));
+            for (int i = 0; i < stones && !s.isGameOver(); i++) {
+                List<Point> moves = s.getMoves();
+                if (moves.isEmpty()) break;
+                s.placeStone(moves.get(rand.nextInt(moves.size())));
+            }
+            if (!s.isGameOver() && !s.getMoves().isEmpty()) {
+                res.add(s);
+            }
+        }
+        return res;
+    }
+}
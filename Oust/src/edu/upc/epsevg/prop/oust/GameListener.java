@@ -0,0 +1,34 @@
+package edu.upc.epsevg.prop.oust;
+
+/**
+ * Observador de les partides de HeadlessGame. Es crida des del fil que
+ * juga la partida; els estats que rep són còpies.
+ */
+public interface GameListener {
+
+    /**
+     * Comença una partida.
+     */
+    default void gameStarted(GameStatus initial, String name1, String name2) {
+    }
+
+    /**
+     * S'ha jugat un torn.
+     *
+     * @param player jugador que ha mogut
+     * @param before estat just abans del torn
+     * @param move moviment retornat (null si el jugador no n'ha retornat cap)
+     * @param forfeit el moviment era il·legal i el jugador perd la partida
+     * @param task temps del moviment
+     */
+    default void turnPlayed(PlayerType player, GameStatus before, PlayerMove move, boolean forfeit, MoveExecutor.MoveTask task) {
+    }
+
+    /**
+     * Ha acabat la partida.
+     *
+     * @param winner guanyador, o null si és empat
+     */
+    default void gameEnded(GameStatus last, PlayerType winner) {
+    }
+}
@@ -0,0 +1,248 @@
+package edu.upc.epsevg.prop.oust;
+
+import edu.upc.epsevg.prop.oust.players.Geometria;
+import edu.upc.epsevg.prop.oust.players.MovimientoBusqueda;
+import java.awt.Point;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Registre d'una partida: mida, jugadors, el camí de punts de cada torn amb
+ * les estadístiques de cerca del PlayerMove i el resultat.
+ *
+ * Format binari d'un registre (els enters són varint):
+ * <pre>
+ *   mida:byte  nom1:str  nom2:str  resultat:byte (0 empat, 1, 2)  torns:varint
+ *   per torn: flags:byte  punts:varint  casella*:varint  nodes:varlong
+ *             profunditat:varint  [H:float si flags &amp; HAS_H]
+ * </pre>
+ * Les caselles es guarden amb l'índex compacte de {@link Geometria}.
+ */
+public class GameRecord {
+
+    static final int FORFEIT = 1;
+    static final int HAS_H = 2;
+
+    public final int size;
+    public final String name1;
+    public final String name2;
+    public PlayerType winner;
+    public final List<Turn> turns = new ArrayList<>();
+
+    public GameRecord(int size, String name1, String name2) {
+        this.size = size;
+        this.name1 = name1;
+        this.name2 = name2;
+    }
+
+    /**
+     * Un torn complet d'un jugador.
+     */
+    public static class Turn {
+
+        /** Caselles (índex compacte) en l'ordre en què s'han col·locat. */
+        public final int[] cells;
+        public final long nodes;
+        public final int depth;
+        public final float h;
+        public final boolean hasH;
+        public final boolean forfeit;
+
+        public Turn(int[] cells, long nodes, int depth, float h, boolean hasH, boolean forfeit) {
+            this.cells = cells;
+            this.nodes = nodes;
+            this.depth = depth;
+            this.h = h;
+            this.hasH = hasH;
+            this.forfeit = forfeit;
+        }
+    }
+
+    /**
+     * Refà la posició després dels primers {@code turnCount} torns.
+     */
+    public GameStatus replay(int turnCount) {
+        Geometria geo = Geometria.de(size);
+        GameStatus s = new GameStatus(size);
+        for (int t = 0; t < turnCount && t < turns.size(); t++) {
+            apply(s, turns.get(t), geo);
+        }
+        return s;
+    }
+
+    /**
+     * Aplica un torn tal com ho va fer HeadlessGame, inclosa la derrota per
+     * moviment il·legal.
+     */
+    static void apply(GameStatus s, Turn turn, Geometria geo) {
+        PlayerType cp = s.getCurrentPlayer();
+        if (turn.forfeit) {
+            try {
+                for (int c : turn.cells) {
+                    if (cp != s.getCurrentPlayer()) break;
+                    s.placeStone(geo.puntos[c]);
+                }
+            } catch (RuntimeException ex) {
+                // El moviment il·legal es va aturar aquí
+            }
+            s.forceLoser(cp);
+        } else {
+            for (int c : turn.cells) {
+                s.placeStone(geo.puntos[c]);
+            }
+        }
+    }
+
+    //=====================================================================================
+    // Codificació
+    //=====================================================================================
+
+    byte[] encode() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 + turns.size() * 8);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeByte(size);
+        writeString(out, name1);
+        writeString(out, name2);
+        out.writeByte(winner == null ? 0 : PlayerType.to_01(winner) + 1);
+        writeVarLong(out, turns.size());
+        for (Turn t : turns) {
+            out.writeByte((t.forfeit ? FORFEIT : 0) | (t.hasH ? HAS_H : 0));
+            writeVarLong(out, t.cells.length);
+            for (int c : t.cells) writeVarLong(out, c);
+            writeVarLong(out, t.nodes);
+            writeVarLong(out, t.depth);
+            if (t.hasH) out.writeFloat(t.h);
+        }
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    static GameRecord decode(DataInput in) throws IOException {
+        int size = in.readUnsignedByte();
+        GameRecord r = new GameRecord(size, readString(in), readString(in));
+        int w = in.readUnsignedByte();
+        r.winner = w == 0 ? null : (w == 1 ? PlayerType.PLAYER1 : PlayerType.PLAYER2);
+        int n = (int) readVarLong(in);
+        for (int i = 0; i < n; i++) {
+            int flags = in.readUnsignedByte();
+            int[] cells = new int[(int) readVarLong(in)];
+            for (int j = 0; j < cells.length; j++) cells[j] = (int) readVarLong(in);
+            long nodes = readVarLong(in);
+            int depth = (int) readVarLong(in);
+            boolean hasH = (flags & HAS_H) != 0;
+            float h = hasH ? in.readFloat() : 0;
+            r.turns.add(new Turn(cells, nodes, depth, h, hasH, (flags & FORFEIT) != 0));
+        }
+        return r;
+    }
+
+    static void writeVarLong(DataOutput out, long v) throws IOException {
+        while ((v & ~0x7FL) != 0) {
+            out.writeByte((int) ((v & 0x7F) | 0x80));
+            v >>>= 7;
+        }
+        out.writeByte((int) v);
+    }
+
+    /**
+     * Bytes que ocupa v escrit amb {@link #writeVarLong}.
+     */
+    static int varLongSize(long v) {
+        int n = 1;
+        while ((v & ~0x7FL) != 0) {
+            v >>>= 7;
+            n++;
+        }
+        return n;
+    }
+
+    static long readVarLong(DataInput in) throws IOException {
+        long v = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.readUnsignedByte();
+            v |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) return v;
+        }
+        throw new IOException("varint massa llarg");
+    }
+
+    private static void writeString(DataOutput out, String s) throws IOException {
+        byte[] b = s.getBytes(StandardCharsets.UTF_8);
+        writeVarLong(out, b.length);
+        out.write(b);
+    }
+
+    private static String readString(DataInput in) throws IOException {
+        byte[] b = new byte[(int) readVarLong(in)];
+        in.readFully(b);
+        return new String(b, StandardCharsets.UTF_8);
+    }
+
+    //=====================================================================================
+    // Captura des de HeadlessGame
+    //=====================================================================================
+
+    /**
+     * Construeix el registre de cada partida i l'escriu en acabar.
+     * Una instància per partida; el writer es pot compartir o ser null si
+     * només es vol el registre ({@link #getRecord()}).
+     */
+    public static class Recorder implements GameListener {
+
+        private final GameRecordWriter writer;
+        private GameRecord record;
+        private Geometria geo;
+
+        public Recorder(GameRecordWriter writer) {
+            this.writer = writer;
+        }
+
+        @Override
+        public void gameStarted(GameStatus initial, String name1, String name2) {
+            record = new GameRecord(initial.getSize(), name1, name2);
+            geo = Geometria.de(initial.getSize());
+        }
+
+        @Override
+        public void turnPlayed(PlayerType player, GameStatus before, PlayerMove move, boolean forfeit, MoveExecutor.MoveTask task) {
+            List<Point> points = move == null || move.getPoints() == null ? null : move.getPoints();
+            int[] cells = new int[points == null ? 0 : points.size()];
+            for (int i = 0; i < cells.length; i++) {
+                Point p = points.get(i);
+                boolean in = p != null && p.x >= 0 && p.y >= 0 && p.x < geo.square && p.y < geo.square;
+                // Una casella fora del tauler només pot venir d'un moviment il·legal
+                cells[i] = in ? geo.index(p) : -1;
+            }
+            long nodes = move == null ? 0 : move.getNumerOfNodesExplored();
+            int depth = move == null ? 0 : move.getMaxDepthReached();
+            float h = move == null ? 0 : move.getH();
+            // Un 0 també és una puntuació; només la donen els jugadors que cerquen
+            boolean hasH = move instanceof MovimientoBusqueda;
+            record.turns.add(new Turn(cells, nodes, depth, h, hasH, forfeit));
+        }
+
+        @Override
+        public void gameEnded(GameStatus last, PlayerType winner) {
+            record.winner = winner;
+            if (writer == null) return;
+            try {
+                writer.write(record);
+            } catch (IOException ex) {
+                throw new RuntimeException("No s'ha pogut escriure el registre de la partida", ex);
+            }
+        }
+
+        /**
+         * Registre de l'última partida.
+         */
+        public GameRecord getRecord() {
+            return record;
+        }
+    }
+}
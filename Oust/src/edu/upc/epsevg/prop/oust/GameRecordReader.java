@@ -0,0 +1,136 @@
+package edu.upc.epsevg.prop.oust;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+/**
+ * Lector de fitxers de {@link GameRecordWriter}: accés directe a la partida
+ * i-èssima amb l'índex, o recorregut seqüencial en streaming.
+ */
+public class GameRecordReader implements Closeable {
+
+    private final RandomAccessFile raf;
+    private long[] offsets;
+
+    public GameRecordReader(File file) throws IOException {
+        this.raf = new RandomAccessFile(file, "r");
+        checkHeader(raf);
+        offsets = loadIndex(file, raf);
+    }
+
+    /**
+     * Nombre de partides del fitxer.
+     */
+    public int count() {
+        return offsets.length;
+    }
+
+    /**
+     * Llegeix la partida {@code i} (comptant des de 0).
+     */
+    public synchronized GameRecord read(int i) throws IOException {
+        raf.seek(offsets[i]);
+        byte[] body = new byte[(int) GameRecord.readVarLong(raf)];
+        raf.readFully(body);
+        return GameRecord.decode(new DataInputStream(new ByteArrayInputStream(body)));
+    }
+
+    /**
+     * Recorre totes les partides en ordre sense carregar-les a memòria.
+     */
+    public static long forEach(File file, Consumer<GameRecord> action) throws IOException {
+        long n = 0;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 1 << 16))) {
+            checkHeader(in);
+            while (true) {
+                long len;
+                try {
+                    len = GameRecord.readVarLong(in);
+                } catch (EOFException eof) {
+                    return n;
+                }
+                byte[] body = new byte[(int) len];
+                in.readFully(body);
+                action.accept(GameRecord.decode(new DataInputStream(new ByteArrayInputStream(body))));
+                n++;
+            }
+        }
+    }
+
+    static void checkHeader(DataInput in) throws IOException {
+        byte[] magic = new byte[GameRecordWriter.MAGIC.length];
+        in.readFully(magic);
+        if (!Arrays.equals(magic, GameRecordWriter.MAGIC)) {
+            throw new IOException("No és un fitxer de partides");
+        }
+        int version = in.readUnsignedByte();
+        if (version != GameRecordWriter.VERSION) {
+            throw new IOException("Versió de fitxer de partides desconeguda: " + version);
+        }
+    }
+
+    /**
+     * Llegeix l'índex i comprova que arribi fins al final de les dades. Si no
+     * hi és, hi apunta fora o s'ha perdut el final (per exemple, després
+     * d'una aturada brusca amb les dades ja escrites), continua recorrent
+     * les dades des de l'última partida que sí que hi era.
+     */
+    static long[] loadIndex(File file, RandomAccessFile raf) throws IOException {
+        File idx = GameRecordWriter.indexFile(file);
+        long[] res = new long[0];
+        if (idx.exists()) {
+            res = new long[(int) (idx.length() / 8)];
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(idx)))) {
+                for (int i = 0; i < res.length; i++) res[i] = in.readLong();
+            }
+        }
+        long length = raf.length();
+        long pos = GameRecordWriter.MAGIC.length + 1;
+        int n = 0;
+        if (res.length > 0 && res[res.length - 1] >= pos && res[res.length - 1] < length) {
+            n = res.length - 1;
+            pos = res[n];
+        }
+        res = Arrays.copyOf(res, Math.max(res.length, 1024));
+        while (pos < length) {
+            raf.seek(pos);
+            long len;
+            try {
+                len = GameRecord.readVarLong(raf);
+            } catch (EOFException eof) {
+                break;
+            }
+            long end = raf.getFilePointer() + len;
+            // Una partida a mig escriure al final no compta
+            if (end > length) break;
+            if (n == res.length) res = Arrays.copyOf(res, n * 2);
+            res[n++] = pos;
+            pos = end;
+        }
+        return Arrays.copyOf(res, n);
+    }
+
+    /**
+     * Posició just després de la partida que comença a {@code offset}.
+     */
+    static long recordEnd(RandomAccessFile raf, long offset) throws IOException {
+        raf.seek(offset);
+        long len = GameRecord.readVarLong(raf);
+        return raf.getFilePointer() + len;
+    }
+
+    @Override
+    public void close() throws IOException {
+        raf.close();
+    }
+}
@@ -0,0 +1,105 @@
+package edu.upc.epsevg.prop.oust;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+
+/**
+ * Escriptor en streaming de registres de partides. Només afegeix al final
+ * del fitxer de dades i, per cada partida, guarda el seu desplaçament
+ * (8 bytes) al fitxer d'índex {@code <fitxer>.idx}.
+ *
+ * Es pot compartir entre les partides d'un torneig. Si el fitxer ja existeix
+ * (per exemple, després d'una aturada brusca), primer es repara: es treu
+ * la partida que hagi quedat a mig escriure i es completa l'índex.
+ */
+public class GameRecordWriter implements Closeable {
+
+    static final byte[] MAGIC = {'O', 'U', 'S', 'T', 'G', 'A', 'M', 'E'};
+    static final int VERSION = 1;
+
+    private final DataOutputStream data;
+    private final DataOutputStream index;
+    private long offset;
+
+    public GameRecordWriter(File file) throws IOException {
+        File idx = indexFile(file);
+        boolean exists = file.exists() && file.length() > 0;
+        long[] missing = new long[0];
+        if (exists) {
+            try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+                GameRecordReader.checkHeader(raf);
+                long[] offsets = GameRecordReader.loadIndex(file, raf);
+                int n = offsets.length;
+                offset = n == 0 ? MAGIC.length + 1 : GameRecordReader.recordEnd(raf, offsets[n - 1]);
+                // Una partida a mig escriure quedaria enmig i es menjaria l'inici de la següent
+                raf.setLength(offset);
+                missing = Arrays.copyOfRange(offsets, trimIndex(idx, offsets), n);
+            }
+        }
+        data = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file, true), 1 << 16));
+        index = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(idx, exists)));
+        if (!exists) {
+            data.write(MAGIC);
+            data.writeByte(VERSION);
+            offset = MAGIC.length + 1;
+        }
+        for (long o : missing) {
+            index.writeLong(o);
+        }
+    }
+
+    /**
+     * Talla l'índex a les entrades que coincideixen amb el principi de
+     * {@code offsets} (i a un múltiple de 8 bytes).
+     *
+     * @return quantes entrades s'hi han quedat
+     */
+    private static int trimIndex(File idx, long[] offsets) throws IOException {
+        if (!idx.exists()) return 0;
+        long entries = Math.min(idx.length() / 8, offsets.length);
+        int n = 0;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(idx)))) {
+            while (n < entries && in.readLong() == offsets[n]) n++;
+        }
+        try (RandomAccessFile raf = new RandomAccessFile(idx, "rw")) {
+            raf.setLength(8L * n);
+        }
+        return n;
+    }
+
+    static File indexFile(File file) {
+        return new File(file.getPath() + ".idx");
+    }
+
+    /**
+     * Afegeix una partida: longitud (varint) i el registre codificat.
+     */
+    public synchronized void write(GameRecord r) throws IOException {
+        byte[] body = r.encode();
+        index.writeLong(offset);
+        GameRecord.writeVarLong(data, body.length);
+        data.write(body);
+        // No data.size(): es queda a Integer.MAX_VALUE passats 2 GiB
+        offset += GameRecord.varLongSize(body.length) + body.length;
+    }
+
+    public synchronized void flush() throws IOException {
+        data.flush();
+        index.flush();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        data.close();
+        index.close();
+    }
+}
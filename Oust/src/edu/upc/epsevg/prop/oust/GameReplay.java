@@ -0,0 +1,65 @@
+package edu.upc.epsevg.prop.oust;
+
+import edu.upc.epsevg.prop.oust.players.Geometria;
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Eina per consultar fitxers de partides.
+ *
+ * <pre>
+ *   GameReplay fitxer                 refà totes les partides i en mesura la velocitat
+ *   GameReplay fitxer partida [torn]  mostra la posició després del torn indicat
+ * </pre>
+ */
+public class GameReplay {
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.out.println("Ús: GameReplay fitxer [partida [torn]]");
+            return;
+        }
+        File file = new File(args[0]);
+        if (args.length == 1) {
+            scan(file);
+            return;
+        }
+        try (GameRecordReader reader = new GameRecordReader(file)) {
+            GameRecord r = reader.read(Integer.parseInt(args[1]));
+            int turn = args.length > 2 ? Integer.parseInt(args[2]) : r.turns.size();
+            GameStatus s = r.replay(turn);
+            System.out.println(r.name1 + " vs " + r.name2 + " (mida " + r.size + ", " + r.turns.size() + " torns, guanyador "
+                    + (r.winner == null ? "cap" : r.winner) + ")");
+            for (int t = 0; t < turn && t < r.turns.size(); t++) {
+                GameRecord.Turn tr = r.turns.get(t);
+                System.out.println(String.format("  %3d: %d pedres, %d nodes, prof. %d%s%s", t + 1, tr.cells.length,
+                        tr.nodes, tr.depth, tr.hasH ? ", H " + tr.h : "", tr.forfeit ? " (perd)" : ""));
+            }
+            System.out.println(s);
+        }
+    }
+
+    /**
+     * Refà cada partida fins al final i comprova que el guanyador coincideix.
+     */
+    static void scan(File file) throws IOException {
+        long[] positions = new long[1];
+        int[] mismatches = new int[1];
+        long t0 = System.nanoTime();
+        long games = GameRecordReader.forEach(file, r -> {
+            Geometria geo = Geometria.de(r.size);
+            GameStatus s = new GameStatus(r.size);
+            for (GameRecord.Turn t : r.turns) {
+                GameRecord.apply(s, t, geo);
+                positions[0] += t.cells.length;
+            }
+            if (s.GetWinner() != r.winner) mismatches[0]++;
+        });
+        double secs = (System.nanoTime() - t0) / 1e9;
+        System.out.println(String.format("%d partides, %d posicions en %.2f s (%.0f partides/s, %.0f posicions/s)",
+                games, positions[0], secs, games / secs, positions[0] / secs));
+        if (mismatches[0] > 0) {
+            System.out.println(mismatches[0] + " partides amb un guanyador diferent del registrat");
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package edu.upc.epsevg.prop.oust;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Resultats d'una sèrie de partides entre dos jugadors amb colors fixos.
+ *
+ * @author bernat
+ */
+public class GameResult implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final String name1;
+    private final String name2;
+    List<PlayerType> results;
+    private final MemoryStats memory = new MemoryStats();
+    private final MoveLatencyStats latency = new MoveLatencyStats();
+
+    public GameResult(String name1, String name2) {
+        this.name1 = name1;
+        this.name2 = name2;
+        results = new ArrayList<PlayerType>();
+    }
+
+    public synchronized void update(PlayerType res) {
+        results.add(res);
+    }
+
+    /**
+     * Afegeix els resultats d'una altra sèrie amb els mateixos jugadors.
+     */
+    public synchronized void merge(GameResult other) {
+        results.addAll(other.getResults());
+        memory.merge(other.memory);
+        latency.merge(other.latency);
+    }
+
+    public synchronized List<PlayerType> getResults() {
+        return new ArrayList<>(results);
+    }
+
+    public synchronized int getWins1() {
+        int n = 0;
+        for (PlayerType c : results) {
+            if (c == PlayerType.PLAYER1) n++;
+        }
+        return n;
+    }
+
+    public synchronized int getWins2() {
+        int n = 0;
+        for (PlayerType c : results) {
+            if (c == PlayerType.PLAYER2) n++;
+        }
+        return n;
+    }
+
+    public synchronized int getTies() {
+        return results.size() - getWins1() - getWins2();
+    }
+
+    public synchronized int getGames() {
+        return results.size();
+    }
+
+    /**
+     * Memòria i GC de cada jugador durant els seus moviments.
+     */
+    public MemoryStats getMemoryStats() {
+        return memory;
+    }
+
+    /**
+     * Latència dels moviments de cada jugador.
+     */
+    public MoveLatencyStats getLatencyStats() {
+        return latency;
+    }
+
+    public String getName1() {
+        return name1;
+    }
+
+    public String getName2() {
+        return name2;
+    }
+
+    @Override
+    public synchronized String toString() {
+        String res = "\n ================================================================="+
+                     "\n ================       RESULTS       ============================"+
+                     "\n =================================================================\n";
+        int wins1 = 0, ties1 = 0, loose1 = 0;
+        for (PlayerType c : results) {
+            if (null == c) {
+                ties1++;
+            } else {
+                switch (c) {
+                    case PLAYER1:
+                        wins1++;
+                        break;
+                    default:
+                        loose1++;
+                        break;
+                }
+            }
+        }
+
+        res += "PLAYER 1 (" + pad(name1, 40) + "):\t wins " + wins1 + "\t ties:" + ties1 + "\t looses:" + loose1 + "\n";
+        res += "PLAYER 2 (" + pad(name2, 40) + "):\t wins " + loose1 + "\t ties:" + ties1 + "\t looses:" + wins1 + "\n";
+        res += memory.format(name1, name2);
+        res += latency.format(name1, name2);
+        return res;
+    }
+
+    public static String pad(String inputString, int length) {
+        if (inputString.length() >= length) {
+            return inputString;
+        }
+        StringBuilder sb = new StringBuilder();
+        while (sb.length() < length - inputString.length()) {
+            sb.append(' ');
+        }
+        sb.append(inputString);
+
+        return sb.toString();
+    }
+}
@@ -6,13 +6,9 @@ import edu.upc.epsevg.prop.oust.*;
 import edu.upc.epsevg.prop.oust.players.HumanPlayer;
 import edu.upc.epsevg.prop.oust.players.RandomPlayer;
 import java.awt.Point;
-import java.lang.ref.WeakReference;
-
 import java.util.ArrayList;
-import java.util.concurrent.Semaphore;
-import java.util.concurrent.TimeUnit;
-import java.util.logging.Level;
-import java.util.logging.Logger;
+import java.util.List;
+
 
 /**
  *
@@ -24,22 +20,32 @@ public class HeadlessGame {
     private GameStatus status;
     private int gameCount;
     private int timeout;
+    private long timeoutMillis;
     private int size;
     
+    private boolean verbose = true;
+    private MemoryMode memoryMode = MemoryMode.fromProperty();
+    private MemoryStats memory;
+    private MoveLatencyStats latency;
+    private final List<GameListener> listeners = new ArrayList<>();
+    
     public static void main(String[] args) {
 
 
-        IPlayer player1 = new MalaOustiaPlayer();        
-        IPlayer player2 = new RandomPlayer("Obelix");
-        
+        PlayerFactory player1 = () -> new MalaOustiaPlayer();        
+        PlayerFactory player2 = () -> new RandomPlayer("Obelix");
         
-        HeadlessGame game1 = new HeadlessGame(player1, player2, 7, 3/*s timeout*/, 10/*games*/);
-        GameResult gr1 = game1.start();
-        System.out.println(gr1);
-        
-        HeadlessGame game2 = new HeadlessGame(player2, player1, 7, 3/*s timeout*/, 10/*games*/);
-        GameResult gr2 = game2.start();       
-        System.out.println(gr2);
+        // Les dues ordenacions de colors es juguen alhora, cada partida amb
+        // jugadors nous
+        Tournament t = new Tournament(player1, player2, 7, 3/*s timeout*/, 10/*parelles*/);
+        // -Doust.stats=fitxer.csv (o .json) guarda les estadístiques de cerca de cada moviment
+        SearchStatsLog stats = SearchStatsLog.fromProperty();
+        if (stats != null) t.addListener(stats::listener);
+        Tournament.Result r = t.run();
+        System.out.println(r);
+        if (stats != null) stats.close();
+        // -Doust.latency=fitxer.csv exporta la taula de percentils de latència
+        r.writeLatencyFromProperty();
 
     }
 
@@ -51,146 +57,131 @@ public class HeadlessGame {
         players[1] = p2;
         this.gameCount = gameCount;
         this.timeout = timeout;
+        this.timeoutMillis = timeout * 1000L;
     }
 
-    public GameResult start() {
-        GameResult gr = new GameResult();
-        for (int i = 0; i < gameCount; i++) {
-            //System.out.println(">" + i);
-            gr.update(play(players[0], players[1]));
-        }
-        return gr;
+    /**
+     * Temps per moviment en mil·lisegons, per a partides més ràpides que
+     * el segon del constructor.
+     */
+    public void setTimeoutMillis(long timeoutMillis) {
+        this.timeoutMillis = timeoutMillis;
     }
 
-    private class Result {
-        public boolean ok;
+    /**
+     * Mostra per consola el torn de cada jugador i el guanyador.
+     */
+    public void setVerbose(boolean verbose) {
+        this.verbose = verbose;
     }
 
-    private PlayerType play(IPlayer player, IPlayer player0) {
-        this.status = new GameStatus(size);
+    /**
+     * Política de memòria entre moviments. FULL_GC atura tota la JVM, així
+     * que amb partides en paral·lel cal fer servir NONE.
+     */
+    public void setMemoryMode(MemoryMode memoryMode) {
+        this.memoryMode = memoryMode;
+    }
 
-        while (!this.status.isGameOver()) {
+    /**
+     * Rep cada torn jugat i el final de cada partida (per exemple, per
+     * guardar-ne el registre).
+     */
+    public void addListener(GameListener l) {
+        listeners.add(l);
+    }
 
-            final Semaphore semaphore = new Semaphore(1);
-            semaphore.tryAcquire();
-            //System.out.println("." + new Date());
-            final Result r = new Result();
-            final PlayerType cp = status.getCurrentPlayer();
-            Thread t1 = new Thread(() -> {
-                PlayerMove m = null;
-                try {
-                    m = players[cp == PlayerType.PLAYER1 ? 0 : 1].move(new GameStatus(status));
-                } catch(Exception ex) {
-                    System.out.println("Excepció descontrolada al player:"+cp.name());
-                    ex.printStackTrace();
-                }
-                if (m != null) {
-                    
-                    try {
-                    
-                        for(Point p:m.getPoints()){
-                            if(cp != status.getCurrentPlayer()) throw new Exception("Invalid move sequence, non-capturing move should be the last.");
-                            status.placeStone(p);
-                        }
-                        if( !status.isGameOver() && cp == status.getCurrentPlayer()) throw new Exception("Invalid move sequence, it must end in non-capturing move.");
-                    }catch(Exception ex){
-                        System.out.println("Excepció descontrolada al player:"+cp.name());
-                        ex.printStackTrace();
-                        status.forceLoser(cp);    
-                    }                    
-                    
-                } else {
-                    status.forceLoser(cp);
-                }
-                System.out.print(cp==PlayerType.PLAYER1?"1":"2");
-                r.ok = true;
-                semaphore.release();
-            });
-
-            Thread t2 = new Thread(() -> {
-                try {
-                    Thread.sleep(HeadlessGame.this.timeout * 1000);
-                } catch (InterruptedException ex) {
-                }
-                if (!r.ok) {
-                    players[cp == PlayerType.PLAYER1 ? 0 : 1].timeout();
-                }
-            });
-
-            t1.start();
-            t2.start();
-            long WAIT_EXTRA_TIME = 2000;
-            try {
-                if (!semaphore.tryAcquire(1, timeout * 1000 + WAIT_EXTRA_TIME, TimeUnit.MILLISECONDS)) {
-
-                    System.out.println("Espera il·legal ! Player trampós:"+cp.name());
-                    //throw new RuntimeException("Jugador trampós ! Espera il·legal !");
-                    // Som millors persones deixant que el jugador il·legal continui jugant...
-                    semaphore.acquire();
-                }
-
-            } catch (InterruptedException ex) {
-                Logger.getLogger(HeadlessGame.class.getName()).log(Level.SEVERE, null, ex);
+    /**
+     * Juga les partides. Si el fil s'interromp (per exemple, el SPRT ja ha
+     * decidit), la partida a mitges no compta: es llança una excepció amb el
+     * fil marcat com a interromput.
+     */
+    public GameResult start() {
+        GameResult gr = new GameResult(players[0].getName(), players[1].getName());
+        memory = gr.getMemoryStats();
+        latency = gr.getLatencyStats();
+        try {
+            for (int i = 0; i < gameCount; i++) {
+                //System.out.println(">" + i);
+                gr.update(play(players[0], players[1]));
             }
-            // Netegem la memòria (for free!)
-            gc();
-            
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Partida interrompuda", ex);
         }
-        System.out.println("|||| WINNER:"+ (status.GetWinner()==PlayerType.PLAYER1?"1":"2"));
-        return status.GetWinner();
+        return gr;
     }
 
-    private class GameResult {
-
-        java.util.List<PlayerType> results;
-
-        public GameResult() {
-            results = new ArrayList<PlayerType>();
+    /** Temps extra que tenen els jugadors per tornar després del timeout(). */
+    static final long WAIT_EXTRA_TIME = 2000;
 
+    private PlayerType play(IPlayer player, IPlayer player0) throws InterruptedException {
+        this.status = new GameStatus(size);
+        for (GameListener l : listeners) {
+            l.gameStarted(new GameStatus(status), players[0].getName(), players[1].getName());
         }
 
-        public void update(PlayerType res) {
-            results.add(res);
-        }
+        while (!this.status.isGameOver()) {
 
-        @Override
-        public String toString() {
-            String res = "\n ================================================================="+
-                         "\n ================       RESULTS       ============================"+
-                         "\n =================================================================\n";
-            int wins1 = 0, ties1 = 0, loose1 = 0;
-            for (PlayerType c : results) {
-                if (null == c) {
-                    ties1++;
-                } else {
-                    switch (c) {
-                        case PLAYER1:
-                            wins1++;
-                            break;
-                        default:
-                            loose1++;
-                            break;
-                    }
-                }
+            final PlayerType cp = status.getCurrentPlayer();
+            GameStatus before = listeners.isEmpty() ? null : new GameStatus(status);
+            boolean forfeit = false;
+            long gcMillis0 = MemoryStats.totalGcMillis();
+            long gcCount0 = MemoryStats.totalGcCount();
+            MoveExecutor.MoveTask task = MoveExecutor.shared().start(players[cp == PlayerType.PLAYER1 ? 0 : 1],
+                    new GameStatus(status), timeoutMillis, WAIT_EXTRA_TIME);
+            PlayerMove m = null;
+            if (!task.await()) {
+
+                System.out.println("Espera il·legal ! Player trampós:"+cp.name());
+                //throw new RuntimeException("Jugador trampós ! Espera il·legal !");
+                // Som millors persones deixant que el jugador il·legal continui jugant...
             }
+            m = task.join();
+            latency.record(PlayerType.to_01(cp), task, timeoutMillis * 1_000_000L);
 
-            res += "PLAYER 1 (" + pad(players[0].getName(), 40) + "):\t wins " + wins1 + "\t ties:" + ties1 + "\t looses:" + loose1 + "\n";
-            res += "PLAYER 2 (" + pad(players[1].getName(), 40) + "):\t wins " + loose1 + "\t ties:" + ties1 + "\t looses:" + wins1 + "\n";
-            return res;
-        }
-
-        public String pad(String inputString, int length) {
-            if (inputString.length() >= length) {
-                return inputString;
+            if (task.getError() != null) {
+                System.out.println("Excepció descontrolada al player:"+cp.name());
+                task.getError().printStackTrace();
             }
-            StringBuilder sb = new StringBuilder();
-            while (sb.length() < length - inputString.length()) {
-                sb.append(' ');
+            if (m != null) {
+                
+                try {
+                
+                    for(Point p:m.getPoints()){
+                        if(cp != status.getCurrentPlayer()) throw new Exception("Invalid move sequence, non-capturing move should be the last.");
+                        status.placeStone(p);
+                    }
+                    if( !status.isGameOver() && cp == status.getCurrentPlayer()) throw new Exception("Invalid move sequence, it must end in non-capturing move.");
+                }catch(Exception ex){
+                    System.out.println("Excepció descontrolada al player:"+cp.name());
+                    ex.printStackTrace();
+                    status.forceLoser(cp);    
+                    forfeit = true;
+                }                    
+                
+            } else {
+                status.forceLoser(cp);
+                forfeit = true;
             }
-            sb.append(inputString);
-
-            return sb.toString();
+            for (GameListener l : listeners) {
+                l.turnPlayed(cp, before, m, forfeit, task);
+            }
+            if (verbose) System.out.print(cp==PlayerType.PLAYER1?"1":"2");
+            long heapUsed = MemoryStats.heapUsed();
+            long gcMillis = MemoryStats.totalGcMillis() - gcMillis0;
+            long gcCount = MemoryStats.totalGcCount() - gcCount0;
+            // Netegem la memòria (for free!)
+            long t0 = System.nanoTime();
+            memoryMode.apply();
+            memory.record(PlayerType.to_01(cp), heapUsed, gcMillis, gcCount, System.nanoTime() - t0);
+            
         }
+        for (GameListener l : listeners) {
+            l.gameEnded(new GameStatus(status), status.GetWinner());
+        }
+        if (verbose) System.out.println("|||| WINNER:"+ (status.GetWinner()==PlayerType.PLAYER1?"1":"2"));
+        return status.GetWinner();
     }
 
     
@@ -199,12 +190,7 @@ public class HeadlessGame {
      * <code>{@link System#gc()}</code>
      */
     public static void gc() {
-        Object obj = new Object();
-        WeakReference ref = new WeakReference<Object>(obj);
-        obj = null;
-        while (ref.get() != null) {
-            System.gc();
-        }
+        MemoryMode.fullGc();
     }
 }
     
\ No newline at end of file
@@ -0,0 +1,85 @@
+package edu.upc.epsevg.prop.oust;
+
+import java.io.Serializable;
+
+/**
+ * Histograma de latències en nanosegons amb cubetes logarítmiques, a
+ * l'estil HDR: cada potència de dos es divideix en {@code 2^SUB_BITS}
+ * cubetes lineals, de manera que l'error relatiu de qualsevol percentil
+ * és menor que {@code 1 / 2^SUB_BITS} (~3%) i la mida és fixa.
+ *
+ * No és segur entre fils; qui el comparteix el sincronitza (com
+ * {@link MoveLatencyStats}).
+ */
+public class LatencyHistogram implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final int SUB_BITS = 5;
+    private static final int SUB = 1 << SUB_BITS;
+    /** Els valors fins a SUB van a la primera fila, un per cubeta. */
+    private static final int ROWS = 64 - SUB_BITS;
+
+    private final long[] counts = new long[(ROWS + 1) * SUB];
+    private long total;
+    private long max;
+    private long sum;
+
+    public void record(long nanos) {
+        long v = Math.max(0, nanos);
+        counts[bucket(v)]++;
+        total++;
+        sum += v;
+        if (v > max) max = v;
+    }
+
+    public void merge(LatencyHistogram o) {
+        for (int i = 0; i < counts.length; i++) counts[i] += o.counts[i];
+        total += o.total;
+        sum += o.sum;
+        max = Math.max(max, o.max);
+    }
+
+    public long getCount() {
+        return total;
+    }
+
+    public long getMax() {
+        return max;
+    }
+
+    public double getMean() {
+        return total == 0 ? 0 : (double) sum / total;
+    }
+
+    /**
+     * Valor del percentil {@code p} (0..100): el límit superior de la
+     * cubeta que el conté, sense passar del màxim observat.
+     */
+    public long percentile(double p) {
+        if (total == 0) return 0;
+        long rank = Math.max(1, (long) Math.ceil(p / 100 * total));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) return Math.min(upper(i), max);
+        }
+        return max;
+    }
+
+    static int bucket(long v) {
+        if (v < SUB) return (int) v;
+        int row = 63 - Long.numberOfLeadingZeros(v) - SUB_BITS + 1;
+        int sub = (int) (v >>> (row - 1)) & (SUB - 1);
+        return row * SUB + sub;
+    }
+
+    /** Valor més gran que cau a la cubeta {@code i}. */
+    static long upper(int i) {
+        int row = i / SUB;
+        int sub = i % SUB;
+        if (row == 0) return sub;
+        long base = (long) (SUB + sub) << (row - 1);
+        return base + (1L << (row - 1)) - 1;
+    }
+}
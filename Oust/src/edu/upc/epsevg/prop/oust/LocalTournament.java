@@ -0,0 +1,342 @@
+package edu.upc.epsevg.prop.oust;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Torneig com el de {@link Tournament}, però amb cada partida en una JVM
+ * treballadora ({@link TournamentWorker}) en lloc d'un fil: cada partida té
+ * el seu heap i un GC o una fallada d'una JVM no afecta les altres.
+ *
+ * El coordinador arrenca N treballadors, els reparteix les partides per
+ * l'entrada estàndard i en recull el resultat i el registre per la sortida.
+ * Si un treballador mor o es penja (passa del límit per partida), es
+ * reinicia i la partida es torna a jugar, fins a {@code maxRetries} vegades.
+ * Una excepció dins del treballador (resposta {@code ERROR}) no es torna a
+ * provar: es repetiria igual, i atura el torneig de seguida.
+ *
+ * Els jugadors es donen com a text de {@link PlayerSpec}. Els treballadors
+ * reben les propietats {@code -Doust.*} del coordinador, excepte
+ * {@code oust.cache.escribir}: la caché només la pot escriure una JVM.
+ *
+ * Ús: LocalTournament jugadorA jugadorB [parelles] [treballadors] [mida] [ms] [heap] [registres]
+ */
+public class LocalTournament {
+
+    private final String specA;
+    private final String specB;
+    private final int size;
+    private final long timeoutMillis;
+    private final int pairs;
+    private final int workers;
+    private String heap = "512m";
+    private int maxRetries = 2;
+    private long gameLimitMillis = 10 * 60 * 1000;
+    private File logDir;
+    private GameRecordWriter records;
+    private final AtomicInteger restarts = new AtomicInteger();
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Ús: LocalTournament jugadorA jugadorB [parelles] [treballadors] [mida] [ms] [heap] [registres]");
+            System.exit(2);
+        }
+        int pairs = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+        int workers = args.length > 3 ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+        int size = args.length > 4 ? Integer.parseInt(args[4]) : 7;
+        long ms = args.length > 5 ? Long.parseLong(args[5]) : 3000;
+
+        LocalTournament t = new LocalTournament(args[0], args[1], size, ms, pairs, workers);
+        if (args.length > 6) t.setHeap(args[6]);
+        GameRecordWriter records = args.length > 7 ? new GameRecordWriter(new File(args[7])) : null;
+        t.setRecordWriter(records);
+        Tournament.Result r = t.run();
+        if (records != null) records.close();
+        System.out.println(r);
+        System.out.println(" treballadors reiniciats: " + t.getRestarts());
+        r.writeLatencyFromProperty();
+    }
+
+    public LocalTournament(String specA, String specB, int size, long timeoutMillis, int pairs, int workers) {
+        // Falla aquí, i no a cada treballador, si un jugador no existeix
+        PlayerSpec.parse(specA, timeoutMillis);
+        PlayerSpec.parse(specB, timeoutMillis);
+        this.specA = specA;
+        this.specB = specB;
+        this.size = size;
+        this.timeoutMillis = timeoutMillis;
+        this.pairs = pairs;
+        this.workers = Math.max(1, workers);
+    }
+
+    /**
+     * Heap màxim de cada treballador, com a -Xmx (per defecte 512m).
+     */
+    public void setHeap(String heap) {
+        this.heap = heap;
+    }
+
+    /**
+     * Cops que es torna a jugar una partida després que el treballador mori
+     * o es pengi abans d'aturar el torneig.
+     */
+    public void setMaxRetries(int maxRetries) {
+        this.maxRetries = maxRetries;
+    }
+
+    /**
+     * Temps màxim d'una partida; passat aquest temps es mata el treballador.
+     */
+    public void setGameLimitMillis(long gameLimitMillis) {
+        this.gameLimitMillis = gameLimitMillis;
+    }
+
+    /**
+     * Directori on cada treballador escriu la seva sortida d'error
+     * ({@code worker-N.log}); per defecte, la del coordinador.
+     */
+    public void setLogDir(File logDir) {
+        this.logDir = logDir;
+    }
+
+    /**
+     * Guarda totes les partides del torneig al fitxer del writer.
+     */
+    public void setRecordWriter(GameRecordWriter records) {
+        this.records = records;
+    }
+
+    /**
+     * Treballadors que s'han hagut de reiniciar en l'últim run().
+     */
+    public int getRestarts() {
+        return restarts.get();
+    }
+
+    /**
+     * Juga totes les parelles i espera que acabin.
+     */
+    public Tournament.Result run() {
+        Tournament.Result res = new Tournament.Result(PlayerSpec.parse(specA, timeoutMillis).create().getName(),
+                PlayerSpec.parse(specB, timeoutMillis).create().getName());
+        LinkedBlockingDeque<Assignment> pending = new LinkedBlockingDeque<>();
+        for (int i = 0; i < pairs; i++) {
+            pending.add(new Assignment(2 * i, true));
+            pending.add(new Assignment(2 * i + 1, false));
+        }
+        restarts.set(0);
+        Run run = new Run(res, pending);
+        ExecutorService pool = Tournament.newPool(workers);
+        ScheduledExecutorService watchdog = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "tournament-watchdog");
+            t.setDaemon(true);
+            return t;
+        });
+        long t0 = System.nanoTime();
+        try {
+            List<Future<?>> done = new ArrayList<>();
+            for (int n = 1; n <= workers; n++) {
+                int worker = n;
+                done.add(pool.submit(() -> serve(worker, run, watchdog)));
+            }
+            for (Future<?> f : done) {
+                f.get();
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Torneig interromput", ex);
+        } catch (ExecutionException ex) {
+            throw new RuntimeException("Error en un treballador del torneig", ex.getCause());
+        } finally {
+            pool.shutdownNow();
+            watchdog.shutdownNow();
+        }
+        if (run.failure != null) {
+            throw new RuntimeException("Error jugant una partida del torneig", run.failure);
+        }
+        res.elapsedNanos = System.nanoTime() - t0;
+        return res;
+    }
+
+    /**
+     * Bucle d'un treballador: agafa partides pendents fins que no en queden
+     * i el reinicia cada cop que falla.
+     */
+    private void serve(int n, Run run, ScheduledExecutorService watchdog) {
+        Worker w = null;
+        try {
+            Assignment a;
+            while (run.failure == null && (a = run.pending.pollFirst()) != null) {
+                if (w == null) w = new Worker(n);
+                String[] reply = w.play(a, watchdog);
+                if (reply == null) {
+                    // Mort o penjat: es torna a jugar la partida en un treballador nou
+                    w.kill();
+                    w = null;
+                    restarts.incrementAndGet();
+                    retry(run, a, new IllegalStateException("El treballador " + n + " ha fallat jugant la partida " + a.id));
+                } else if (reply[0].equals("ERROR")) {
+                    // Determinista (especificació dolenta, jugada il·legal...): no es repeteix
+                    run.fail(new IllegalStateException("Partida " + a.id + ": " + String.join(" ", reply)));
+                } else {
+                    collect(run, a, reply);
+                }
+            }
+        } catch (IOException ex) {
+            run.fail(ex);
+        } finally {
+            if (w != null) w.quit();
+        }
+    }
+
+    private void retry(Run run, Assignment a, Exception cause) {
+        if (++a.attempts > maxRetries) {
+            run.fail(cause);
+        } else {
+            System.err.println(cause.getMessage() + "; es torna a jugar");
+            run.pending.addFirst(a);
+        }
+    }
+
+    private void collect(Run run, Assignment a, String[] reply) throws IOException {
+        GameResult r = TournamentWorker.decodeResult(reply[2]);
+        (a.aFirst ? run.res.aFirst : run.res.bFirst).merge(r);
+        if (records != null) {
+            byte[] body = Base64.getDecoder().decode(reply[3]);
+            records.write(GameRecord.decode(new DataInputStream(new ByteArrayInputStream(body))));
+        }
+    }
+
+    /**
+     * Estat compartit pels treballadors d'un run().
+     */
+    private static class Run {
+
+        final Tournament.Result res;
+        final LinkedBlockingDeque<Assignment> pending;
+        volatile Exception failure;
+
+        Run(Tournament.Result res, LinkedBlockingDeque<Assignment> pending) {
+            this.res = res;
+            this.pending = pending;
+        }
+
+        synchronized void fail(Exception ex) {
+            if (failure == null) failure = ex;
+        }
+    }
+
+    /**
+     * Una partida per jugar; les parelles tenen els colors intercanviats.
+     */
+    private static class Assignment {
+
+        final int id;
+        final boolean aFirst;
+        int attempts;
+
+        Assignment(int id, boolean aFirst) {
+            this.id = id;
+            this.aFirst = aFirst;
+        }
+    }
+
+    /**
+     * Una JVM treballadora i els seus canals.
+     */
+    private class Worker {
+
+        private final Process process;
+        private final PrintWriter out;
+        private final BufferedReader in;
+
+        Worker(int n) throws IOException {
+            List<String> cmd = new ArrayList<>();
+            cmd.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+            cmd.add("-Xmx" + heap);
+            for (String k : System.getProperties().stringPropertyNames()) {
+                if (k.startsWith("oust.") && !k.equals("oust.cache.escribir")) {
+                    cmd.add("-D" + k + "=" + System.getProperty(k));
+                }
+            }
+            cmd.add("-cp");
+            cmd.add(System.getProperty("java.class.path"));
+            cmd.add(TournamentWorker.class.getName());
+            ProcessBuilder pb = new ProcessBuilder(cmd);
+            if (logDir != null) {
+                logDir.mkdirs();
+                pb.redirectError(ProcessBuilder.Redirect.appendTo(new File(logDir, "worker-" + n + ".log")));
+            } else {
+                pb.redirectError(ProcessBuilder.Redirect.INHERIT);
+            }
+            process = pb.start();
+            out = new PrintWriter(new OutputStreamWriter(process.getOutputStream(), StandardCharsets.UTF_8), true);
+            in = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8));
+        }
+
+        /**
+         * Juga una partida i en retorna la resposta separada per espais, o
+         * null si el treballador ha mort o ha passat del límit.
+         */
+        String[] play(Assignment a, ScheduledExecutorService watchdog) throws IOException {
+            String first = a.aFirst ? specA : specB;
+            String second = a.aFirst ? specB : specA;
+            out.println("GAME " + a.id + " " + size + " " + timeoutMillis + " " + first + " " + second);
+            if (out.checkError()) return null;
+            ScheduledFuture<?> limit = watchdog.schedule(process::destroyForcibly, gameLimitMillis, TimeUnit.MILLISECONDS);
+            String line;
+            try {
+                line = in.readLine();
+            } catch (IOException ex) {
+                // Canal tancat pel watchdog
+                line = null;
+            } finally {
+                limit.cancel(false);
+            }
+            if (line == null) return null;
+            String[] reply = line.split(" ", 3);
+            if (reply[0].equals("RESULT")) {
+                reply = line.split(" ");
+                if (reply.length != 4) throw new IOException("Resposta mal formada del treballador: " + line);
+            }
+            if (!reply[0].equals("RESULT") && !reply[0].equals("ERROR")) {
+                throw new IOException("Resposta desconeguda del treballador: " + line);
+            }
+            return reply;
+        }
+
+        void quit() {
+            out.println("QUIT");
+            try {
+                if (!process.waitFor(5, TimeUnit.SECONDS)) process.destroyForcibly();
+            } catch (InterruptedException ex) {
+                process.destroyForcibly();
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        void kill() {
+            process.destroyForcibly();
+        }
+    }
+}
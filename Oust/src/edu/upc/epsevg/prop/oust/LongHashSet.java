@@ -0,0 +1,58 @@
+package edu.upc.epsevg.prop.oust;
+
+/**
+ * Conjunt de longs amb adreçament obert, sense objectes per element.
+ * No és thread-safe.
+ */
+class LongHashSet {
+
+    private long[] keys;
+    private boolean hasZero;
+    private int count;
+
+    LongHashSet(int expected) {
+        int cap = 16;
+        while (cap < expected * 2) cap <<= 1;
+        keys = new long[cap];
+    }
+
+    /**
+     * @return false si ja hi era
+     */
+    boolean add(long k) {
+        if (k == 0) {
+            if (hasZero) return false;
+            hasZero = true;
+            count++;
+            return true;
+        }
+        if (insert(keys, k)) {
+            if (++count * 2 > keys.length) grow();
+            return true;
+        }
+        return false;
+    }
+
+    int size() {
+        return count;
+    }
+
+    private static boolean insert(long[] t, long k) {
+        int mask = t.length - 1;
+        int i = (int) (k ^ (k >>> 32)) * 0x9E3779B9 & mask;
+        while (t[i] != 0) {
+            if (t[i] == k) return false;
+            i = (i + 1) & mask;
+        }
+        t[i] = k;
+        return true;
+    }
+
+    private void grow() {
+        long[] t = new long[keys.length * 2];
+        for (long k : keys) {
+            if (k != 0) insert(t, k);
+        }
+        keys = t;
+    }
+}
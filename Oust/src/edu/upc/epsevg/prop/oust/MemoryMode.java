@@ -0,0 +1,128 @@
+package edu.upc.epsevg.prop.oust;
+
+import edu.upc.epsevg.prop.oust.jfr.MemoryPolicyEvent;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Què fem amb la memòria entre moviment i moviment.
+ *
+ * Es pot triar amb la propietat {@code -Doust.memory=none|full|young}; per
+ * defecte es fa una recollida completa, com sempre.
+ */
+public enum MemoryMode {
+
+    /** No es fa res: el més ràpid, per a tornejos. */
+    NONE,
+    /** Recollida completa garantida (bucle sobre System.gc()). */
+    FULL_GC,
+    /** Només una recollida de la generació jove, provocada omplint l'eden. */
+    YOUNG_GC;
+
+    /** Màxim d'escombraries que generem per forçar una recollida jove. */
+    private static final long MAX_YOUNG_BYTES = 512L << 20;
+    private static final int CHUNK = 64 << 10;
+
+    private static final List<GarbageCollectorMXBean> YOUNG_COLLECTORS = new ArrayList<>();
+    private static final List<MemoryPoolMXBean> EDEN_POOLS = new ArrayList<>();
+    private static volatile Object sink;
+
+    static {
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            String n = gc.getName();
+            if (n.contains("Young") || n.contains("Scavenge") || n.equals("Copy") || n.equals("ParNew") || n.contains("Minor")) {
+                YOUNG_COLLECTORS.add(gc);
+            }
+        }
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getName().contains("Eden")) {
+                EDEN_POOLS.add(pool);
+            }
+        }
+    }
+
+    /**
+     * Mode configurat per la propietat {@code oust.memory}.
+     */
+    public static MemoryMode fromProperty() {
+        String v = System.getProperty("oust.memory", "full").trim().toLowerCase();
+        switch (v) {
+            case "none":
+                return NONE;
+            case "young":
+                return YOUNG_GC;
+            default:
+                return FULL_GC;
+        }
+    }
+
+    /**
+     * Aplica la política entre moviments.
+     */
+    public void apply() {
+        if (this == NONE) return;
+        MemoryPolicyEvent ev = new MemoryPolicyEvent();
+        ev.begin();
+        long before = ev.isEnabled() ? MemoryStats.heapUsed() : 0;
+        switch (this) {
+            case FULL_GC:
+                fullGc();
+                break;
+            case YOUNG_GC:
+                youngGc();
+                break;
+            default:
+                break;
+        }
+        ev.end();
+        if (ev.shouldCommit()) {
+            ev.mode = name();
+            ev.heapBefore = before;
+            ev.heapAfter = MemoryStats.heapUsed();
+            ev.commit();
+        }
+    }
+
+    /**
+     * This method guarantees that garbage collection is done unlike
+     * <code>{@link System#gc()}</code>
+     */
+    static void fullGc() {
+        Object obj = new Object();
+        WeakReference ref = new WeakReference<Object>(obj);
+        obj = null;
+        while (ref.get() != null) {
+            System.gc();
+        }
+    }
+
+    /**
+     * No hi ha cap API per demanar una recollida jove: omplim el que queda
+     * d'eden amb objectes morts fins que el col·lector jove s'executa.
+     */
+    private static void youngGc() {
+        if (YOUNG_COLLECTORS.isEmpty()) return;
+        long before = youngCount();
+        long budget = MAX_YOUNG_BYTES;
+        for (MemoryPoolMXBean eden : EDEN_POOLS) {
+            long committed = eden.getUsage().getCommitted();
+            if (committed > 0) budget = Math.min(budget, 2 * committed);
+        }
+        for (long allocated = 0; allocated < budget && youngCount() == before; allocated += CHUNK) {
+            sink = new byte[CHUNK];
+        }
+        sink = null;
+    }
+
+    private static long youngCount() {
+        long n = 0;
+        for (GarbageCollectorMXBean gc : YOUNG_COLLECTORS) {
+            n += Math.max(0, gc.getCollectionCount());
+        }
+        return n;
+    }
+}
@@ -0,0 +1,101 @@
+package edu.upc.epsevg.prop.oust;
+
+import java.io.Serializable;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.List;
+
+/**
+ * Ús de memòria i temps de GC per jugador (PLAYER1 / PLAYER2), mostrejat
+ * a cada moviment. Serveix per comprovar que cap jugador paga el GC de
+ * l'altre quan no es força la recollida entre moviments.
+ *
+ * Els comptadors de GC són de tota la JVM: amb partides en paral·lel
+ * inclouen les recollides provocades per les altres partides.
+ */
+public class MemoryStats implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final MemoryMXBean MEMORY = ManagementFactory.getMemoryMXBean();
+    private static final List<GarbageCollectorMXBean> COLLECTORS = ManagementFactory.getGarbageCollectorMXBeans();
+
+    private final long[] moves = new long[2];
+    private final long[] heapSum = new long[2];
+    private final long[] heapMax = new long[2];
+    private final long[] gcMillis = new long[2];
+    private final long[] gcCount = new long[2];
+    private final long[] policyNanos = new long[2];
+
+    /**
+     * Registra un moviment del jugador {@code player} (0 o 1).
+     *
+     * @param heapUsed memòria ocupada en acabar el moviment
+     * @param gcMillis temps de GC durant el moviment
+     * @param gcCount recollides durant el moviment
+     * @param policyNanos durada de la política de memòria després del moviment
+     */
+    public synchronized void record(int player, long heapUsed, long gcMillis, long gcCount, long policyNanos) {
+        moves[player]++;
+        heapSum[player] += heapUsed;
+        heapMax[player] = Math.max(heapMax[player], heapUsed);
+        this.gcMillis[player] += gcMillis;
+        this.gcCount[player] += gcCount;
+        this.policyNanos[player] += policyNanos;
+    }
+
+    public synchronized void merge(MemoryStats o) {
+        for (int i = 0; i < 2; i++) {
+            moves[i] += o.moves[i];
+            heapSum[i] += o.heapSum[i];
+            heapMax[i] = Math.max(heapMax[i], o.heapMax[i]);
+            gcMillis[i] += o.gcMillis[i];
+            gcCount[i] += o.gcCount[i];
+            policyNanos[i] += o.policyNanos[i];
+        }
+    }
+
+    public synchronized long getMoves(int player) {
+        return moves[player];
+    }
+
+    public synchronized long getGcMillis(int player) {
+        return gcMillis[player];
+    }
+
+    /**
+     * Línies de resum per a l'informe del GameResult.
+     */
+    public synchronized String format(String name1, String name2) {
+        String res = "";
+        String[] names = {name1, name2};
+        for (int i = 0; i < 2; i++) {
+            if (moves[i] == 0) continue;
+            res += String.format("MEM %d (%s):\t heap mitjà %d MB, màx %d MB\t GC en torn %d ms (%d)\t pausa entre moviments %d ms%n",
+                    i + 1, GameResult.pad(names[i], 40), heapSum[i] / moves[i] >> 20, heapMax[i] >> 20,
+                    gcMillis[i], gcCount[i], policyNanos[i] / 1_000_000);
+        }
+        return res;
+    }
+
+    static long heapUsed() {
+        return MEMORY.getHeapMemoryUsage().getUsed();
+    }
+
+    static long totalGcMillis() {
+        long t = 0;
+        for (GarbageCollectorMXBean gc : COLLECTORS) {
+            t += Math.max(0, gc.getCollectionTime());
+        }
+        return t;
+    }
+
+    static long totalGcCount() {
+        long n = 0;
+        for (GarbageCollectorMXBean gc : COLLECTORS) {
+            n += Math.max(0, gc.getCollectionCount());
+        }
+        return n;
+    }
+}
@@ -0,0 +1,44 @@
+package edu.upc.epsevg.prop.oust;
+
+/**
+ * Mesura de microbenchmarks dels mains de comparació: escalfa el JIT
+ * durant una quarta part del temps i després repeteix el lot fins a
+ * esgotar-lo.
+ *
+ * Cada lot retorna un valor que depèn de la feina feta, i la suma s'escriu
+ * en un camp volatile perquè el JIT no pugui eliminar-la. Per a mesures
+ * fines hi ha el mòdul JMH (OustBench).
+ */
+final class Microbench {
+
+    /** On acaba la suma dels lots, perquè no sigui codi mort. */
+    private static volatile long sink;
+
+    private Microbench() {
+    }
+
+    interface Batch {
+        long run();
+    }
+
+    /**
+     * Nanosegons per execució de {@code b}.
+     */
+    static double nanosPerRun(Batch b, long measureNanos) {
+        long sum = 0;
+        long end = System.nanoTime() + measureNanos / 4;
+        while (System.nanoTime() < end) {
+            sum += b.run();
+        }
+        long runs = 0;
+        long t0 = System.nanoTime();
+        long t1;
+        do {
+            sum += b.run();
+            runs++;
+            t1 = System.nanoTime();
+        } while (t1 - t0 < measureNanos);
+        sink = sum;
+        return (t1 - t0) / (double) runs;
+    }
+}
@@ -0,0 +1,278 @@
+package edu.upc.epsevg.prop.oust;
+
+import edu.upc.epsevg.prop.oust.jfr.MoveEvent;
+import edu.upc.epsevg.prop.oust.jfr.TimeoutEvent;
+import edu.upc.epsevg.prop.oust.players.EstadisticasBusqueda;
+import edu.upc.epsevg.prop.oust.players.MovimientoBusqueda;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+
+/**
+ * Servei compartit per executar moviments amb límit de temps.
+ *
+ * Els moviments s'executen en fils reutilitzats i cada moviment arma una
+ * sola alarma al temporitzador: a l'hora límit avisa el jugador amb
+ * {@link IPlayer#timeout()} i, si encara no ha acabat, es torna a armar per
+ * al final del temps de gràcia, quan el moviment es marca com a il·legal.
+ *
+ * L'avís de timeout() pot arribar abans que move() comenci, si el fil del
+ * pool triga a arrencar, i també entre el final de move() i el moment en què
+ * el moviment es marca com a tornat. Per això un {@link TimeoutAware}
+ * l'esborra aquí, amb el mateix bloqueig que l'alarma, i no en acabar move().
+ * Després ja no arriba cap avís.
+ */
+public class MoveExecutor {
+
+    private static final MoveExecutor SHARED = new MoveExecutor();
+
+    private final ScheduledExecutorService timer;
+    private final ExecutorService movers;
+
+    public MoveExecutor() {
+        timer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "oust-move-timer");
+            t.setDaemon(true);
+            t.setPriority(Thread.MAX_PRIORITY);
+            return t;
+        });
+        AtomicInteger n = new AtomicInteger();
+        movers = Executors.newCachedThreadPool(r -> {
+            Thread t = new Thread(r, "oust-move-" + n.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        // El primer esdeveniment JFR inicialitza la infraestructura (centenars
+        // de ms): que no caigui dins del temps del primer moviment
+        new MoveEvent();
+        new TimeoutEvent();
+    }
+
+    /**
+     * Executor compartit per HeadlessGame, Tournament i Board.
+     */
+    public static MoveExecutor shared() {
+        return SHARED;
+    }
+
+    /**
+     * Demana un moviment a {@code player} sobre una còpia de l'estat.
+     */
+    public MoveTask start(IPlayer player, GameStatus status, long timeoutMillis, long graceMillis) {
+        return start(player, () -> player.move(status), timeoutMillis, graceMillis);
+    }
+
+    /**
+     * Executa {@code work} en un fil del pool; a l'hora límit avisa
+     * {@code player}.
+     */
+    public MoveTask start(IPlayer player, Callable<PlayerMove> work, long timeoutMillis, long graceMillis) {
+        MoveTask task = new MoveTask(player, timeoutMillis, graceMillis);
+        task.alarm = timer.schedule(task::onDeadline, task.deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+        task.future.whenComplete((m, ex) -> task.alarm.cancel(false));
+        movers.execute(() -> {
+            PlayerMove m = null;
+            MoveEvent ev = new MoveEvent();
+            ev.begin();
+            try {
+                m = work.call();
+            } catch (Exception ex) {
+                task.error = ex;
+            } catch (Throwable t) {
+                task.error = t;
+                task.returned();
+                task.commit(ev, null);
+                task.future.completeExceptionally(t);
+                return;
+            }
+            task.returned();
+            task.commit(ev, m);
+            task.future.complete(m);
+        });
+        return task;
+    }
+
+    /**
+     * Moviment en curs.
+     */
+    public class MoveTask {
+
+        private final IPlayer player;
+        private final long startNanos;
+        private final long deadline;
+        private final long graceNanos;
+        private final CompletableFuture<PlayerMove> future = new CompletableFuture<>();
+        private volatile ScheduledFuture<?> alarm;
+        private volatile long endNanos;
+        private volatile Throwable error;
+        private volatile long timeoutNanos;
+        private volatile boolean signalled;
+        private volatile boolean overdue;
+        private volatile Runnable overdueListener;
+        /** move() ha tornat; protegit per this, com l'avís de timeout(). */
+        private boolean returned;
+
+        MoveTask(IPlayer player, long timeoutMillis, long graceMillis) {
+            this.player = player;
+            this.startNanos = System.nanoTime();
+            this.deadline = startNanos + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+            this.graceNanos = TimeUnit.MILLISECONDS.toNanos(graceMillis);
+        }
+
+        private void onDeadline() {
+            if (future.isDone()) return;
+            if (!signalled) {
+                synchronized (this) {
+                    if (returned) return;
+                    timeoutNanos = System.nanoTime();
+                    signalled = true;
+                    TimeoutEvent ev = new TimeoutEvent();
+                    ev.begin();
+                    player.timeout();
+                    ev.end();
+                    if (ev.shouldCommit()) {
+                        ev.player = player.getName();
+                        ev.lateness = timeoutNanos - deadline;
+                        ev.commit();
+                    }
+                }
+                if (!future.isDone()) {
+                    alarm = timer.schedule(this::onDeadline, deadline + graceNanos - System.nanoTime(), TimeUnit.NANOSECONDS);
+                }
+            } else {
+                overdue = true;
+                Runnable l = overdueListener;
+                if (l != null) l.run();
+            }
+        }
+
+        /**
+         * Avança l'avís de timeout() a ara (per exemple, per una ordre
+         * stop); el temps de gràcia continua comptant des de l'hora límit.
+         */
+        public void stop() {
+            // En el fil del temporitzador, per no creuar-se amb l'alarma
+            timer.execute(() -> {
+                if (signalled || future.isDone()) return;
+                alarm.cancel(false);
+                onDeadline();
+            });
+        }
+
+        private synchronized void returned() {
+            endNanos = System.nanoTime();
+            returned = true;
+            if (player instanceof TimeoutAware) ((TimeoutAware) player).clearTimeout();
+        }
+
+        private void commit(MoveEvent ev, PlayerMove m) {
+            ev.end();
+            if (!ev.shouldCommit()) return;
+            ev.player = player.getName();
+            ev.failed = m == null || error != null;
+            if (m != null) {
+                ev.stones = m.getPoints() == null ? 0 : m.getPoints().size();
+                ev.nodes = m.getNumerOfNodesExplored();
+                ev.depth = m.getMaxDepthReached();
+                ev.score = m.getH();
+                if (m instanceof MovimientoBusqueda) {
+                    EstadisticasBusqueda e = ((MovimientoBusqueda) m).getEstadisticas();
+                    ev.evaluations = e.evaluaciones;
+                    ev.ttHits = e.ttAciertos;
+                }
+            }
+            ev.timeoutSignalled = signalled;
+            ev.timeoutToReturn = signalled ? endNanos - timeoutNanos : 0;
+            ev.commit();
+        }
+
+        /**
+         * Espera fins al final del temps de gràcia.
+         *
+         * @return true si el moviment ha acabat a temps
+         */
+        public boolean await() throws InterruptedException {
+            try {
+                future.get(Math.max(0, deadline + graceNanos - System.nanoTime()), TimeUnit.NANOSECONDS);
+            } catch (TimeoutException ex) {
+                return false;
+            } catch (ExecutionException ex) {
+                // El moviment ha acabat, amb error
+            }
+            return true;
+        }
+
+        /**
+         * Espera el moviment sense límit.
+         *
+         * @return el moviment, o null si el jugador ha llançat una excepció
+         */
+        public PlayerMove join() throws InterruptedException {
+            try {
+                return future.get();
+            } catch (ExecutionException ex) {
+                return null;
+            }
+        }
+
+        /**
+         * Excepció llançada pel jugador, si n'hi ha hagut.
+         */
+        public Throwable getError() {
+            return error;
+        }
+
+        /**
+         * Crida {@code action} quan acaba el moviment (en el fil del jugador).
+         */
+        public void whenDone(BiConsumer<PlayerMove, Throwable> action) {
+            future.whenComplete((m, ex) -> action.accept(m, ex != null ? ex : error));
+        }
+
+        /**
+         * Crida {@code listener} si el moviment supera el temps de gràcia.
+         */
+        public void onOverdue(Runnable listener) {
+            overdueListener = listener;
+            if (overdue) listener.run();
+        }
+
+        public boolean isDone() {
+            return future.isDone();
+        }
+
+        public boolean isOverdue() {
+            return overdue;
+        }
+
+        /**
+         * Retard entre l'hora límit i la crida a timeout(), o -1 si no s'ha
+         * hagut d'avisar el jugador.
+         */
+        public long getTimeoutLatenessNanos() {
+            return signalled ? timeoutNanos - deadline : -1;
+        }
+
+        /**
+         * Temps entre l'avís de timeout() i el retorn del moviment, o -1.
+         */
+        public long getTimeoutToReturnNanos() {
+            return signalled && future.isDone() ? endNanos - timeoutNanos : -1;
+        }
+
+        /**
+         * Durada del moviment, o -1 si encara no ha acabat.
+         */
+        public long getElapsedNanos() {
+            return future.isDone() ? endNanos - startNanos : -1;
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package edu.upc.epsevg.prop.oust;
+
+import java.io.PrintWriter;
+import java.io.Serializable;
+import java.util.Locale;
+
+/**
+ * Latència dels moviments per jugador (PLAYER1 / PLAYER2): durada de cada
+ * moviment, temps entre l'avís de {@link IPlayer#timeout()} i el retorn, i
+ * quants moviments s'apropen al límit.
+ *
+ * Un moviment és "al límit" si fa servir més del 90% del temps; "fora de
+ * temps" si passa del temps de gràcia (l'"Espera il·legal" de
+ * HeadlessGame).
+ */
+public class MoveLatencyStats implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /** Fracció del temps a partir de la qual un moviment compta com al límit. */
+    public static final double NEAR_MISS = 0.9;
+
+    private final PlayerLatency[] players = {new PlayerLatency(), new PlayerLatency()};
+
+    /**
+     * Registra un moviment acabat del jugador {@code player} (0 o 1).
+     *
+     * @param budgetNanos temps del moviment, sense el de gràcia
+     */
+    public synchronized void record(int player, MoveExecutor.MoveTask task, long budgetNanos) {
+        PlayerLatency p = players[player];
+        long elapsed = task.getElapsedNanos();
+        p.moves.record(elapsed);
+        if (elapsed > NEAR_MISS * budgetNanos) p.nearMisses++;
+        long toReturn = task.getTimeoutToReturnNanos();
+        if (toReturn >= 0) p.timeoutToReturn.record(toReturn);
+        if (task.isOverdue()) p.overdue++;
+    }
+
+    public synchronized void merge(MoveLatencyStats o) {
+        for (int i = 0; i < 2; i++) players[i].merge(o.players[i]);
+    }
+
+    /**
+     * Còpia de les dades del jugador {@code player} (0 o 1).
+     */
+    public synchronized PlayerLatency get(int player) {
+        PlayerLatency c = new PlayerLatency();
+        c.merge(players[player]);
+        return c;
+    }
+
+    /**
+     * Línies de resum per a l'informe del GameResult.
+     */
+    public synchronized String format(String name1, String name2) {
+        String res = "";
+        String[] names = {name1, name2};
+        for (int i = 0; i < 2; i++) {
+            if (players[i].moves.getCount() == 0) continue;
+            res += "LAT " + (i + 1) + " (" + GameResult.pad(names[i], 40) + "):\t " + players[i] + "\n";
+        }
+        return res;
+    }
+
+    /**
+     * Latències d'un jugador.
+     */
+    public static class PlayerLatency implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        public final LatencyHistogram moves = new LatencyHistogram();
+        public final LatencyHistogram timeoutToReturn = new LatencyHistogram();
+        public long nearMisses;
+        public long overdue;
+
+        public void merge(PlayerLatency o) {
+            moves.merge(o.moves);
+            timeoutToReturn.merge(o.timeoutToReturn);
+            nearMisses += o.nearMisses;
+            overdue += o.overdue;
+        }
+
+        /**
+         * Capçalera de la taula de percentils de {@link #writeCsv}.
+         */
+        public static String cabeceraCsv() {
+            return "jugador,metrica,n,p50_ms,p99_ms,p99.9_ms,max_ms,mitjana_ms,al_limit,fora_de_temps";
+        }
+
+        /**
+         * Dues files de la taula de percentils: durada del moviment i
+         * temps de timeout() a retorn.
+         */
+        public void writeCsv(PrintWriter out, String name) {
+            row(out, name, "moviment", moves);
+            out.printf(Locale.ROOT, ",%d,%d%n", nearMisses, overdue);
+            row(out, name, "timeout_retorn", timeoutToReturn);
+            out.println(",,");
+        }
+
+        private static void row(PrintWriter out, String name, String metric, LatencyHistogram h) {
+            out.printf(Locale.ROOT, "%s,%s,%d,%.3f,%.3f,%.3f,%.3f,%.3f", name.replace(',', ' '), metric, h.getCount(),
+                    h.percentile(50) / 1e6, h.percentile(99) / 1e6, h.percentile(99.9) / 1e6,
+                    h.getMax() / 1e6, h.getMean() / 1e6);
+        }
+
+        @Override
+        public String toString() {
+            String res = String.format("moviment p50 %.1f ms, p99 %.1f ms, p99.9 %.1f ms, màx %.1f ms\t al límit %d/%d\t fora de temps %d",
+                    moves.percentile(50) / 1e6, moves.percentile(99) / 1e6, moves.percentile(99.9) / 1e6,
+                    moves.getMax() / 1e6, nearMisses, moves.getCount(), overdue);
+            if (timeoutToReturn.getCount() > 0) {
+                res += String.format("\t timeout→retorn (%d) p50 %.2f ms, p99.9 %.2f ms, màx %.2f ms",
+                        timeoutToReturn.getCount(), timeoutToReturn.percentile(50) / 1e6,
+                        timeoutToReturn.percentile(99.9) / 1e6, timeoutToReturn.getMax() / 1e6);
+            }
+            return res;
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package edu.upc.epsevg.prop.oust;
+
+import java.util.Arrays;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mesura el cost de planificar un moviment i la precisió de l'avís de
+ * timeout, comparant l'esquema antic (dos fils nous i un semàfor per
+ * moviment) amb el MoveExecutor compartit.
+ *
+ * Ús: MoveTimingBenchmark [moviments] [timeout ms]
+ */
+public class MoveTimingBenchmark {
+
+    public static void main(String[] args) throws InterruptedException {
+        int moves = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+        long timeoutMs = args.length > 1 ? Long.parseLong(args[1]) : 20;
+        GameStatus s = new GameStatus(4);
+
+        // 1) Cost per moviment amb un jugador que respon a l'instant
+        for (int round = 0; round < 2; round++) {
+            long t0 = System.nanoTime();
+            for (int i = 0; i < moves; i++) legacy(new InstantPlayer(), s, 1000);
+            double legacyUs = (System.nanoTime() - t0) / 1e3 / moves;
+            t0 = System.nanoTime();
+            for (int i = 0; i < moves; i++) {
+                MoveExecutor.MoveTask t = MoveExecutor.shared().start(new InstantPlayer(), s, 1000, HeadlessGame.WAIT_EXTRA_TIME);
+                t.join();
+            }
+            double execUs = (System.nanoTime() - t0) / 1e3 / moves;
+            if (round == 1) {
+                System.out.printf("Cost per moviment:   antic %8.1f us   executor %8.1f us%n", legacyUs, execUs);
+            }
+        }
+
+        // 2) Precisió del timeout amb un jugador que espera l'avís
+        int n = Math.max(10, moves / 20);
+        long[] lateLegacy = new long[n];
+        long[] lateExec = new long[n];
+        for (int i = 0; i < n; i++) {
+            WaitingPlayer p = new WaitingPlayer();
+            long deadline = legacy(p, s, timeoutMs);
+            lateLegacy[i] = p.signalled - deadline;
+        }
+        for (int i = 0; i < n; i++) {
+            WaitingPlayer p = new WaitingPlayer();
+            MoveExecutor.MoveTask t = MoveExecutor.shared().start(p, s, timeoutMs, HeadlessGame.WAIT_EXTRA_TIME);
+            t.join();
+            lateExec[i] = t.getTimeoutLatenessNanos();
+        }
+        System.out.println("Retard de timeout() respecte a l'hora límit (" + n + " moviments de " + timeoutMs + " ms):");
+        print("antic", lateLegacy);
+        print("executor", lateExec);
+    }
+
+    private static void print(String name, long[] v) {
+        long[] c = v.clone();
+        Arrays.sort(c);
+        System.out.printf("  %-9s p50 %8.1f us   p99 %8.1f us   max %8.1f us%n", name,
+                c[c.length / 2] / 1e3, c[(int) (c.length * 0.99)] / 1e3, c[c.length - 1] / 1e3);
+    }
+
+    /**
+     * Rèplica del bucle antic de HeadlessGame.play per a un moviment.
+     *
+     * @return l'hora límit teòrica (nanoTime)
+     */
+    private static long legacy(IPlayer player, GameStatus s, long timeoutMs) throws InterruptedException {
+        final Semaphore semaphore = new Semaphore(1);
+        semaphore.tryAcquire();
+        final boolean[] ok = new boolean[1];
+        long start = System.nanoTime();
+        Thread t1 = new Thread(() -> {
+            player.move(new GameStatus(s));
+            ok[0] = true;
+            semaphore.release();
+        });
+        Thread t2 = new Thread(() -> {
+            try {
+                Thread.sleep(timeoutMs);
+            } catch (InterruptedException ex) {
+            }
+            if (!ok[0]) {
+                player.timeout();
+            }
+        });
+        t1.start();
+        t2.start();
+        if (!semaphore.tryAcquire(1, timeoutMs + HeadlessGame.WAIT_EXTRA_TIME, TimeUnit.MILLISECONDS)) {
+            semaphore.acquire();
+        }
+        return start + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+    }
+
+    private static class InstantPlayer implements IPlayer, IAuto {
+
+        @Override
+        public PlayerMove move(GameStatus s) {
+            return new PlayerMove(null, 0, 0, SearchType.RANDOM);
+        }
+
+        @Override
+        public void timeout() {
+        }
+
+        @Override
+        public String getName() {
+            return "Instant";
+        }
+    }
+
+    private static class WaitingPlayer implements IPlayer, IAuto {
+
+        volatile long signalled;
+        volatile boolean stop;
+
+        @Override
+        public PlayerMove move(GameStatus s) {
+            while (!stop) {
+                Thread.onSpinWait();
+            }
+            return new PlayerMove(null, 0, 0, SearchType.RANDOM);
+        }
+
+        @Override
+        public void timeout() {
+            signalled = System.nanoTime();
+            stop = true;
+        }
+
+        @Override
+        public String getName() {
+            return "Waiting";
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package edu.upc.epsevg.prop.oust;
+
+import edu.upc.epsevg.prop.oust.players.EstadisticasBusqueda;
+import edu.upc.epsevg.prop.oust.players.JugadaAnalizada;
+import edu.upc.epsevg.prop.oust.players.LimiteBusqueda;
+import edu.upc.epsevg.prop.oust.players.PropPlayer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Cost del multi-PV de {@link PropPlayer#analizar(GameStatus, int, LimiteBusqueda)}
+ * respecte d'una cerca d'una sola variació (move()) a la mateixa
+ * profunditat, sobre posicions de mitja partida. Cada cerca es fa amb un
+ * jugador nou, perquè la taula de transposició no afavoreixi cap mode.
+ *
+ * També comprova que el millor valor del multi-PV coincideixi amb el de
+ * move().
+ *
+ * Ús: MultiPvBenchmark [posicions] [mida] [profunditat] [k separats per comes; 0 = totes]
+ */
+public class MultiPvBenchmark {
+
+    public static void main(String[] args) {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 50;
+        int size = args.length > 1 ? Integer.parseInt(args[1]) : 6;
+        int depth = args.length > 2 ? Integer.parseInt(args[2]) : 4;
+        String[] ks = (args.length > 3 ? args[3] : "1,3,5,0").split(",");
+
+        List<GameStatus> positions = FixturePositions.generate(size, count, 42);
+        // Escalfament del JIT
+        for (GameStatus s : positions.subList(0, Math.min(10, count))) {
+            new PropPlayer("escalfament", depth).analizar(new GameStatus(s), 3, LimiteBusqueda.NINGUNO);
+            new PropPlayer("escalfament", depth).move(new GameStatus(s));
+        }
+
+        long[] single = run(positions, depth, -1, null);
+        System.out.printf("%d posicions, mida %d, profunditat %d%n", count, size, depth);
+        System.out.printf("%-10s %12s %10s %9s %9s%n", "mode", "nodes", "ms", "x nodes", "x temps");
+        System.out.printf("%-10s %12d %10.1f %9s %9s%n", "move()", single[0], single[1] / 1e6, "1.00", "1.00");
+        for (String k : ks) {
+            int kk = Integer.parseInt(k);
+            List<Integer> mismatches = new ArrayList<>();
+            long[] r = run(positions, depth, kk <= 0 ? Integer.MAX_VALUE : kk, mismatches);
+            System.out.printf("%-10s %12d %10.1f %9.2f %9.2f%s%n", kk <= 0 ? "k=totes" : "k=" + kk, r[0], r[1] / 1e6,
+                    (double) r[0] / single[0], (double) r[1] / single[1],
+                    mismatches.isEmpty() ? "" : "   valors diferents de move(): " + mismatches);
+        }
+    }
+
+    /**
+     * Nodes i nanosegons totals; amb k &lt; 0 fa move().
+     */
+    private static long[] run(List<GameStatus> positions, int depth, int k, List<Integer> mismatches) {
+        long nodes = 0;
+        long nanos = 0;
+        for (int i = 0; i < positions.size(); i++) {
+            GameStatus s = positions.get(i);
+            PropPlayer p = new PropPlayer("multipv", depth);
+            p.setTelemetria(false);
+            long t0 = System.nanoTime();
+            List<JugadaAnalizada> res = null;
+            if (k < 0) {
+                p.move(new GameStatus(s));
+            } else {
+                res = p.analizar(new GameStatus(s), k, LimiteBusqueda.NINGUNO);
+            }
+            nanos += System.nanoTime() - t0;
+            EstadisticasBusqueda st = p.getEstadisticas();
+            nodes += st.nodos + st.nodosQuiescencia;
+            if (res != null) {
+                PropPlayer ref = new PropPlayer("ref", depth);
+                ref.setTelemetria(false);
+                if (ref.move(new GameStatus(s)).getH() != res.get(0).valor) mismatches.add(i);
+            }
+        }
+        return new long[]{nodes, nanos};
+    }
+}
@@ -4,10 +4,269 @@
  */
 package edu.upc.epsevg.prop.oust;
 
+import edu.upc.epsevg.prop.oust.players.Geometria;
+import java.awt.Point;
+import java.util.Arrays;
+
 /**
+ * Estat de joc compacte: el tauler és un byte per casella amb l'índex de
+ * {@link Geometria}, i les jugades es generen etiquetant els grups un sol
+ * cop en lloc de fer un flood fill per cada casella buida.
+ *
+ * Ha de generar exactament les mateixes jugades que GameStatus; ho
+ * comprova {@link Perft}.
  *
  * @author Usuari
  */
 public class MyStatus {
-    
+
+    private static final ThreadLocal<Scratch> SCRATCH = ThreadLocal.withInitial(Scratch::new);
+
+    private final Geometria geo;
+    /** 0 buida, 1 PLAYER1, 2 PLAYER2 */
+    private final byte[] board;
+    private final int[] stones = new int[3];
+    /** 1 o 2 */
+    private int current = 1;
+    /** 0 si la partida no s'ha acabat */
+    private int winner;
+
+    public MyStatus(int size) {
+        geo = Geometria.de(size);
+        board = new byte[geo.cells];
+    }
+
+    public MyStatus(MyStatus s) {
+        geo = s.geo;
+        board = s.board.clone();
+        System.arraycopy(s.stones, 0, stones, 0, 3);
+        current = s.current;
+        winner = s.winner;
+    }
+
+    public MyStatus(GameStatus s) {
+        this(s.getSize());
+        for (int k = 0; k < geo.cells; k++) {
+            PlayerType c = s.getColor(geo.puntos[k]);
+            board[k] = (byte) (c == null ? 0 : PlayerType.to_01(c) + 1);
+            stones[board[k]]++;
+        }
+        current = PlayerType.to_01(s.getCurrentPlayer()) + 1;
+        PlayerType w = s.GetWinner();
+        winner = w == null ? 0 : PlayerType.to_01(w) + 1;
+    }
+
+    public int getSize() {
+        return geo.size;
+    }
+
+    public Geometria getGeometria() {
+        return geo;
+    }
+
+    /**
+     * Color de la casella k: 0 buida, 1 PLAYER1, 2 PLAYER2.
+     */
+    public int getColor(int k) {
+        return board[k];
+    }
+
+    public PlayerType getColor(Point p) {
+        return player(board[geo.index(p)]);
+    }
+
+    public PlayerType getCurrentPlayer() {
+        return player(current);
+    }
+
+    public boolean isGameOver() {
+        return winner != 0;
+    }
+
+    public PlayerType GetWinner() {
+        return player(winner);
+    }
+
+    private static PlayerType player(int c) {
+        return c == 0 ? null : (c == 1 ? PlayerType.PLAYER1 : PlayerType.PLAYER2);
+    }
+
+    /**
+     * Caselles on pot jugar el jugador actual, en ordre d'índex.
+     */
+    public int[] getMoves() {
+        if (winner != 0) return new int[0];
+        Scratch sc = label();
+        int[] res = new int[geo.cells];
+        int n = 0;
+        for (int k = 0; k < geo.cells; k++) {
+            if (board[k] == 0 && legal(sc, k, current)) res[n++] = k;
+        }
+        return Arrays.copyOf(res, n);
+    }
+
+    /**
+     * Col·loca una pedra del jugador actual a la casella k. Si captura,
+     * continua movent el mateix jugador; si no, passa el torn. Com
+     * GameStatus, no passa automàticament si el següent no pot jugar.
+     */
+    public void placeStone(int k) {
+        if (winner != 0 || board[k] != 0) throw new RuntimeException("Moviment il·legal");
+        Scratch sc = label();
+        if (!legal(sc, k, current)) throw new RuntimeException("Moviment il·legal");
+        int me = current;
+        int other = 3 - me;
+        boolean capture = false;
+        for (int v : geo.vecinos1[k]) {
+            if (board[v] == me) {
+                capture = true;
+                break;
+            }
+        }
+        if (capture) {
+            // Grups rivals en contacte amb el nou grup: els tocats per k o pels grups propis que s'uneixen
+            sc.stamp++;
+            for (int v : geo.vecinos1[k]) {
+                int g = sc.group[v];
+                if (board[v] == other) sc.groupMark[g] = sc.stamp;
+                else if (board[v] == me) sc.ownMark[g] = sc.stamp;
+            }
+            for (int c = 0; c < geo.cells; c++) {
+                if (board[c] == me && sc.ownMark[sc.group[c]] == sc.stamp) {
+                    for (int v : geo.vecinos1[c]) {
+                        if (board[v] == other) sc.groupMark[sc.group[v]] = sc.stamp;
+                    }
+                }
+            }
+            for (int c = 0; c < geo.cells; c++) {
+                if (board[c] == other && sc.groupMark[sc.group[c]] == sc.stamp) {
+                    board[c] = 0;
+                    stones[other]--;
+                }
+            }
+        }
+        board[k] = (byte) me;
+        stones[me]++;
+        if (capture && stones[other] == 0) {
+            winner = me;
+            return;
+        }
+        if (!capture) current = other;
+    }
+
+    public void placeStone(Point p) {
+        placeStone(geo.index(p));
+    }
+
+    /**
+     * Una casella buida és legal si no toca cap pedra pròpia, o si el grup
+     * que forma toca algun grup rival i tots són més petits.
+     */
+    private boolean legal(Scratch sc, int k, int me) {
+        int[] vs = geo.vecinos1[k];
+        int size = 1;
+        int maxEnemy = 0;
+        boolean own = false;
+        for (int i = 0; i < vs.length; i++) {
+            int v = vs[i];
+            int c = board[v];
+            if (c == 0) continue;
+            int g = sc.group[v];
+            if (c == me) {
+                own = true;
+                boolean seen = false;
+                for (int j = 0; j < i; j++) {
+                    if (board[vs[j]] == me && sc.group[vs[j]] == g) {
+                        seen = true;
+                        break;
+                    }
+                }
+                if (!seen) size += sc.size[g];
+                maxEnemy = Math.max(maxEnemy, sc.maxEnemy[g]);
+            } else {
+                maxEnemy = Math.max(maxEnemy, sc.size[g]);
+            }
+        }
+        return !own || (maxEnemy > 0 && maxEnemy < size);
+    }
+
+    /**
+     * Etiqueta els grups: id, mida i mida del grup rival més gran que toquen.
+     */
+    private Scratch label() {
+        Scratch sc = SCRATCH.get();
+        sc.ensure(geo.cells);
+        int[] group = sc.group;
+        int[] stack = sc.stack;
+        int groups = 0;
+        Arrays.fill(group, 0, geo.cells, -1);
+        for (int k = 0; k < geo.cells; k++) {
+            int c = board[k];
+            if (c == 0 || group[k] >= 0) continue;
+            int g = groups++;
+            int n = 0;
+            int top = 0;
+            stack[top++] = k;
+            group[k] = g;
+            while (top > 0) {
+                int x = stack[--top];
+                n++;
+                for (int v : geo.vecinos1[x]) {
+                    if (board[v] == c && group[v] < 0) {
+                        group[v] = g;
+                        stack[top++] = v;
+                    }
+                }
+            }
+            sc.size[g] = n;
+            sc.maxEnemy[g] = 0;
+        }
+        for (int k = 0; k < geo.cells; k++) {
+            int c = board[k];
+            if (c == 0) continue;
+            int g = group[k];
+            for (int v : geo.vecinos1[k]) {
+                if (board[v] != 0 && board[v] != c) {
+                    sc.maxEnemy[g] = Math.max(sc.maxEnemy[g], sc.size[group[v]]);
+                }
+            }
+        }
+        return sc;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (!(o instanceof MyStatus)) return false;
+        MyStatus s = (MyStatus) o;
+        return geo == s.geo && current == s.current && winner == s.winner && Arrays.equals(board, s.board);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(board) * 31 + current;
+    }
+
+    /**
+     * Arrays de treball per fil, per no reservar-ne a cada jugada.
+     */
+    private static class Scratch {
+
+        int[] group = new int[0];
+        int[] size;
+        int[] maxEnemy;
+        int[] stack;
+        int[] groupMark;
+        int[] ownMark;
+        int stamp;
+
+        void ensure(int cells) {
+            if (group.length >= cells) return;
+            group = new int[cells];
+            size = new int[cells];
+            maxEnemy = new int[cells];
+            stack = new int[cells];
+            groupMark = new int[cells];
+            ownMark = new int[cells];
+        }
+    }
 }
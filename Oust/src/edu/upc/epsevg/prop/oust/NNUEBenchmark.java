@@ -0,0 +1,104 @@
+package edu.upc.epsevg.prop.oust;
+
+import edu.upc.epsevg.prop.oust.players.Acumulador;
+import edu.upc.epsevg.prop.oust.players.Heuristica;
+import edu.upc.epsevg.prop.oust.players.PropPlayer;
+import edu.upc.epsevg.prop.oust.players.RedNeuronal;
+import java.awt.Point;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Compara l'avaluador NNUE amb la Heuristica: avaluacions per segon
+ * (completa i incremental) i força en partides HeadlessGame.
+ *
+ * Ús: NNUEBenchmark [pesos.nnue] [mida] [partides] [profunditat]
+ */
+public class NNUEBenchmark {
+
+    private static final long MEASURE_NANOS = 2_000_000_000L;
+
+    public static void main(String[] args) throws IOException {
+        int size = args.length > 1 ? Integer.parseInt(args[1]) : 7;
+        int games = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+        int depth = args.length > 3 ? Integer.parseInt(args[3]) : 2;
+        RedNeuronal red = args.length > 0 && !args[0].equals("-")
+                ? RedNeuronal.cargar(new File(args[0]))
+                : RedNeuronal.material(size);
+
+        List<GameStatus> positions = FixturePositions.generate(size, 1000, 42);
+        List<List<Point>> turns = new ArrayList<>();
+        Random rand = new Random(7);
+        for (GameStatus s : positions) {
+            turns.add(playTurn(s, rand));
+        }
+
+        System.out.println("Posicions: " + positions.size() + "  mida: " + size + "  neurones: " + red.hidden);
+        report("Heuristica.eval", measure(() -> {
+            long sum = 0;
+            for (GameStatus s : positions) {
+                sum += Heuristica.eval(s, s.getCurrentPlayer());
+            }
+            return sum;
+        }, positions.size()));
+        report("NNUE (recàlcul)", measure(() -> {
+            long sum = 0;
+            for (GameStatus s : positions) {
+                sum += red.evaluar(s, s.getCurrentPlayer());
+            }
+            return sum;
+        }, positions.size()));
+
+        Acumulador[] parents = new Acumulador[positions.size()];
+        for (int i = 0; i < parents.length; i++) {
+            parents[i] = red.nuevoAcumulador();
+            parents[i].refrescar(positions.get(i));
+        }
+        Acumulador acc = red.nuevoAcumulador();
+        report("NNUE (incremental)", measure(() -> {
+            long sum = 0;
+            for (int i = 0; i < parents.length; i++) {
+                PlayerType p = positions.get(i).getCurrentPlayer();
+                acc.copiarDe(parents[i]);
+                acc.colocar(turns.get(i), p);
+                sum += red.evaluar(acc, p);
+            }
+            return sum;
+        }, positions.size()));
+
+        if (games > 0) {
+            IPlayer nnue = new PropPlayer("NNUE", depth, red);
+            IPlayer heur = new PropPlayer("Heuristica", depth);
+            System.out.println(new HeadlessGame(nnue, heur, size, 3, games).start());
+            System.out.println(new HeadlessGame(heur, nnue, size, 3, games).start());
+        }
+    }
+
+    private static double measure(Microbench.Batch b, int evalsPerBatch) {
+        return evalsPerBatch * 1e9 / Microbench.nanosPerRun(b, MEASURE_NANOS);
+    }
+
+    private static void report(String name, double evalsPerSecond) {
+        System.out.printf("%-22s %,14.0f aval/s%n", name, evalsPerSecond);
+    }
+
+    /**
+     * Pedres d'un torn complet aleatori (amb les captures que toquin).
+     */
+    private static List<Point> playTurn(GameStatus s, Random rand) {
+        GameStatus c = new GameStatus(s);
+        PlayerType p = c.getCurrentPlayer();
+        List<Point> path = new ArrayList<>();
+        do {
+            List<Point> moves = c.getMoves();
+            if (moves.isEmpty()) break;
+            Point m = moves.get(rand.nextInt(moves.size()));
+            path.add(m);
+            c.placeStone(m);
+        } while (!c.isGameOver() && c.getCurrentPlayer() == p);
+        return path;
+    }
+}
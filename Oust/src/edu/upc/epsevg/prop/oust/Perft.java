@@ -0,0 +1,281 @@
+package edu.upc.epsevg.prop.oust;
+
+import edu.upc.epsevg.prop.oust.players.Geometria;
+import java.awt.Point;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Perft: compta les fulles de l'arbre de jugades fins a una profunditat, per
+ * comprovar que dues implementacions de l'estat generen exactament les
+ * mateixes jugades i per mesurar-ne la velocitat.
+ *
+ * Hi ha dos modes: {@code plies} compta col·locacions (una captura és un
+ * nivell més) i {@code turns} compta torns complets (una seqüència de
+ * captures acabada en una col·locació sense captura). Les posicions
+ * acabades o sense jugades no compten com a fulla abans d'arribar a la
+ * profunditat.
+ *
+ * <pre>
+ *   Perft [mida] [profunditat] [plies|turns] [posicions] [fils] [divide]
+ * </pre>
+ * Compara GameStatus (OustLib) i MyStatus a la posició inicial i a les de
+ * {@link FixturePositions}; amb {@code divide} mostra el recompte de cada
+ * jugada de l'arrel.
+ */
+public class Perft {
+
+    /**
+     * Operacions que necessita el perft d'una implementació de l'estat. Les
+     * jugades són índexs compactes de {@link Geometria}, en ordre creixent.
+     */
+    public interface Impl<S> {
+
+        String name();
+
+        S from(GameStatus s);
+
+        S copy(S s);
+
+        int[] moves(S s);
+
+        void place(S s, int cell);
+
+        PlayerType player(S s);
+
+        boolean isGameOver(S s);
+    }
+
+    public static final Impl<GameStatus> GAME_STATUS = new Impl<GameStatus>() {
+        @Override
+        public String name() {
+            return "GameStatus";
+        }
+
+        @Override
+        public GameStatus from(GameStatus s) {
+            return new GameStatus(s);
+        }
+
+        @Override
+        public GameStatus copy(GameStatus s) {
+            return new GameStatus(s);
+        }
+
+        @Override
+        public int[] moves(GameStatus s) {
+            Geometria geo = Geometria.de(s.getSize());
+            List<Point> ps = s.getMoves();
+            int[] res = new int[ps.size()];
+            for (int i = 0; i < res.length; i++) res[i] = geo.index(ps.get(i));
+            Arrays.sort(res);
+            return res;
+        }
+
+        @Override
+        public void place(GameStatus s, int cell) {
+            s.placeStone(Geometria.de(s.getSize()).puntos[cell]);
+        }
+
+        @Override
+        public PlayerType player(GameStatus s) {
+            return s.getCurrentPlayer();
+        }
+
+        @Override
+        public boolean isGameOver(GameStatus s) {
+            return s.isGameOver();
+        }
+    };
+
+    public static final Impl<MyStatus> MY_STATUS = new Impl<MyStatus>() {
+        @Override
+        public String name() {
+            return "MyStatus";
+        }
+
+        @Override
+        public MyStatus from(GameStatus s) {
+            return new MyStatus(s);
+        }
+
+        @Override
+        public MyStatus copy(MyStatus s) {
+            return new MyStatus(s);
+        }
+
+        @Override
+        public int[] moves(MyStatus s) {
+            return s.getMoves();
+        }
+
+        @Override
+        public void place(MyStatus s, int cell) {
+            s.placeStone(cell);
+        }
+
+        @Override
+        public PlayerType player(MyStatus s) {
+            return s.getCurrentPlayer();
+        }
+
+        @Override
+        public boolean isGameOver(MyStatus s) {
+            return s.isGameOver();
+        }
+    };
+
+    /**
+     * Fulles a {@code depth} col·locacions.
+     */
+    public static <S> long plies(Impl<S> impl, S s, int depth) {
+        if (depth == 0) return 1;
+        if (impl.isGameOver(s)) return 0;
+        int[] moves = impl.moves(s);
+        if (depth == 1) return moves.length;
+        long n = 0;
+        for (int m : moves) {
+            S c = impl.copy(s);
+            impl.place(c, m);
+            n += plies(impl, c, depth - 1);
+        }
+        return n;
+    }
+
+    /**
+     * Fulles a {@code depth} torns complets.
+     */
+    public static <S> long turns(Impl<S> impl, S s, int depth) {
+        if (depth == 0) return 1;
+        if (impl.isGameOver(s)) return 0;
+        PlayerType p = impl.player(s);
+        long n = 0;
+        for (int m : impl.moves(s)) {
+            n += afterPlacement(impl, s, m, p, depth);
+        }
+        return n;
+    }
+
+    private static <S> long afterPlacement(Impl<S> impl, S s, int m, PlayerType p, int depth) {
+        S c = impl.copy(s);
+        impl.place(c, m);
+        if (impl.isGameOver(c) || impl.player(c) != p) {
+            return turns(impl, c, depth - 1);
+        }
+        // Ha capturat: el torn continua
+        long n = 0;
+        for (int m2 : impl.moves(c)) {
+            n += afterPlacement(impl, c, m2, p, depth);
+        }
+        return n;
+    }
+
+    /**
+     * Recompte per jugada de l'arrel, amb una tasca per jugada.
+     *
+     * @return {jugades de l'arrel, fulles de cadascuna}
+     */
+    public static <S> long[][] divide(Impl<S> impl, GameStatus start, int depth, boolean turns, ExecutorService pool) {
+        S root = impl.from(start);
+        int[] moves = impl.isGameOver(root) ? new int[0] : impl.moves(root);
+        PlayerType p = impl.player(root);
+        List<Future<Long>> fs = new ArrayList<>();
+        for (int m : moves) {
+            Callable<Long> task = () -> {
+                if (turns) return afterPlacement(impl, root, m, p, depth);
+                S c = impl.copy(root);
+                impl.place(c, m);
+                return plies(impl, c, depth - 1);
+            };
+            fs.add(pool.submit(task));
+        }
+        long[] counts = new long[moves.length];
+        try {
+            for (int i = 0; i < counts.length; i++) counts[i] = fs.get(i).get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Perft interromput", ex);
+        } catch (ExecutionException ex) {
+            throw new RuntimeException("Error al perft de " + impl.name(), ex.getCause());
+        }
+        long[] ms = new long[moves.length];
+        for (int i = 0; i < ms.length; i++) ms[i] = moves[i];
+        return new long[][]{ms, counts};
+    }
+
+    public static void main(String[] args) {
+        int size = args.length > 0 ? Integer.parseInt(args[0]) : 4;
+        int depth = args.length > 1 ? Integer.parseInt(args[1]) : 3;
+        boolean turns = args.length > 2 && args[2].equals("turns");
+        int count = args.length > 3 ? Integer.parseInt(args[3]) : 10;
+        int threads = args.length > 4 ? Integer.parseInt(args[4]) : Runtime.getRuntime().availableProcessors();
+        boolean divide = args.length > 5 && args[5].equals("divide");
+
+        List<GameStatus> positions = new ArrayList<>();
+        positions.add(new GameStatus(size));
+        positions.addAll(FixturePositions.generate(size, count, 42));
+        Geometria geo = Geometria.de(size);
+        List<Impl<?>> impls = new ArrayList<>();
+        impls.add(GAME_STATUS);
+        impls.add(MY_STATUS);
+
+        System.out.println(String.format("Perft mida %d, profunditat %d %s, %d posicions, %d fils",
+                size, depth, turns ? "torns" : "col·locacions", positions.size(), threads));
+        ExecutorService pool = Tournament.newPool(threads);
+        long[][][] results = new long[impls.size()][][];
+        long[] totals = new long[impls.size()];
+        long[] nanos = new long[impls.size()];
+        int mismatches = 0;
+        try {
+            for (int p = 0; p < positions.size(); p++) {
+                for (int i = 0; i < impls.size(); i++) {
+                    long t0 = System.nanoTime();
+                    results[i] = divide(impls.get(i), positions.get(p), depth, turns, pool);
+                    nanos[i] += System.nanoTime() - t0;
+                    for (long c : results[i][1]) totals[i] += c;
+                }
+                mismatches += compare(p, results, impls, geo, divide && p == 0);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        for (int i = 0; i < impls.size(); i++) {
+            System.out.println(String.format("%-12s %,16d fulles en %8.2f s: %,.0f fulles/s",
+                    impls.get(i).name(), totals[i], nanos[i] / 1e9, totals[i] * 1e9 / nanos[i]));
+        }
+        System.out.println(mismatches == 0 ? "Les implementacions coincideixen"
+                : mismatches + " posicions amb recomptes diferents");
+    }
+
+    private static int compare(int position, long[][][] r, List<Impl<?>> impls, Geometria geo, boolean print) {
+        long[][] a = r[0];
+        long[][] b = r[1];
+        boolean same = Arrays.equals(a[0], b[0]) && Arrays.equals(a[1], b[1]);
+        if (!print && same) return 0;
+        if (!same) {
+            System.out.println("Posició " + position + ": " + impls.get(0).name() + " i " + impls.get(1).name() + " no coincideixen");
+        }
+        // Divide: unió de les jugades de l'arrel de totes dues
+        TreeMap<Long, long[]> rows = new TreeMap<>();
+        for (int k = 0; k < 2; k++) {
+            long[][] x = r[k];
+            for (int i = 0; i < x[0].length; i++) {
+                rows.computeIfAbsent(x[0][i], m -> new long[]{-1, -1})[k] = x[1][i];
+            }
+        }
+        for (Map.Entry<Long, long[]> e : rows.entrySet()) {
+            long[] c = e.getValue();
+            if (!print && c[0] == c[1]) continue;
+            Point pt = geo.puntos[e.getKey().intValue()];
+            System.out.println(String.format("  (%d,%d): %d %d%s", pt.x, pt.y, c[0], c[1], c[0] == c[1] ? "" : "  <--"));
+        }
+        return same ? 0 : 1;
+    }
+}
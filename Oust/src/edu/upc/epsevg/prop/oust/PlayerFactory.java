@@ -0,0 +1,14 @@
+package edu.upc.epsevg.prop.oust;
+
+/**
+ * Crea instàncies noves d'un jugador. Cada partida d'un torneig en demana
+ * de noves, perquè els jugadors poden guardar estat de cerca mutable.
+ */
+@FunctionalInterface
+public interface PlayerFactory {
+
+    /**
+     * @return un jugador nou, sense estat compartit amb els anteriors
+     */
+    IPlayer create();
+}
@@ -0,0 +1,90 @@
+package edu.upc.epsevg.prop.oust;
+
+import edu.upc.epsevg.prop.oust.players.GestorTiempo;
+import edu.upc.epsevg.prop.oust.players.PropPlayer;
+import edu.upc.epsevg.prop.oust.players.RandomPlayer;
+
+/**
+ * Jugadors descrits amb un text sense espais, per poder-los crear en una
+ * altra JVM:
+ * <ul>
+ * <li>{@code prop:nom:profunditat}: PropPlayer;</li>
+ * <li>{@code prop:nom:profunditat:opció:...}: PropPlayer amb opcions:
+ * {@code gestor} (GestorTiempo), {@code nodes=N} (límit de nodes per
+ * moviment) i {@code llavor=S} (desempat de l'ordenació);</li>
+ * <li>{@code random:nom}: RandomPlayer;</li>
+ * <li>el nom complet d'una classe amb constructor sense arguments que
+ * implementi IPlayer o PlayerFactory.</li>
+ * </ul>
+ */
+public final class PlayerSpec {
+
+    private PlayerSpec() {
+    }
+
+    /**
+     * @param timeoutMillis temps per moviment, per al GestorTiempo
+     */
+    public static PlayerFactory parse(String spec, long timeoutMillis) {
+        if (spec.isEmpty() || spec.chars().anyMatch(Character::isWhitespace)) {
+            throw new IllegalArgumentException("Jugador buit o amb espais: '" + spec + "'");
+        }
+        String[] f = spec.split(":");
+        switch (f[0]) {
+            case "prop":
+                return prop(spec, f, timeoutMillis);
+            case "random":
+                if (f.length != 2) throw new IllegalArgumentException("Cal random:nom: " + spec);
+                return () -> new RandomPlayer(f[1]);
+            default:
+                return byClass(spec);
+        }
+    }
+
+    private static PlayerFactory prop(String spec, String[] f, long timeoutMillis) {
+        if (f.length < 3) throw new IllegalArgumentException("Cal prop:nom:profunditat[:opció...]: " + spec);
+        int depth = Integer.parseInt(f[2]);
+        boolean gestor = false;
+        long nodes = 0;
+        long seed = 0;
+        for (int i = 3; i < f.length; i++) {
+            if (f[i].equals("gestor")) {
+                gestor = true;
+            } else if (f[i].startsWith("nodes=")) {
+                nodes = Long.parseLong(f[i].substring("nodes=".length()));
+            } else if (f[i].startsWith("llavor=")) {
+                seed = Long.parseLong(f[i].substring("llavor=".length()));
+            } else {
+                throw new IllegalArgumentException("Opció desconeguda " + f[i] + ": " + spec);
+            }
+        }
+        boolean g = gestor;
+        long n = nodes;
+        long s = seed;
+        return () -> {
+            PropPlayer p = new PropPlayer(f[1], depth).setLimiteNodos(n).setSemilla(s);
+            return g ? p.setGestorTiempo(new GestorTiempo(timeoutMillis)) : p;
+        };
+    }
+
+    private static PlayerFactory byClass(String name) {
+        Class<?> c;
+        try {
+            c = Class.forName(name);
+        } catch (ClassNotFoundException ex) {
+            throw new IllegalArgumentException("Jugador desconegut: " + name, ex);
+        }
+        if (!IPlayer.class.isAssignableFrom(c) && !PlayerFactory.class.isAssignableFrom(c)) {
+            throw new IllegalArgumentException(name + " no és ni IPlayer ni PlayerFactory");
+        }
+        return () -> {
+            Object o;
+            try {
+                o = c.getConstructor().newInstance();
+            } catch (ReflectiveOperationException ex) {
+                throw new IllegalStateException("No es pot crear " + name, ex);
+            }
+            return o instanceof PlayerFactory ? ((PlayerFactory) o).create() : (IPlayer) o;
+        };
+    }
+}
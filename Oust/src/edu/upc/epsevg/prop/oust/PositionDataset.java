@@ -0,0 +1,89 @@
+package edu.upc.epsevg.prop.oust;
+
+import edu.upc.epsevg.prop.oust.players.Zobrist;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Conjunt de posicions repartit en fitxers {@link PositionShard} segons el
+ * hash de Zobrist, sense posicions repetides.
+ *
+ * Al heap només hi ha els hashes ja escrits (per descartar repetides); les
+ * posicions van directament a les finestres mapejades. Cada fitxer té el
+ * seu bloqueig, de manera que moltes partides hi poden escriure alhora.
+ */
+public class PositionDataset implements Closeable {
+
+    private final PositionShard[] shards;
+    private final LongHashSet[] seen;
+    private final Zobrist zobrist;
+    private long duplicates;
+
+    /**
+     * Obre (o crea) {@code dir/positions-NN.bin}. Si ja hi ha posicions, les
+     * noves s'hi afegeixen i es descarten les que ja hi són.
+     */
+    public PositionDataset(File dir, int size, int shardCount) throws IOException {
+        dir.mkdirs();
+        zobrist = Zobrist.de(size);
+        shards = new PositionShard[shardCount];
+        seen = new LongHashSet[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            shards[i] = PositionShard.append(shardFile(dir, i), size);
+            seen[i] = new LongHashSet((int) Math.max(1024, shards[i].count()));
+            for (long j = 0; j < shards[i].count(); j++) {
+                seen[i].add(shards[i].hash(j));
+            }
+        }
+    }
+
+    public static File shardFile(File dir, int i) {
+        return new File(dir, String.format("positions-%02d.bin", i));
+    }
+
+    /**
+     * Afegeix la posició si no s'havia vist.
+     *
+     * @param score score de la cerca per a qui mou (NaN si no n'hi ha)
+     * @param winner guanyador de la partida (null: empat)
+     * @return false si era repetida
+     */
+    public boolean add(GameStatus s, float score, int ply, PlayerType winner) throws IOException {
+        long h = zobrist.hash(s);
+        int i = (int) ((h >>> 1) % shards.length);
+        synchronized (shards[i]) {
+            if (!seen[i].add(h)) {
+                synchronized (this) {
+                    duplicates++;
+                }
+                return false;
+            }
+            shards[i].add(h, s, score, ply, winner);
+            return true;
+        }
+    }
+
+    public long getCount() {
+        long n = 0;
+        for (PositionShard s : shards) {
+            synchronized (s) {
+                n += s.count();
+            }
+        }
+        return n;
+    }
+
+    public synchronized long getDuplicates() {
+        return duplicates;
+    }
+
+    @Override
+    public void close() throws IOException {
+        for (PositionShard s : shards) {
+            synchronized (s) {
+                s.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,351 @@
+package edu.upc.epsevg.prop.oust;
+
+import edu.upc.epsevg.prop.oust.players.Geometria;
+import java.awt.Point;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Fitxer de posicions etiquetades amb registres d'amplada fixa, escrit i
+ * llegit a través de finestres mapejades a memòria.
+ *
+ * <pre>
+ *   capçalera (64 bytes): "OUSTPOS1"  mida:int  amplada:int  registres:long
+ *   registre: hash:long  score:float  torn:short  mou:byte  guanyador:byte
+ *             caselles: 2 bits per casella (0 buida, 1 PLAYER1, 2 PLAYER2)
+ * </pre>
+ * El score és el de la cerca, des del punt de vista de qui mou (NaN si el
+ * jugador no en dona); el guanyador és 0 (empat), 1 o 2.
+ *
+ * El comptador de la capçalera es desa en tancar i cada cop que l'escriptor
+ * passa a una finestra nova. Després d'una aturada brusca, en obrir el
+ * fitxer es compten també els registres escrits darrere: les finestres
+ * allarguen el fitxer amb zeros, així que el primer registre amb hash 0 en
+ * marca el final.
+ */
+public class PositionShard implements Closeable {
+
+    static final byte[] MAGIC = {'O', 'U', 'S', 'T', 'P', 'O', 'S', '1'};
+    static final int HEADER = 64;
+    private static final int WINDOW = 4 << 20;
+
+    /**
+     * Parts privades (ofuscades) de GameStatus per a
+     * {@link #status(int, byte[], PlayerType)}. Només es busquen la primera
+     * vegada que cal reconstruir una posició: qui només escriu o llegeix
+     * registres no en depèn.
+     */
+    private static final class Internals {
+
+        static final Method PLACE;
+        static final Method REFRESH;
+        static final Field GROUPS;
+        static final ReflectiveOperationException ERROR;
+
+        static {
+            Method place = null;
+            Method refresh = null;
+            Field groups = null;
+            ReflectiveOperationException error = null;
+            try {
+                // Col·loca una pedra sense canviar de torn
+                place = GameStatus.class.getDeclaredMethod("B", Point.class, PlayerType.class);
+                // Recalcula quins colors toquen una casella buida
+                refresh = GameStatus.class.getDeclaredMethod("D", Point.class);
+                groups = GameStatus.class.getDeclaredField("C");
+                place.setAccessible(true);
+                refresh.setAccessible(true);
+                groups.setAccessible(true);
+            } catch (ReflectiveOperationException ex) {
+                error = ex;
+            }
+            PLACE = place;
+            REFRESH = refresh;
+            GROUPS = groups;
+            ERROR = error;
+        }
+
+        static void check() {
+            if (ERROR != null) {
+                throw new UnsupportedOperationException("Aquesta versió d'OustLib no té els mètodes interns de GameStatus"
+                        + " que calen per reconstruir posicions (" + ERROR + ")", ERROR);
+            }
+        }
+    }
+
+    public final int size;
+    /** Bytes per registre. */
+    public final int width;
+    private final Geometria geo;
+    private final FileChannel channel;
+    private final boolean writable;
+    private final int perWindow;
+    private long count;
+    private MappedByteBuffer window;
+    private long windowIndex = -1;
+
+    private PositionShard(FileChannel channel, int size, boolean writable) {
+        this.channel = channel;
+        this.size = size;
+        this.geo = Geometria.de(size);
+        this.width = recordWidth(size);
+        this.writable = writable;
+        this.perWindow = WINDOW / width;
+    }
+
+    static int recordWidth(int size) {
+        return 16 + (Geometria.de(size).cells + 3) / 4;
+    }
+
+    /**
+     * Obre un fitxer per afegir-hi registres; si ja existeix, continua
+     * darrere l'últim.
+     */
+    public static PositionShard append(File file, int size) throws IOException {
+        FileChannel ch = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        PositionShard s = new PositionShard(ch, size, true);
+        if (ch.size() >= HEADER) {
+            s.recover(s.readHeader());
+        } else {
+            s.writeHeader();
+        }
+        return s;
+    }
+
+    /**
+     * Obre un fitxer només per llegir.
+     */
+    public static PositionShard open(File file) throws IOException {
+        FileChannel ch = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        ByteBuffer h = ByteBuffer.allocate(HEADER);
+        ch.read(h, 0);
+        h.flip();
+        PositionShard s = new PositionShard(ch, h.getInt(MAGIC.length), false);
+        s.recover(s.readHeader());
+        return s;
+    }
+
+    /**
+     * Compta els registres que hi ha de debò: els {@code saved} de la
+     * capçalera i els que s'hi hagin afegit després sense arribar a desar el
+     * comptador.
+     */
+    private void recover(long saved) throws IOException {
+        long capacity = (channel.size() - HEADER) / width;
+        count = saved;
+        while (count < capacity && hash(count) != 0) count++;
+    }
+
+    private long readHeader() throws IOException {
+        ByteBuffer h = ByteBuffer.allocate(HEADER);
+        channel.read(h, 0);
+        h.flip();
+        byte[] magic = new byte[MAGIC.length];
+        h.get(magic);
+        if (!Arrays.equals(magic, MAGIC)) throw new IOException("No és un fitxer de posicions");
+        int sz = h.getInt();
+        int w = h.getInt();
+        if (sz != size || w != width) {
+            throw new IOException("Fitxer de posicions de mida " + sz + " i s'esperava " + size);
+        }
+        return h.getLong();
+    }
+
+    private void writeHeader() throws IOException {
+        ByteBuffer h = ByteBuffer.allocate(HEADER);
+        h.put(MAGIC).putInt(size).putInt(width).putLong(count);
+        h.rewind();
+        channel.write(h, 0);
+    }
+
+    public long count() {
+        return count;
+    }
+
+    /**
+     * Finestra que conté el registre i, amb la posició al seu inici.
+     */
+    private MappedByteBuffer at(long i) throws IOException {
+        long w = i / perWindow;
+        if (w != windowIndex) {
+            // Que el comptador desat no es quedi mai més d'una finestra enrere
+            if (writable && windowIndex >= 0) writeHeader();
+            long start = HEADER + w * perWindow * (long) width;
+            long len = (long) perWindow * width;
+            if (!writable) len = Math.min(len, channel.size() - start);
+            window = channel.map(writable ? FileChannel.MapMode.READ_WRITE : FileChannel.MapMode.READ_ONLY, start, len);
+            windowIndex = w;
+        }
+        window.position((int) (i % perWindow) * width);
+        return window;
+    }
+
+    /**
+     * Afegeix una posició.
+     */
+    public void add(long hash, GameStatus s, float score, int ply, PlayerType winner) throws IOException {
+        ByteBuffer b = at(count);
+        b.putLong(hash);
+        b.putFloat(score);
+        b.putShort((short) ply);
+        b.put((byte) PlayerType.to_01(s.getCurrentPlayer()));
+        b.put((byte) (winner == null ? 0 : PlayerType.to_01(winner) + 1));
+        int acc = 0;
+        int bits = 0;
+        for (int k = 0; k < geo.cells; k++) {
+            PlayerType c = s.getColor(geo.puntos[k]);
+            acc |= (c == null ? 0 : PlayerType.to_01(c) + 1) << bits;
+            bits += 2;
+            if (bits == 8) {
+                b.put((byte) acc);
+                acc = 0;
+                bits = 0;
+            }
+        }
+        if (bits > 0) b.put((byte) acc);
+        count++;
+    }
+
+    public long hash(long i) throws IOException {
+        return at(i).getLong();
+    }
+
+    /**
+     * Copia el registre i (sense decodificar) a {@code dst}, de mida {@link #width}.
+     */
+    public void read(long i, byte[] dst) throws IOException {
+        at(i).get(dst, 0, width);
+    }
+
+    /**
+     * Color (0 buida, 1 PLAYER1, 2 PLAYER2) de la casella k d'un registre.
+     */
+    public static int cell(byte[] record, int k) {
+        return (record[16 + (k >> 2)] >> ((k & 3) * 2)) & 3;
+    }
+
+    public static float score(byte[] record) {
+        return ByteBuffer.wrap(record).getFloat(8);
+    }
+
+    public static int ply(byte[] record) {
+        return ByteBuffer.wrap(record).getShort(12);
+    }
+
+    /** 0 si mou PLAYER1, 1 si mou PLAYER2. */
+    public static int sideToMove(byte[] record) {
+        return record[14];
+    }
+
+    /** 0 empat, 1 PLAYER1, 2 PLAYER2. */
+    public static int winner(byte[] record) {
+        return record[15];
+    }
+
+    /**
+     * Reconstrueix la posició d'un registre.
+     */
+    public GameStatus status(byte[] record) {
+        byte[] color = new byte[geo.cells];
+        for (int k = 0; k < geo.cells; k++) color[k] = (byte) cell(record, k);
+        return status(size, color, sideToMove(record) == 0 ? PlayerType.PLAYER1 : PlayerType.PLAYER2);
+    }
+
+    /**
+     * Posició amb les pedres donades, com GameStatus(byte[][], PlayerType).
+     * Aquell constructor no es pot fer servir: pren la mida de
+     * {@code b.length} però recorre el tauler quadrat (2·mida-1 de costat),
+     * i per a mides més grans que 1 sempre surt de l'array.
+     *
+     * Es fa amb els mètodes privats de GameStatus que fa servir ell, però
+     * sense captures: el mètode que col·loca una pedra elimina els grups
+     * contraris veïns quan la pedra s'uneix a un grup propi, i amb les
+     * pedres en un ordre qualsevol esborraria grups que a la posició hi
+     * són. Per això cada pedra es col·loca amagant les veïnes del mateix
+     * color, els grups s'uneixen després amb Group.fusiona i al final es
+     * recalculen les caselles buides i els grups veïns de cada grup.
+     *
+     * @param color color de cada casella en l'ordre de {@link Geometria#puntos}
+     *              (0 buida, 1 PLAYER1, 2 PLAYER2)
+     * @throws UnsupportedOperationException si l'OustLib no té aquests mètodes
+     */
+    public static GameStatus status(int size, byte[] color, PlayerType toMove) {
+        Geometria geo = Geometria.de(size);
+        if (color.length != geo.cells) {
+            throw new IllegalArgumentException("Calen " + geo.cells + " caselles i n'hi ha " + color.length);
+        }
+        Internals.check();
+        GameStatus s = new GameStatus(size);
+        int[] index = new int[geo.cells];
+        for (int k = 0; k < geo.cells; k++) {
+            index[k] = geo.puntos[k].x * s.getSquareSize() + geo.puntos[k].y;
+        }
+        try {
+            Group[] groups = (Group[]) Internals.GROUPS.get(s);
+            int[] hidden = new int[6];
+            for (int k = 0; k < geo.cells; k++) {
+                if (color[k] == 0) continue;
+                if (color[k] != 1 && color[k] != 2) throw new IllegalArgumentException("Color " + color[k] + " a la casella " + k);
+                PlayerType p = color[k] == 1 ? PlayerType.PLAYER1 : PlayerType.PLAYER2;
+                byte code = p.getCode();
+                int n = 0;
+                for (int v : geo.vecinos1[k]) {
+                    if (s.board[index[v]] == code) {
+                        hidden[n++] = index[v];
+                        s.board[index[v]] = 0;
+                    }
+                }
+                Internals.PLACE.invoke(s, geo.puntos[k], p);
+                for (int i = 0; i < n; i++) {
+                    s.board[hidden[i]] = code;
+                    groups[index[k]].fusiona((short) hidden[i], groups);
+                }
+            }
+            for (int k = 0; k < geo.cells; k++) {
+                if (color[k] == 0) {
+                    Internals.REFRESH.invoke(s, geo.puntos[k]);
+                } else if (groups[index[k]].isTopGroup()) {
+                    // Un grup contrari unit després de tocar aquest hi pot ser
+                    // amb més d'un identificador; capturar-lo pel primer deixaria
+                    // el segon apuntant a una casella buida.
+                    Set<Short> veins = groups[index[k]].getNeighboringGroups();
+                    Set<Short> arrels = new HashSet<>();
+                    for (short v : veins) arrels.add(groups[v].findGroup(groups).getId());
+                    veins.clear();
+                    veins.addAll(arrels);
+                }
+            }
+        } catch (IllegalAccessException | InvocationTargetException ex) {
+            throw new IllegalStateException("No s'ha pogut construir la posició", ex);
+        }
+        s.currentPlayer = toMove;
+        return s;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (writable) {
+            writeHeader();
+            if (window != null) window.force();
+            window = null;
+            try {
+                channel.truncate(HEADER + count * width);
+            } catch (IOException ex) {
+                // Windows no deixa truncar un fitxer mapejat; mana el comptador de la capçalera
+            }
+        }
+        channel.close();
+    }
+}
@@ -0,0 +1,37 @@
+package edu.upc.epsevg.prop.oust;
+
+/**
+ * Estat d'una cerca en curs, immutable. El jugador en publica un de nou
+ * de tant en tant i la interfície el llegeix quan vol.
+ */
+public final class SearchSnapshot {
+
+    /** Profunditat de la iteració en curs. */
+    public final int depth;
+    /** Profunditat de l'última iteració completa (la del score i la PV). */
+    public final int completedDepth;
+    public final long nodes;
+    public final long elapsedNanos;
+    public final int score;
+    /** Variació principal, un torn per element, ja formatada. */
+    public final String pv;
+
+    public SearchSnapshot(int depth, int completedDepth, long nodes, long elapsedNanos, int score, String pv) {
+        this.depth = depth;
+        this.completedDepth = completedDepth;
+        this.nodes = nodes;
+        this.elapsedNanos = elapsedNanos;
+        this.score = score;
+        this.pv = pv;
+    }
+
+    public double getNodesPerSecond() {
+        return elapsedNanos == 0 ? 0 : nodes * 1e9 / elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Profunditat: %d (completa %d)%nNodes: %d (%.0f/s)%nScore: %d%nPV: %s",
+                depth, completedDepth, nodes, getNodesPerSecond(), score, pv);
+    }
+}
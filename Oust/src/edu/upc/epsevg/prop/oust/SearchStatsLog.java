@@ -0,0 +1,96 @@
+package edu.upc.epsevg.prop.oust;
+
+import edu.upc.epsevg.prop.oust.players.EstadisticasBusqueda;
+import edu.upc.epsevg.prop.oust.players.MovimientoBusqueda;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.Locale;
+
+/**
+ * Guarda una línia per moviment amb les estadístiques de la cerca: CSV o,
+ * si el fitxer acaba en {@code .json}, un objecte JSON per línia.
+ *
+ * Els jugadors que no retornen un {@link MovimientoBusqueda} només en
+ * donen els camps del PlayerMove (nodes, profunditat, H).
+ */
+public class SearchStatsLog implements Closeable {
+
+    private final PrintWriter out;
+    private final boolean json;
+    private int games;
+
+    public SearchStatsLog(File file) throws IOException {
+        json = file.getName().endsWith(".json");
+        out = new PrintWriter(new BufferedWriter(new FileWriter(file)));
+        if (!json) {
+            out.println("partida,torn,jugador,pedres,nodes,profunditat,h," + EstadisticasBusqueda.cabeceraCsv());
+        }
+    }
+
+    /**
+     * Log del fitxer indicat amb {@code -Doust.stats=fitxer}, o null.
+     */
+    public static SearchStatsLog fromProperty() {
+        String f = System.getProperty("oust.stats");
+        if (f == null) return null;
+        try {
+            return new SearchStatsLog(new File(f));
+        } catch (IOException ex) {
+            throw new RuntimeException("No es pot crear " + f, ex);
+        }
+    }
+
+    /**
+     * Listener per a una partida (o per a diverses seguides).
+     */
+    public GameListener listener() {
+        return new GameListener() {
+            private int game;
+            private int turn;
+            private String[] names;
+
+            @Override
+            public void gameStarted(GameStatus initial, String name1, String name2) {
+                game = nextGame();
+                turn = 0;
+                names = new String[]{name1, name2};
+            }
+
+            @Override
+            public void turnPlayed(PlayerType player, GameStatus before, PlayerMove move, boolean forfeit, MoveExecutor.MoveTask task) {
+                write(game, ++turn, names[PlayerType.to_01(player)], move);
+            }
+        };
+    }
+
+    private synchronized int nextGame() {
+        return ++games;
+    }
+
+    synchronized void write(int game, int turn, String player, PlayerMove m) {
+        int stones = m == null || m.getPoints() == null ? 0 : m.getPoints().size();
+        long nodes = m == null ? 0 : m.getNumerOfNodesExplored();
+        int depth = m == null ? 0 : m.getMaxDepthReached();
+        float h = m == null ? 0 : m.getH();
+        EstadisticasBusqueda e = m instanceof MovimientoBusqueda ? ((MovimientoBusqueda) m).getEstadisticas() : null;
+        if (json) {
+            out.println(String.format(Locale.ROOT, "{\"partida\":%d,\"torn\":%d,\"jugador\":\"%s\",\"pedres\":%d,"
+                    + "\"nodes\":%d,\"profunditat\":%d,\"h\":%s,\"cerca\":%s}",
+                    game, turn, player.replace("\\", "\\\\").replace("\"", "\\\""), stones, nodes, depth,
+                    Float.isFinite(h) ? Float.toString(h) : "null", e == null ? "null" : e.toJson()));
+        } else {
+            out.println(String.format(Locale.ROOT, "%d,%d,\"%s\",%d,%d,%d,%s,%s",
+                    game, turn, player.replace("\"", "\"\""), stones, nodes, depth, h,
+                    e == null ? ",,,,,,,,,,," : e.toCsv()));
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        out.close();
+    }
+}
@@ -0,0 +1,15 @@
+package edu.upc.epsevg.prop.oust;
+
+/**
+ * Jugador que publica l'estat de la seva cerca mentre pensa.
+ *
+ * La lectura no ha de bloquejar mai el fil de cerca: n'hi ha prou amb un
+ * camp volatile amb l'últim {@link SearchSnapshot}.
+ */
+public interface SearchTelemetry {
+
+    /**
+     * Últim estat publicat de la cerca en curs (o de l'última), o null.
+     */
+    SearchSnapshot getSnapshot();
+}
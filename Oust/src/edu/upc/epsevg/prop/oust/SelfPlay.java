@@ -0,0 +1,149 @@
+package edu.upc.epsevg.prop.oust;
+
+import edu.upc.epsevg.prop.oust.players.MovimientoBusqueda;
+import edu.upc.epsevg.prop.oust.players.PropPlayer;
+import java.awt.Point;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Genera posicions etiquetades jugant partides de PropPlayer contra si
+ * mateix en paral·lel i les guarda en un {@link PositionDataset}.
+ *
+ * Cada jugador comença amb uns quants torns aleatoris perquè no totes les
+ * partides siguin iguals. Dels torns jugats per la cerca se'n mostreja una
+ * part: la posició d'inici del torn, el score de la cerca (NaN si el
+ * moviment no és un MovimientoBusqueda) i, en acabar la partida, el
+ * guanyador.
+ *
+ * <pre>
+ *   SelfPlay dir [mida] [partides] [profunditat] [fils] [fitxers] [tornsAleatoris] [mostreig]
+ * </pre>
+ */
+public class SelfPlay {
+
+    public static void main(String[] args) throws IOException {
+        File dir = new File(args.length > 0 ? args[0] : "dataset");
+        int size = args.length > 1 ? Integer.parseInt(args[1]) : 7;
+        int games = args.length > 2 ? Integer.parseInt(args[2]) : 100;
+        int depth = args.length > 3 ? Integer.parseInt(args[3]) : 2;
+        int threads = args.length > 4 ? Integer.parseInt(args[4]) : Runtime.getRuntime().availableProcessors();
+        int shards = args.length > 5 ? Integer.parseInt(args[5]) : 8;
+        int randomTurns = args.length > 6 ? Integer.parseInt(args[6]) : 6;
+        double rate = args.length > 7 ? Double.parseDouble(args[7]) : 0.5;
+
+        try (PositionDataset data = new PositionDataset(dir, size, shards)) {
+            long before = data.getCount();
+            PlayerFactory f = () -> new RandomOpening(new PropPlayer("self", depth), randomTurns);
+            Tournament t = new Tournament(f, f, size, 60, Math.max(1, games / 2), threads);
+            t.addListener(() -> new Sampler(data, rate));
+            long t0 = System.nanoTime();
+            Tournament.Result res = t.run();
+            double secs = (System.nanoTime() - t0) / 1e9;
+            long written = data.getCount() - before;
+            System.out.println(String.format("%d partides, %d posicions noves (%d repetides), %d en total a %s",
+                    res.getGames(), written, data.getDuplicates(), data.getCount(), dir));
+            System.out.println(String.format("%.1f s, %.0f posicions/s, %.0f posicions/s per nucli (%d fils)",
+                    secs, written / secs, written / secs / threads, threads));
+        }
+    }
+
+    /**
+     * Mostreja posicions d'una partida i les escriu quan se'n sap el resultat.
+     * Els torns aleatoris de RandomOpening (un per jugador) no es mostregen.
+     */
+    static class Sampler implements GameListener {
+
+        private final PositionDataset data;
+        private final double rate;
+        private final List<GameStatus> positions = new ArrayList<>();
+        private final List<Float> scores = new ArrayList<>();
+        private final List<Integer> plies = new ArrayList<>();
+        private int turn;
+
+        Sampler(PositionDataset data, double rate) {
+            this.data = data;
+            this.rate = rate;
+        }
+
+        @Override
+        public void gameStarted(GameStatus initial, String name1, String name2) {
+            positions.clear();
+            scores.clear();
+            plies.clear();
+            turn = 0;
+        }
+
+        @Override
+        public void turnPlayed(PlayerType player, GameStatus before, PlayerMove move, boolean forfeit, MoveExecutor.MoveTask task) {
+            int t = turn++;
+            if (forfeit || move == null || move.getSearchType() == SearchType.RANDOM) return;
+            if (ThreadLocalRandom.current().nextDouble() >= rate) return;
+            positions.add(before);
+            scores.add(move instanceof MovimientoBusqueda ? move.getH() : Float.NaN);
+            plies.add(t);
+        }
+
+        @Override
+        public void gameEnded(GameStatus last, PlayerType winner) {
+            try {
+                for (int i = 0; i < positions.size(); i++) {
+                    data.add(positions.get(i), scores.get(i), plies.get(i), winner);
+                }
+            } catch (IOException ex) {
+                throw new RuntimeException("No s'han pogut escriure les posicions", ex);
+            }
+        }
+    }
+
+    /**
+     * Juga els primers torns a l'atzar (camins complets, fins a una
+     * col·locació sense captura) i després delega.
+     */
+    static class RandomOpening implements IPlayer, IAuto, TimeoutAware {
+
+        private final IPlayer player;
+        private final int randomTurns;
+        private int turn;
+
+        RandomOpening(IPlayer player, int randomTurns) {
+            this.player = player;
+            this.randomTurns = randomTurns;
+        }
+
+        @Override
+        public PlayerMove move(GameStatus s) {
+            if (turn++ >= randomTurns) return player.move(s);
+            ThreadLocalRandom r = ThreadLocalRandom.current();
+            GameStatus ns = new GameStatus(s);
+            PlayerType p = ns.getCurrentPlayer();
+            List<Point> path = new ArrayList<>();
+            while (ns.getCurrentPlayer() == p && !ns.isGameOver()) {
+                List<Point> moves = ns.getMoves();
+                if (moves.isEmpty()) break;
+                Point m = moves.get(r.nextInt(moves.size()));
+                path.add(m);
+                ns.placeStone(m);
+            }
+            return new PlayerMove(path, 0, 0, SearchType.RANDOM);
+        }
+
+        @Override
+        public void timeout() {
+            player.timeout();
+        }
+
+        @Override
+        public void clearTimeout() {
+            if (player instanceof TimeoutAware) ((TimeoutAware) player).clearTimeout();
+        }
+
+        @Override
+        public String getName() {
+            return player.getName();
+        }
+    }
+}
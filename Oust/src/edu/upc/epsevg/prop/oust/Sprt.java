@@ -0,0 +1,153 @@
+package edu.upc.epsevg.prop.oust;
+
+/**
+ * Test seqüencial de raó de versemblança (SPRT) sobre parelles de partides
+ * amb els colors intercanviats, amb model pentanomial: cada parella val de
+ * 0 a 2 punts per al jugador A (0, ½, 1, 1½, 2).
+ *
+ * Fa servir l'aproximació normal del GSPRT:
+ * LLR = N/2 · ((μ-μ0)² - (μ-μ1)²) / σ², amb μ i σ² la mitjana i la
+ * variància de la puntuació normalitzada de cada parella i μ0, μ1 les
+ * puntuacions esperades amb Elo logístic elo0 i elo1.
+ */
+public class Sprt {
+
+    public enum Status {
+        CONTINUE, ACCEPT_H0, ACCEPT_H1
+    }
+
+    private final double elo0;
+    private final double elo1;
+    private final double alpha;
+    private final double beta;
+    /** Parelles amb 0, 1, 2, 3 i 4 mitjos punts per a A. */
+    private final long[] penta = new long[5];
+    /**
+     * Pseudo-recompte per categoria al càlcul de la variància: sense ell,
+     * una tira de resultats idèntics dona variància 0 i el test no avança.
+     */
+    private static final double PRIOR = 0.25;
+
+    /**
+     * @param elo0 hipòtesi nul·la (A no és millor que elo0)
+     * @param elo1 hipòtesi alternativa (A és almenys elo1 millor)
+     * @param alpha error de tipus I
+     * @param beta error de tipus II
+     */
+    public Sprt(double elo0, double elo1, double alpha, double beta) {
+        if (elo1 <= elo0) throw new IllegalArgumentException("Cal elo0 < elo1");
+        this.elo0 = elo0;
+        this.elo1 = elo1;
+        this.alpha = alpha;
+        this.beta = beta;
+    }
+
+    /**
+     * Afegeix el resultat d'una parella, vist des del jugador A.
+     *
+     * @param aAsPlayer1 guanyador de la partida on A era PLAYER1 (null: empat)
+     * @param aAsPlayer2 guanyador de la partida on A era PLAYER2 (null: empat)
+     */
+    public synchronized void addPair(PlayerType aAsPlayer1, PlayerType aAsPlayer2) {
+        penta[halfPoints(aAsPlayer1, PlayerType.PLAYER1) + halfPoints(aAsPlayer2, PlayerType.PLAYER2)]++;
+    }
+
+    private static int halfPoints(PlayerType winner, PlayerType a) {
+        if (winner == null) return 1;
+        return winner == a ? 2 : 0;
+    }
+
+    public synchronized long getPairs() {
+        long n = 0;
+        for (long c : penta) n += c;
+        return n;
+    }
+
+    public synchronized long[] getPentanomial() {
+        return penta.clone();
+    }
+
+    /** Puntuació mitjana de A per partida (0..1). */
+    public synchronized double getScore() {
+        long n = getPairs();
+        if (n == 0) return 0.5;
+        double s = 0;
+        for (int i = 0; i < 5; i++) s += penta[i] * (i / 4.0);
+        return s / n;
+    }
+
+    private double variance(double mu) {
+        double n = 0;
+        double v = 0;
+        for (int i = 0; i < 5; i++) {
+            double d = i / 4.0 - mu;
+            v += (penta[i] + PRIOR) * d * d;
+            n += penta[i] + PRIOR;
+        }
+        return v / n;
+    }
+
+    public synchronized double llr() {
+        long n = getPairs();
+        if (n < 2) return 0;
+        double mu = getScore();
+        double var = variance(mu);
+        if (var <= 0) return 0;
+        double mu0 = expectedScore(elo0);
+        double mu1 = expectedScore(elo1);
+        return 0.5 * n * ((mu - mu0) * (mu - mu0) - (mu - mu1) * (mu - mu1)) / var;
+    }
+
+    public double getLowerBound() {
+        return Math.log(beta / (1 - alpha));
+    }
+
+    public double getUpperBound() {
+        return Math.log((1 - beta) / alpha);
+    }
+
+    public synchronized Status getStatus() {
+        double llr = llr();
+        if (llr >= getUpperBound()) return Status.ACCEPT_H1;
+        if (llr <= getLowerBound()) return Status.ACCEPT_H0;
+        return Status.CONTINUE;
+    }
+
+    /** Elo estimat de A respecte de B. */
+    public synchronized double getElo() {
+        return elo(getScore());
+    }
+
+    /**
+     * Interval de confiança de l'Elo (z = 1.96 per al 95%).
+     *
+     * @return {mínim, màxim}
+     */
+    public synchronized double[] getEloInterval(double z) {
+        long n = getPairs();
+        if (n < 2) return new double[]{Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY};
+        double mu = getScore();
+        double err = z * Math.sqrt(variance(mu) / n);
+        return new double[]{elo(mu - err), elo(mu + err)};
+    }
+
+    static double expectedScore(double elo) {
+        return 1 / (1 + Math.pow(10, -elo / 400));
+    }
+
+    static double elo(double score) {
+        double s = Math.min(Math.max(score, 1e-6), 1 - 1e-6);
+        return -400 * Math.log10(1 / s - 1);
+    }
+
+    @Override
+    public synchronized String toString() {
+        double[] ci = getEloInterval(1.96);
+        return String.format(" SPRT elo0=%.1f elo1=%.1f alpha=%.3f beta=%.3f%n"
+                + " LLR %.3f [%.3f, %.3f] -> %s%n"
+                + " Elo %.1f (95%%: %.1f .. %.1f) en %d parelles%n"
+                + " Pentanomial [0, 1/2, 1, 3/2, 2]: %d %d %d %d %d%n",
+                elo0, elo1, alpha, beta, llr(), getLowerBound(), getUpperBound(), getStatus(),
+                getElo(), ci[0], ci[1], getPairs(), penta[0], penta[1], penta[2], penta[3], penta[4]);
+    }
+}
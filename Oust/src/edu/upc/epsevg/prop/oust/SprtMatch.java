@@ -0,0 +1,34 @@
+package edu.upc.epsevg.prop.oust;
+
+import edu.upc.epsevg.prop.oust.players.PropPlayer;
+
+/**
+ * Enfrontament amb SPRT: juga parelles de partides en paral·lel fins que
+ * el test decideix si A és millor que B entre elo0 i elo1.
+ *
+ * Ús: SprtMatch [elo0] [elo1] [alpha] [beta] [màx. parelles]
+ */
+public class SprtMatch {
+
+    public static void main(String[] args) {
+        double elo0 = args.length > 0 ? Double.parseDouble(args[0]) : 0;
+        double elo1 = args.length > 1 ? Double.parseDouble(args[1]) : 50;
+        double alpha = args.length > 2 ? Double.parseDouble(args[2]) : 0.05;
+        double beta = args.length > 3 ? Double.parseDouble(args[3]) : 0.05;
+        int maxPairs = args.length > 4 ? Integer.parseInt(args[4]) : 1000;
+
+        //---------------------------------------------
+        // Jugadors a comparar: A és el candidat
+        //---------------------------------------------
+        PlayerFactory a = () -> new PropPlayer("A", 3);
+        PlayerFactory b = () -> new PropPlayer("B", 2);
+
+        Tournament t = new Tournament(a, b, 7, 3/*s timeout*/, maxPairs);
+        SearchStatsLog stats = SearchStatsLog.fromProperty();
+        if (stats != null) t.addListener(stats::listener);
+        Tournament.Result r = t.runSprt(new Sprt(elo0, elo1, alpha, beta), maxPairs);
+        System.out.println(r);
+        if (stats != null) stats.close();
+        r.writeLatencyFromProperty();
+    }
+}
@@ -0,0 +1,290 @@
+package edu.upc.epsevg.prop.oust;
+
+import edu.upc.epsevg.prop.oust.players.Geometria;
+import edu.upc.epsevg.prop.oust.players.Pesos;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Ajusta els pesos de la Heuristica contra els resultats de les partides
+ * d'un {@link PositionDataset} (mètode de Texel).
+ *
+ * L'avaluació és lineal en cinc característiques per posició (nombre de
+ * pedres i les sumes de r1p², r1r, r2p i r2r, amb signe segons de qui són),
+ * així que es calculen un sol cop i es guarden en arrays primitius. Després
+ * es minimitza l'error quadràtic entre el resultat (1, ½, 0 per a qui mou)
+ * i sigmoid(K·eval): primer s'ajusta K amb els pesos actuals i després els
+ * pesos amb Adam, amb el gradient calculat en paral·lel en un ForkJoinPool.
+ *
+ * <pre>
+ *   TexelTuner dir [iteracions] [sortida] [escala] [fils]
+ * </pre>
+ * La sortida és un fitxer de pesos per a {@code -Doust.pesos=fitxer};
+ * l'escala multiplica els pesos abans d'arrodonir-los a enters.
+ */
+public class TexelTuner {
+
+    static final int F = 5;
+    private static final int CHUNK = 1 << 15;
+
+    /** Característiques: features[i * F + f]. */
+    final int[] features;
+    /** Resultat per a qui mou: 0, 0.5 o 1. */
+    final float[] targets;
+    final int count;
+    private final ForkJoinPool pool;
+
+    TexelTuner(int[] features, float[] targets, ForkJoinPool pool) {
+        this.features = features;
+        this.targets = targets;
+        this.count = targets.length;
+        this.pool = pool;
+    }
+
+    public static void main(String[] args) throws IOException {
+        File dir = new File(args.length > 0 ? args[0] : "dataset");
+        int iterations = args.length > 1 ? Integer.parseInt(args[1]) : 300;
+        File out = new File(args.length > 2 ? args[2] : "pesos.properties");
+        double scale = args.length > 3 ? Double.parseDouble(args[3]) : 1;
+        int threads = args.length > 4 ? Integer.parseInt(args[4]) : Runtime.getRuntime().availableProcessors();
+
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        long t0 = System.nanoTime();
+        TexelTuner t = load(dir, pool);
+        System.out.println(String.format("%d posicions carregades en %.1f s", t.count, (System.nanoTime() - t0) / 1e9));
+
+        double[] w = toDouble(Pesos.actual().toArray());
+        long t1 = System.nanoTime();
+        double k = t.fitK(w);
+        System.out.println(String.format("K = %.5f, error inicial %.6f (%s)", k, t.loss(w, k), Pesos.actual()));
+        w = t.adam(w, k, iterations);
+        double secs = (System.nanoTime() - t1) / 1e9;
+
+        int[] rounded = new int[F];
+        double[] back = new double[F];
+        for (int f = 0; f < F; f++) {
+            rounded[f] = (int) Math.round(w[f] * scale);
+            back[f] = rounded[f] / scale;
+        }
+        Pesos tuned = Pesos.de(rounded);
+        System.out.println(String.format("Error final %.6f, amb pesos enters %.6f (%.1f s, %.1f passades/s)",
+                t.loss(w, k), t.loss(back, k), secs, (iterations + 1) / secs));
+        tuned.guardar(out, "Pesos ajustats amb TexelTuner sobre " + t.count + " posicions (K=" + k + ", escala " + scale + ")");
+        System.out.println(tuned + " -> " + out);
+        pool.shutdown();
+    }
+
+    //=====================================================================================
+    // Càrrega
+    //=====================================================================================
+
+    /**
+     * Llegeix tots els fitxers del dataset en paral·lel (un per tasca) i en
+     * calcula les característiques.
+     */
+    static TexelTuner load(File dir, ForkJoinPool pool) throws IOException {
+        List<File> files = new ArrayList<>();
+        List<Long> offsets = new ArrayList<>();
+        long total = 0;
+        for (int i = 0; PositionDataset.shardFile(dir, i).exists(); i++) {
+            File f = PositionDataset.shardFile(dir, i);
+            try (PositionShard s = PositionShard.open(f)) {
+                files.add(f);
+                offsets.add(total);
+                total += s.count();
+            }
+        }
+        if (total > Integer.MAX_VALUE / F) throw new IllegalArgumentException("Massa posicions: " + total);
+        int[] features = new int[(int) total * F];
+        float[] targets = new float[(int) total];
+        List<ForkJoinTask<?>> tasks = new ArrayList<>();
+        for (int i = 0; i < files.size(); i++) {
+            File f = files.get(i);
+            int first = offsets.get(i).intValue();
+            tasks.add(pool.submit(() -> {
+                try {
+                    extract(f, first, features, targets);
+                } catch (IOException ex) {
+                    throw new RuntimeException("Error llegint " + f, ex);
+                }
+            }));
+        }
+        for (ForkJoinTask<?> task : tasks) task.join();
+        return new TexelTuner(features, targets, pool);
+    }
+
+    private static void extract(File f, int first, int[] features, float[] targets) throws IOException {
+        try (PositionShard s = PositionShard.open(f)) {
+            Geometria geo = Geometria.de(s.size);
+            byte[] rec = new byte[s.width];
+            byte[] color = new byte[geo.cells];
+            for (long r = 0; r < s.count(); r++) {
+                s.read(r, rec);
+                for (int k = 0; k < geo.cells; k++) color[k] = (byte) PositionShard.cell(rec, k);
+                int i = first + (int) r;
+                features(geo, color, PositionShard.sideToMove(rec) + 1, features, i * F);
+                int w = PositionShard.winner(rec);
+                targets[i] = w == 0 ? 0.5f : (w == PositionShard.sideToMove(rec) + 1 ? 1f : 0f);
+            }
+        }
+    }
+
+    /**
+     * Les mateixes sumes que fa Heuristica.eval, sense multiplicar pels pesos.
+     */
+    static void features(Geometria geo, byte[] color, int me, int[] out, int off) {
+        for (int k = 0; k < geo.cells; k++) {
+            int c = color[k];
+            if (c == 0) continue;
+            int r1p = 0, r1r = 0, r2p = 0, r2r = 0;
+            for (int v : geo.vecinos1[k]) {
+                if (color[v] == c) r1p++;
+                else if (color[v] != 0) r1r++;
+            }
+            for (int v : geo.vecinos2[k]) {
+                if (color[v] == c) r2p++;
+                else if (color[v] != 0) r2r++;
+            }
+            int sign = c == me ? 1 : -1;
+            out[off] += sign;
+            out[off + 1] += sign * r1p * r1p;
+            out[off + 2] += sign * r1r;
+            out[off + 3] += sign * r2p;
+            out[off + 4] += sign * r2r;
+        }
+    }
+
+    //=====================================================================================
+    // Optimització
+    //=====================================================================================
+
+    /**
+     * Error i gradient d'un rang de posicions: {error, dE/dw0, ..., dE/dw4}.
+     */
+    private class Pass extends RecursiveTask<double[]> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final double[] w;
+        private final double k;
+        private final int from;
+        private final int to;
+
+        Pass(double[] w, double k, int from, int to) {
+            this.w = w;
+            this.k = k;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected double[] compute() {
+            if (to - from > CHUNK) {
+                int mid = (from + to) >>> 1;
+                Pass left = new Pass(w, k, from, mid);
+                left.fork();
+                double[] r = new Pass(w, k, mid, to).compute();
+                double[] l = left.join();
+                for (int f = 0; f <= F; f++) r[f] += l[f];
+                return r;
+            }
+            double[] r = new double[F + 1];
+            double w0 = w[0], w1 = w[1], w2 = w[2], w3 = w[3], w4 = w[4];
+            for (int i = from; i < to; i++) {
+                int o = i * F;
+                double e = w0 * features[o] + w1 * features[o + 1] + w2 * features[o + 2]
+                        + w3 * features[o + 3] + w4 * features[o + 4];
+                double s = 1 / (1 + Math.exp(-k * e));
+                double d = s - targets[i];
+                r[0] += d * d;
+                double g = d * s * (1 - s);
+                for (int f = 0; f < F; f++) r[f + 1] += g * features[o + f];
+            }
+            return r;
+        }
+    }
+
+    private double[] pass(double[] w, double k) {
+        double[] r = pool.invoke(new Pass(w, k, 0, count));
+        r[0] /= count;
+        for (int f = 1; f <= F; f++) r[f] *= 2 * k / count;
+        return r;
+    }
+
+    double loss(double[] w, double k) {
+        return pass(w, k)[0];
+    }
+
+    /**
+     * K que minimitza l'error amb els pesos donats (secció àuria sobre log K).
+     */
+    double fitK(double[] w) {
+        double a = Math.log(1e-6);
+        double b = Math.log(10);
+        double phi = (Math.sqrt(5) - 1) / 2;
+        double c = b - phi * (b - a);
+        double d = a + phi * (b - a);
+        double fc = loss(w, Math.exp(c));
+        double fd = loss(w, Math.exp(d));
+        for (int i = 0; i < 40; i++) {
+            if (fc < fd) {
+                b = d;
+                d = c;
+                fd = fc;
+                c = b - phi * (b - a);
+                fc = loss(w, Math.exp(c));
+            } else {
+                a = c;
+                c = d;
+                fc = fd;
+                d = a + phi * (b - a);
+                fd = loss(w, Math.exp(d));
+            }
+        }
+        return Math.exp((a + b) / 2);
+    }
+
+    /**
+     * Descens de gradient amb Adam. Les característiques tenen escales molt
+     * diferents, i Adam normalitza el pas de cada pes.
+     */
+    double[] adam(double[] start, double k, int iterations) {
+        double[] w = start.clone();
+        double[] m = new double[F];
+        double[] v = new double[F];
+        double rate = 0.05 * max(w);
+        double b1 = 0.9, b2 = 0.999;
+        for (int it = 1; it <= iterations; it++) {
+            double[] r = pass(w, k);
+            for (int f = 0; f < F; f++) {
+                double g = r[f + 1];
+                m[f] = b1 * m[f] + (1 - b1) * g;
+                v[f] = b2 * v[f] + (1 - b2) * g * g;
+                double mh = m[f] / (1 - Math.pow(b1, it));
+                double vh = v[f] / (1 - Math.pow(b2, it));
+                w[f] -= rate * mh / (Math.sqrt(vh) + 1e-12);
+            }
+            if (it % 50 == 0 || it == iterations) {
+                System.out.println(String.format("  iteració %d: error %.6f", it, r[0]));
+            }
+        }
+        return w;
+    }
+
+    private static double max(double[] w) {
+        double m = 1;
+        for (double x : w) m = Math.max(m, Math.abs(x));
+        return m;
+    }
+
+    private static double[] toDouble(int[] w) {
+        double[] r = new double[w.length];
+        for (int i = 0; i < w.length; i++) r[i] = w[i];
+        return r;
+    }
+}
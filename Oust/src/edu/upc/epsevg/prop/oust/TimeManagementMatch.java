@@ -0,0 +1,99 @@
+package edu.upc.epsevg.prop.oust;
+
+import edu.upc.epsevg.prop.oust.players.GestorTiempo;
+import edu.upc.epsevg.prop.oust.players.PropPlayer;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Compara la gestió del temps de PropPlayer contra el mateix rival:
+ * <ul>
+ * <li>fixa: profunditat fixa, sense gestor;</li>
+ * <li>pla: profunditat il·limitada, fins que arriba timeout();</li>
+ * <li>gestor: profunditat il·limitada amb {@link GestorTiempo}.</li>
+ * </ul>
+ * Per a cada configuració mostra la profunditat mitjana assolida, quantes
+ * vegades l'entorn ha hagut de cridar timeout() i els moviments al límit.
+ *
+ * Ús: TimeManagementMatch [partides] [ms per moviment] [mida] [profunditat fixa] [fils] [configuracions]
+ *
+ * Les configuracions es donen separades per comes (per defecte totes).
+ */
+public class TimeManagementMatch {
+
+    public static void main(String[] args) {
+        int games = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        long ms = args.length > 1 ? Long.parseLong(args[1]) : 100;
+        int size = args.length > 2 ? Integer.parseInt(args[2]) : 5;
+        int depth = args.length > 3 ? Integer.parseInt(args[3]) : 2;
+        int threads = args.length > 4 ? Integer.parseInt(args[4]) : Runtime.getRuntime().availableProcessors();
+        List<String> configs = Arrays.asList((args.length > 5 ? args[5] : "fixa,pla,gestor").split(","));
+
+        PlayerFactory rival = () -> new PropPlayer("rival", 2);
+        System.out.printf("%d partides per configuració, %d ms per moviment, mida %d%n", games, ms, size);
+        System.out.printf("%-8s %9s %9s %9s %9s %9s %9s %9s%n",
+                "config", "movs", "prof.mitj", "timeouts", "al límit", "fora", "p99 ms", "guanya");
+        if (configs.contains("fixa")) {
+            run("fixa", () -> new PropPlayer("fixa", depth), rival, games, ms, size, threads);
+        }
+        if (configs.contains("pla")) {
+            run("pla", () -> new PropPlayer("pla", 64), rival, games, ms, size, threads);
+        }
+        if (configs.contains("gestor")) {
+            run("gestor", () -> new PropPlayer("gestor", 64).setGestorTiempo(new GestorTiempo(ms)), rival, games, ms, size, threads);
+        }
+    }
+
+    private static void run(String name, PlayerFactory a, PlayerFactory b, int games, long ms, int size, int threads) {
+        Tournament t = new Tournament(a, b, size, 1, Math.max(1, games / 2), threads);
+        t.setTimeoutMillis(ms);
+        String playerName = a.create().getName();
+        DepthCounter depth = new DepthCounter(playerName);
+        t.addListener(depth::listener);
+        Tournament.Result r = t.run();
+        MoveLatencyStats.PlayerLatency l = r.getLatencyA();
+        System.out.printf("%-8s %9d %9.2f %9d %9d %9d %9.1f %8.1f%%%n",
+                name, l.moves.getCount(), depth.mean(), l.timeoutToReturn.getCount(), l.nearMisses, l.overdue,
+                l.moves.percentile(99) / 1e6, 100.0 * r.getWinsA() / Math.max(1, r.getGames()));
+    }
+
+    /**
+     * Profunditat mitjana dels moviments del jugador indicat; compartit per
+     * totes les partides.
+     */
+    private static class DepthCounter {
+
+        private final String player;
+        private long moves;
+        private long depth;
+
+        DepthCounter(String player) {
+            this.player = player;
+        }
+
+        GameListener listener() {
+            return new GameListener() {
+                private PlayerType color;
+
+                @Override
+                public void gameStarted(GameStatus initial, String name1, String name2) {
+                    color = player.equals(name1) ? PlayerType.PLAYER1 : PlayerType.PLAYER2;
+                }
+
+                @Override
+                public void turnPlayed(PlayerType p, GameStatus before, PlayerMove move, boolean forfeit, MoveExecutor.MoveTask task) {
+                    if (p == color && move != null) add(move.getMaxDepthReached());
+                }
+            };
+        }
+
+        synchronized void add(int d) {
+            moves++;
+            depth += d;
+        }
+
+        synchronized double mean() {
+            return moves == 0 ? 0 : (double) depth / moves;
+        }
+    }
+}
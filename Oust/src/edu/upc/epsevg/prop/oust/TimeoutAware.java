@@ -0,0 +1,18 @@
+package edu.upc.epsevg.prop.oust;
+
+/**
+ * Jugador que guarda l'avís de {@link IPlayer#timeout()} fins que se li diu
+ * que el moviment ja ha acabat.
+ *
+ * {@link MoveExecutor} l'esborra amb el mateix bloqueig amb què marca el
+ * moviment com a tornat; l'alarma de l'hora límit també l'agafa, així que un
+ * avís que arriba just quan move() torna no es pot quedar per al moviment
+ * següent.
+ */
+public interface TimeoutAware {
+
+    /**
+     * Esborra l'avís de timeout() pendent, si n'hi ha.
+     */
+    void clearTimeout();
+}
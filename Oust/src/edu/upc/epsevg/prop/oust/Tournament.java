@@ -0,0 +1,279 @@
+package edu.upc.epsevg.prop.oust;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Torneig entre dos jugadors que juga moltes partides alhora en un pool de
+ * fils acotat.
+ *
+ * Les partides es planifiquen per parelles amb els colors intercanviats
+ * (A-B i B-A), de manera que en tot moment les dues ordenacions estan
+ * equilibrades. Cada partida crea els seus jugadors amb les factories.
+ */
+public class Tournament {
+
+    private final PlayerFactory factoryA;
+    private final PlayerFactory factoryB;
+    private final int size;
+    private long timeoutMillis;
+    private final int pairs;
+    private final int threads;
+    private MemoryMode memoryMode = MemoryMode.NONE;
+    private final List<Supplier<GameListener>> listeners = new ArrayList<>();
+
+    public Tournament(PlayerFactory a, PlayerFactory b, int size, int timeout, int pairs) {
+        this(a, b, size, timeout, pairs, Runtime.getRuntime().availableProcessors());
+    }
+
+    public Tournament(PlayerFactory a, PlayerFactory b, int size, int timeout, int pairs, int threads) {
+        this.factoryA = a;
+        this.factoryB = b;
+        this.size = size;
+        this.timeoutMillis = timeout * 1000L;
+        this.pairs = pairs;
+        this.threads = Math.max(1, threads);
+    }
+
+    /**
+     * Juga totes les parelles i espera que acabin.
+     */
+    public Result run() {
+        Result res = new Result(factoryA.create().getName(), factoryB.create().getName());
+        ExecutorService pool = newPool(threads);
+        long t0 = System.nanoTime();
+        try {
+            List<Future<GameResult>> aFirst = new ArrayList<>();
+            List<Future<GameResult>> bFirst = new ArrayList<>();
+            for (int i = 0; i < pairs; i++) {
+                aFirst.add(pool.submit(() -> playOne(factoryA, factoryB)));
+                bFirst.add(pool.submit(() -> playOne(factoryB, factoryA)));
+            }
+            for (int i = 0; i < pairs; i++) {
+                res.aFirst.merge(aFirst.get(i).get());
+                res.bFirst.merge(bFirst.get(i).get());
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Torneig interromput", ex);
+        } catch (ExecutionException ex) {
+            throw new RuntimeException("Error jugant una partida del torneig", ex.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+        res.elapsedNanos = System.nanoTime() - t0;
+        return res;
+    }
+
+    /**
+     * Juga parelles fins que el SPRT accepta o rebutja la hipòtesi, o fins a
+     * {@code maxPairs}. Només hi ha tantes parelles en curs com fils, de
+     * manera que s'atura poc després de decidir.
+     */
+    public Result runSprt(Sprt sprt, int maxPairs) {
+        Result res = new Result(factoryA.create().getName(), factoryB.create().getName());
+        res.sprt = sprt;
+        ExecutorService pool = newPool(threads);
+        CompletionService<GameResult[]> done = new ExecutorCompletionService<>(pool);
+        long t0 = System.nanoTime();
+        try {
+            int submitted = 0;
+            int running = 0;
+            while (running < threads && submitted < maxPairs) {
+                done.submit(this::playPair);
+                submitted++;
+                running++;
+            }
+            while (running > 0) {
+                GameResult[] pair = done.take().get();
+                running--;
+                res.aFirst.merge(pair[0]);
+                res.bFirst.merge(pair[1]);
+                sprt.addPair(pair[0].getResults().get(0), pair[1].getResults().get(0));
+                if (sprt.getStatus() != Sprt.Status.CONTINUE) break;
+                if (submitted < maxPairs) {
+                    done.submit(this::playPair);
+                    submitted++;
+                    running++;
+                }
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Torneig interromput", ex);
+        } catch (ExecutionException ex) {
+            throw new RuntimeException("Error jugant una partida del torneig", ex.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+        res.elapsedNanos = System.nanoTime() - t0;
+        return res;
+    }
+
+    /**
+     * Parella de partides amb els colors intercanviats; la primera té A com
+     * a PLAYER1.
+     */
+    GameResult[] playPair() {
+        return new GameResult[]{playOne(factoryA, factoryB), playOne(factoryB, factoryA)};
+    }
+
+    /**
+     * Política de memòria de cada partida. Per defecte NONE: un GC forçat
+     * aturaria totes les partides que s'estan jugant.
+     */
+    public void setMemoryMode(MemoryMode memoryMode) {
+        this.memoryMode = memoryMode;
+    }
+
+    /**
+     * Temps per moviment en mil·lisegons, en lloc dels segons del
+     * constructor.
+     */
+    public void setTimeoutMillis(long timeoutMillis) {
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    /**
+     * Guarda totes les partides del torneig al fitxer del writer.
+     */
+    public void setRecordWriter(GameRecordWriter records) {
+        addListener(() -> new GameRecord.Recorder(records));
+    }
+
+    /**
+     * Afegeix un listener a cada partida; la factory es crida un cop per
+     * partida, des del fil que la juga.
+     */
+    public void addListener(Supplier<GameListener> factory) {
+        listeners.add(factory);
+    }
+
+    /**
+     * Una partida aïllada, amb jugadors nous.
+     */
+    GameResult playOne(PlayerFactory first, PlayerFactory second) {
+        HeadlessGame g = new HeadlessGame(first.create(), second.create(), size, (int) (timeoutMillis / 1000), 1);
+        g.setTimeoutMillis(timeoutMillis);
+        g.setVerbose(false);
+        g.setMemoryMode(memoryMode);
+        for (Supplier<GameListener> l : listeners) {
+            g.addListener(l.get());
+        }
+        return g.start();
+    }
+
+    static ExecutorService newPool(int threads) {
+        AtomicInteger n = new AtomicInteger();
+        return Executors.newFixedThreadPool(threads, r -> {
+            Thread t = new Thread(r, "tournament-" + n.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * Resultats del torneig, separats per ordenació de colors.
+     */
+    public static class Result {
+
+        /** Partides amb A com a PLAYER1. */
+        public final GameResult aFirst;
+        /** Partides amb B com a PLAYER1. */
+        public final GameResult bFirst;
+        long elapsedNanos;
+        /** Test seqüencial, si s'ha jugat amb runSprt. */
+        public Sprt sprt;
+
+        Result(String nameA, String nameB) {
+            aFirst = new GameResult(nameA, nameB);
+            bFirst = new GameResult(nameB, nameA);
+        }
+
+        public int getWinsA() {
+            return aFirst.getWins1() + bFirst.getWins2();
+        }
+
+        public int getWinsB() {
+            return aFirst.getWins2() + bFirst.getWins1();
+        }
+
+        public int getTies() {
+            return aFirst.getTies() + bFirst.getTies();
+        }
+
+        public int getGames() {
+            return aFirst.getGames() + bFirst.getGames();
+        }
+
+        public double getGamesPerHour() {
+            return elapsedNanos == 0 ? 0 : getGames() * 3600e9 / elapsedNanos;
+        }
+
+        /**
+         * Latència de A amb els dos colors.
+         */
+        public MoveLatencyStats.PlayerLatency getLatencyA() {
+            MoveLatencyStats.PlayerLatency l = aFirst.getLatencyStats().get(0);
+            l.merge(bFirst.getLatencyStats().get(1));
+            return l;
+        }
+
+        /**
+         * Latència de B amb els dos colors.
+         */
+        public MoveLatencyStats.PlayerLatency getLatencyB() {
+            MoveLatencyStats.PlayerLatency l = aFirst.getLatencyStats().get(1);
+            l.merge(bFirst.getLatencyStats().get(0));
+            return l;
+        }
+
+        /**
+         * Exporta la taula de percentils de latència (p50/p99/p99.9/màx)
+         * dels dos jugadors en CSV.
+         */
+        public void writeLatency(File file) throws IOException {
+            try (PrintWriter out = new PrintWriter(file, "UTF-8")) {
+                out.println(MoveLatencyStats.PlayerLatency.cabeceraCsv());
+                getLatencyA().writeCsv(out, aFirst.getName1());
+                getLatencyB().writeCsv(out, aFirst.getName2());
+            }
+        }
+
+        /**
+         * Exporta la taula al fitxer de {@code -Doust.latency}, si n'hi ha.
+         */
+        public void writeLatencyFromProperty() {
+            String f = System.getProperty("oust.latency");
+            if (f == null) return;
+            try {
+                writeLatency(new File(f));
+            } catch (IOException ex) {
+                throw new RuntimeException("No es pot escriure " + f, ex);
+            }
+        }
+
+        @Override
+        public String toString() {
+            String res = aFirst.toString() + bFirst.toString();
+            res += "\n TOTAL (" + aFirst.getName1() + " vs " + aFirst.getName2() + "):\t wins " + getWinsA()
+                    + "\t ties:" + getTies() + "\t looses:" + getWinsB() + "\n";
+            res += String.format(" %d partides en %.1f s (%.0f partides/hora)%n",
+                    getGames(), elapsedNanos / 1e9, getGamesPerHour());
+            res += " LAT A: " + getLatencyA() + "\n";
+            res += " LAT B: " + getLatencyB() + "\n";
+            if (sprt != null) res += sprt;
+            return res;
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package edu.upc.epsevg.prop.oust;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Procés treballador de {@link LocalTournament}: juga, una rere l'altra,
+ * les partides que li encarrega el coordinador.
+ *
+ * Protocol de línies de text per l'entrada i la sortida estàndard (camps
+ * separats per espais):
+ * <pre>
+ *   coordinador: GAME id mida ms jugador1 jugador2
+ *                QUIT
+ *   treballador: RESULT id resultat registre
+ *                ERROR id missatge
+ * </pre>
+ * Els jugadors són textos de {@link PlayerSpec}. El resultat és el
+ * GameResult de la partida serialitzat amb GZIP, i el registre és el
+ * GameRecord codificat; tots dos van en Base64.
+ *
+ * El que els jugadors o HeadlessGame escriuen per System.out va a la
+ * sortida d'error, perquè no es barregi amb el protocol.
+ */
+public class TournamentWorker {
+
+    public static void main(String[] args) throws IOException {
+        PrintStream protocol = new PrintStream(new FileOutputStream(FileDescriptor.out), true, "UTF-8");
+        System.setOut(System.err);
+        BufferedReader in = new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8));
+        String line;
+        // Sense coordinador (entrada tancada) també s'acaba
+        while ((line = in.readLine()) != null) {
+            String[] f = line.trim().split(" ");
+            if (f[0].equals("QUIT")) break;
+            if (!f[0].equals("GAME") || f.length != 6) {
+                protocol.println("ERROR - ordre desconeguda: " + line);
+                continue;
+            }
+            try {
+                protocol.println("RESULT " + f[1] + " " + play(Integer.parseInt(f[2]), Long.parseLong(f[3]), f[4], f[5]));
+            } catch (RuntimeException ex) {
+                ex.printStackTrace();
+                protocol.println("ERROR " + f[1] + " " + ex.toString().replaceAll("\\s+", " "));
+            }
+        }
+        // El MoveExecutor i els jugadors poden tenir fils vius
+        System.exit(0);
+    }
+
+    private static String play(int size, long ms, String spec1, String spec2) {
+        HeadlessGame g = new HeadlessGame(PlayerSpec.parse(spec1, ms).create(), PlayerSpec.parse(spec2, ms).create(),
+                size, (int) (ms / 1000), 1);
+        g.setTimeoutMillis(ms);
+        g.setVerbose(false);
+        GameRecord.Recorder recorder = new GameRecord.Recorder(null);
+        g.addListener(recorder);
+        GameResult r = g.start();
+        try {
+            return encodeResult(r) + " " + Base64.getEncoder().encodeToString(recorder.getRecord().encode());
+        } catch (IOException ex) {
+            throw new IllegalStateException("No s'ha pogut codificar la partida", ex);
+        }
+    }
+
+    static String encodeResult(GameResult r) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(new GZIPOutputStream(bytes))) {
+            out.writeObject(r);
+        }
+        return Base64.getEncoder().encodeToString(bytes.toByteArray());
+    }
+
+    static GameResult decodeResult(String s) throws IOException {
+        byte[] bytes = Base64.getDecoder().decode(s);
+        try (ObjectInputStream in = new ObjectInputStream(new GZIPInputStream(new ByteArrayInputStream(bytes)))) {
+            return (GameResult) in.readObject();
+        } catch (ClassNotFoundException ex) {
+            throw new IOException("Resultat d'una altra versió", ex);
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package edu.upc.epsevg.prop.oust.jfr;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+/**
+ * Converteix un fitxer .jfr amb els esdeveniments d'Oust en taules de
+ * latència per moviment i per jugador.
+ *
+ * <pre>
+ *   java -XX:StartFlightRecording=filename=partida.jfr ... HeadlessGame
+ *   JfrAnalyzer partida.jfr [moviments]
+ * </pre>
+ * Amb {@code moviments} també escriu una línia per moviment. Les iteracions
+ * s'assignen al moviment que les conté (mateix fil i interval de temps).
+ */
+public class JfrAnalyzer {
+
+    private static class Move {
+        Instant start;
+        Instant end;
+        String thread;
+        String player;
+        long nodes;
+        int depth;
+        float score;
+        boolean signalled;
+        long timeoutToReturn;
+        boolean failed;
+        int iterations;
+        long lastIterationNanos;
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.out.println("Ús: JfrAnalyzer fitxer.jfr [moviments]");
+            return;
+        }
+        Path file = Paths.get(args[0]);
+        boolean perMove = args.length > 1 && args[1].equals("moviments");
+
+        List<Move> moves = new ArrayList<>();
+        List<RecordedEvent> iterations = new ArrayList<>();
+        Map<String, List<Long>> lateness = new TreeMap<>();
+        Map<String, List<Long>> policy = new TreeMap<>();
+        for (RecordedEvent e : RecordingFile.readAllEvents(file)) {
+            switch (e.getEventType().getName()) {
+                case "oust.Move":
+                    Move m = new Move();
+                    m.start = e.getStartTime();
+                    m.end = e.getEndTime();
+                    m.thread = e.getThread() == null ? "?" : e.getThread().getJavaName();
+                    m.player = e.getString("player");
+                    m.nodes = e.getLong("nodes");
+                    m.depth = e.getInt("depth");
+                    m.score = e.getFloat("score");
+                    m.signalled = e.getBoolean("timeoutSignalled");
+                    m.timeoutToReturn = e.getDuration("timeoutToReturn").toNanos();
+                    m.failed = e.getBoolean("failed");
+                    moves.add(m);
+                    break;
+                case "oust.SearchIteration":
+                    iterations.add(e);
+                    break;
+                case "oust.Timeout":
+                    lateness.computeIfAbsent(e.getString("player"), k -> new ArrayList<>())
+                            .add(e.getDuration("lateness").toNanos() + e.getDuration().toNanos());
+                    break;
+                case "oust.MemoryPolicy":
+                    policy.computeIfAbsent(e.getString("mode"), k -> new ArrayList<>()).add(e.getDuration().toNanos());
+                    break;
+                default:
+                    break;
+            }
+        }
+        moves.sort((a, b) -> a.start.compareTo(b.start));
+        assignIterations(moves, iterations);
+
+        if (perMove) {
+            System.out.println(String.format("%5s %10s %-24s %9s %10s %4s %4s %9s %10s %s",
+                    "#", "inici(s)", "jugador", "ms", "nodes", "prof", "iter", "últ.it ms", "tmo→ret ms", ""));
+            Instant t0 = moves.isEmpty() ? Instant.EPOCH : moves.get(0).start;
+            for (int i = 0; i < moves.size(); i++) {
+                Move m = moves.get(i);
+                System.out.println(String.format("%5d %10.3f %-24s %9.2f %10d %4d %4d %9.2f %10s %s",
+                        i + 1, Duration.between(t0, m.start).toNanos() / 1e9, m.player,
+                        Duration.between(m.start, m.end).toNanos() / 1e6, m.nodes, m.depth, m.iterations,
+                        m.lastIterationNanos / 1e6, m.signalled ? String.format("%.2f", m.timeoutToReturn / 1e6) : "-",
+                        m.failed ? "ERROR" : ""));
+            }
+            System.out.println();
+        }
+
+        Map<String, List<Move>> byPlayer = new TreeMap<>();
+        for (Move m : moves) byPlayer.computeIfAbsent(m.player, k -> new ArrayList<>()).add(m);
+        System.out.println(String.format("%-24s %7s %9s %9s %9s %9s %9s %7s %9s",
+                "jugador", "movs", "p50 ms", "p90 ms", "p99 ms", "màx ms", "nps", "timeout", "tmo→ret p99"));
+        for (Map.Entry<String, List<Move>> e : byPlayer.entrySet()) {
+            List<Move> ms = e.getValue();
+            long[] d = new long[ms.size()];
+            long nodes = 0;
+            long nanos = 0;
+            List<Long> ret = new ArrayList<>();
+            for (int i = 0; i < d.length; i++) {
+                Move m = ms.get(i);
+                d[i] = Duration.between(m.start, m.end).toNanos();
+                nodes += m.nodes;
+                nanos += d[i];
+                if (m.signalled) ret.add(m.timeoutToReturn);
+            }
+            Arrays.sort(d);
+            System.out.println(String.format("%-24s %7d %9.2f %9.2f %9.2f %9.2f %9.0f %7d %9s",
+                    e.getKey(), d.length, pct(d, 50) / 1e6, pct(d, 90) / 1e6, pct(d, 99) / 1e6, d[d.length - 1] / 1e6,
+                    nanos == 0 ? 0 : nodes * 1e9 / nanos, ret.size(),
+                    ret.isEmpty() ? "-" : String.format("%.2f", pct(sorted(ret), 99) / 1e6)));
+        }
+        if (!lateness.isEmpty()) {
+            System.out.println();
+            System.out.println("Lliurament de timeout() (retard de l'alarma + durada de la crida):");
+            for (Map.Entry<String, List<Long>> e : lateness.entrySet()) {
+                long[] v = sorted(e.getValue());
+                System.out.println(String.format("  %-24s %5d  p50 %.3f ms  p99 %.3f ms  màx %.3f ms",
+                        e.getKey(), v.length, pct(v, 50) / 1e6, pct(v, 99) / 1e6, v[v.length - 1] / 1e6));
+            }
+        }
+        if (!policy.isEmpty()) {
+            System.out.println();
+            System.out.println("Política de memòria entre moviments:");
+            for (Map.Entry<String, List<Long>> e : policy.entrySet()) {
+                long[] v = sorted(e.getValue());
+                long total = 0;
+                for (long x : v) total += x;
+                System.out.println(String.format("  %-10s %5d crides, total %.1f ms, p50 %.2f ms, màx %.2f ms",
+                        e.getKey(), v.length, total / 1e6, pct(v, 50) / 1e6, v[v.length - 1] / 1e6));
+            }
+        }
+    }
+
+    private static void assignIterations(List<Move> moves, List<RecordedEvent> iterations) {
+        for (RecordedEvent it : iterations) {
+            String thread = it.getThread() == null ? "?" : it.getThread().getJavaName();
+            Instant t = it.getEndTime();
+            for (int i = moves.size() - 1; i >= 0; i--) {
+                Move m = moves.get(i);
+                if (m.thread.equals(thread) && !t.isBefore(m.start) && !t.isAfter(m.end)) {
+                    m.iterations++;
+                    m.lastIterationNanos = it.getDuration().toNanos();
+                    break;
+                }
+            }
+        }
+    }
+
+    private static long[] sorted(List<Long> v) {
+        long[] r = new long[v.size()];
+        for (int i = 0; i < r.length; i++) r[i] = v.get(i);
+        Arrays.sort(r);
+        return r;
+    }
+
+    private static long pct(long[] sorted, double p) {
+        if (sorted.length == 0) return 0;
+        int i = (int) Math.ceil(p / 100 * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, i))];
+    }
+}
@@ -0,0 +1,30 @@
+package edu.upc.epsevg.prop.oust.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * La política de memòria entre moviments (el gc() de HeadlessGame i Board).
+ */
+@Name("oust.MemoryPolicy")
+@Label("Memory Policy")
+@Category("Oust")
+@Description("Recollida forçada entre moviments")
+@StackTrace(false)
+public class MemoryPolicyEvent extends jdk.jfr.Event {
+
+    @Label("Mode")
+    public String mode;
+
+    @Label("Heap before")
+    @DataAmount
+    public long heapBefore;
+
+    @Label("Heap after")
+    @DataAmount
+    public long heapAfter;
+}
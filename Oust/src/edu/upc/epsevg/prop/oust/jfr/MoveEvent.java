@@ -0,0 +1,51 @@
+package edu.upc.epsevg.prop.oust.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * Un moviment d'un jugador automàtic: l'inici i la durada de l'esdeveniment
+ * són l'inici i el final de {@code move}.
+ */
+@Name("oust.Move")
+@Label("Move")
+@Category("Oust")
+@Description("Moviment d'un jugador automàtic, amb les estadístiques de la cerca")
+@StackTrace(false)
+public class MoveEvent extends jdk.jfr.Event {
+
+    @Label("Player")
+    public String player;
+
+    @Label("Stones")
+    public int stones;
+
+    @Label("Nodes")
+    public long nodes;
+
+    @Label("Depth")
+    public int depth;
+
+    @Label("Score")
+    public float score;
+
+    @Label("Evaluations")
+    public long evaluations;
+
+    @Label("TT hits")
+    public long ttHits;
+
+    @Label("Timeout signalled")
+    public boolean timeoutSignalled;
+
+    @Label("Timeout to return")
+    @Timespan(Timespan.NANOSECONDS)
+    public long timeoutToReturn;
+
+    @Label("Failed")
+    public boolean failed;
+}
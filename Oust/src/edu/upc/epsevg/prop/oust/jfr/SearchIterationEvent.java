@@ -0,0 +1,33 @@
+package edu.upc.epsevg.prop.oust.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Una iteració completa de la profundització iterativa.
+ */
+@Name("oust.SearchIteration")
+@Label("Search Iteration")
+@Category("Oust")
+@Description("Iteració completa de la profundització iterativa")
+@StackTrace(false)
+public class SearchIterationEvent extends jdk.jfr.Event {
+
+    @Label("Player")
+    public String player;
+
+    @Label("Depth")
+    public int depth;
+
+    @Label("Nodes")
+    public long nodes;
+
+    @Label("Score")
+    public int score;
+
+    @Label("Best move")
+    public String bestMove;
+}
@@ -0,0 +1,27 @@
+package edu.upc.epsevg.prop.oust.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * Lliurament de {@code timeout()} a un jugador. La durada és la de la
+ * crida; {@code lateness} és el retard respecte del límit.
+ */
+@Name("oust.Timeout")
+@Label("Timeout")
+@Category("Oust")
+@Description("Crida a timeout() quan s'esgota el temps d'un moviment")
+@StackTrace(false)
+public class TimeoutEvent extends jdk.jfr.Event {
+
+    @Label("Player")
+    public String player;
+
+    @Label("Lateness")
+    @Timespan(Timespan.NANOSECONDS)
+    public long lateness;
+}
@@ -0,0 +1,180 @@
+package edu.upc.epsevg.prop.oust.players;
+
+import edu.upc.epsevg.prop.oust.GameStatus;
+import edu.upc.epsevg.prop.oust.PlayerType;
+import java.awt.Point;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Acumulador de la primera capa de {@link RedNeuronal}, uno por perspectiva.
+ *
+ * Guarda su propia copia de las casillas. {@link #colocar} aplica una
+ * piedra con las mismas reglas que GameStatus: suma su columna y, si toca
+ * piedras propias, resta las de los grupos rivales que captura. Solo
+ * recorre el grupo propio resultante y los capturados, nunca el tablero
+ * entero. {@link #actualizar} compara casilla a casilla con un GameStatus,
+ * para cuando no se conocen las jugadas.
+ */
+public final class Acumulador {
+
+    private final RedNeuronal red;
+    private final Geometria geo;
+    /** valores[perspectiva][neurona] */
+    final short[][] valores;
+    /** 0 vacía, 1 PLAYER1, 2 PLAYER2 */
+    private final byte[] casillas;
+    /** Recorrido de grupos en colocar(): la pila del grupo propio crece desde el principio y la de borrado desde el final. */
+    private final int[] pila;
+    private final int[] visto;
+    private int marca;
+
+    Acumulador(RedNeuronal red) {
+        this.red = red;
+        this.geo = Geometria.de(red.size);
+        this.valores = new short[2][red.hidden];
+        this.casillas = new byte[geo.cells];
+        this.pila = new int[geo.cells];
+        this.visto = new int[geo.cells];
+        reiniciar();
+    }
+
+    /**
+     * Recalcula el acumulador desde cero.
+     */
+    public void refrescar(GameStatus s) {
+        reiniciar();
+        actualizar(s);
+    }
+
+    /**
+     * Coloca las piedras de {@code camino}, todas de {@code p}, como
+     * placeStone, con sus capturas.
+     */
+    public void colocar(List<Point> camino, PlayerType p) {
+        int color = PlayerType.to_01(p);
+        for (Point m : camino) {
+            colocar(geo.index(m), color);
+        }
+    }
+
+    /**
+     * Coloca la piedra k de {@code color} (0 o 1). Si toca piedras propias
+     * es una captura: se quitan todos los grupos rivales adyacentes al grupo
+     * resultante, como en GameStatus y {@link EvaluacionLotes}.
+     */
+    void colocar(int k, int color) {
+        byte propia = (byte) (color + 1);
+        byte rival = (byte) (2 - color);
+        casillas[k] = propia;
+        anadir(k, color);
+
+        boolean captura = false;
+        for (int v : geo.vecinos1[k]) {
+            if (casillas[v] == propia) {
+                captura = true;
+                break;
+            }
+        }
+        if (!captura) return;
+
+        if (++marca == 0) {
+            Arrays.fill(visto, 0);
+            marca = 1;
+        }
+        int top = 0;
+        pila[top++] = k;
+        visto[k] = marca;
+        while (top > 0) {
+            int c = pila[--top];
+            for (int v : geo.vecinos1[c]) {
+                if (visto[v] == marca) continue;
+                if (casillas[v] == propia) {
+                    visto[v] = marca;
+                    pila[top++] = v;
+                } else if (casillas[v] == rival) {
+                    capturar(v, 1 - color);
+                }
+            }
+        }
+    }
+
+    /**
+     * Quita el grupo de {@code color} que contiene {@code inicio}; usa la
+     * pila desde el final para no pisar la del grupo propio.
+     */
+    private void capturar(int inicio, int color) {
+        byte rival = (byte) (color + 1);
+        int fondo = pila.length - 1;
+        int top = fondo;
+        pila[top--] = inicio;
+        casillas[inicio] = 0;
+        quitar(inicio, color);
+        while (top < fondo) {
+            int c = pila[++top];
+            for (int v : geo.vecinos1[c]) {
+                if (casillas[v] == rival) {
+                    casillas[v] = 0;
+                    quitar(v, color);
+                    pila[top--] = v;
+                }
+            }
+        }
+    }
+
+    /**
+     * Aplica las diferencias entre la última posición sumada y {@code s}
+     * comparando todas las casillas. En la búsqueda se usa {@link #colocar},
+     * que no recorre el tablero.
+     */
+    public void actualizar(GameStatus s) {
+        for (int k = 0; k < geo.cells; k++) {
+            PlayerType c = s.getColor(geo.puntos[k]);
+            byte nuevo = (byte) (c == null ? 0 : PlayerType.to_01(c) + 1);
+            byte viejo = casillas[k];
+            if (nuevo == viejo) continue;
+            if (viejo != 0) quitar(k, viejo - 1);
+            if (nuevo != 0) anadir(k, nuevo - 1);
+            casillas[k] = nuevo;
+        }
+    }
+
+    /**
+     * Copia el estado de otro acumulador de la misma red (pila de búsqueda).
+     */
+    public void copiarDe(Acumulador o) {
+        System.arraycopy(o.valores[0], 0, valores[0], 0, red.hidden);
+        System.arraycopy(o.valores[1], 0, valores[1], 0, red.hidden);
+        System.arraycopy(o.casillas, 0, casillas, 0, casillas.length);
+    }
+
+    void anadir(int k, int color) {
+        int h = red.hidden;
+        short[] w = red.pesosEntrada;
+        for (int persp = 0; persp < 2; persp++) {
+            short[] v = valores[persp];
+            int off = (k * 2 + (color == persp ? 0 : 1)) * h;
+            for (int i = 0; i < h; i++) {
+                v[i] += w[off + i];
+            }
+        }
+    }
+
+    void quitar(int k, int color) {
+        int h = red.hidden;
+        short[] w = red.pesosEntrada;
+        for (int persp = 0; persp < 2; persp++) {
+            short[] v = valores[persp];
+            int off = (k * 2 + (color == persp ? 0 : 1)) * h;
+            for (int i = 0; i < h; i++) {
+                v[i] -= w[off + i];
+            }
+        }
+    }
+
+    private void reiniciar() {
+        System.arraycopy(red.sesgoEntrada, 0, valores[0], 0, red.hidden);
+        System.arraycopy(red.sesgoEntrada, 0, valores[1], 0, red.hidden);
+        Arrays.fill(casillas, (byte) 0);
+    }
+}
@@ -0,0 +1,311 @@
+package edu.upc.epsevg.prop.oust.players;
+
+import edu.upc.epsevg.prop.oust.GameStatus;
+import edu.upc.epsevg.prop.oust.PlayerType;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Caché persistente de resultados de búsquedas profundas, en un fichero
+ * mapeado en memoria que se reutiliza entre ejecuciones.
+ *
+ * <pre>
+ *   cabecera (64 bytes): "OUSTTT01"  size:int  bits:int  ancho:int
+ *   2^bits cubos de 4 entradas de {@code ancho} bytes
+ *   entrada: clave^datos:long  datos:long  tablero: 2 bits por casilla
+ *   datos:   jugada:16 (0xFFFF vacía)  profundidad:8  mueve2:8  valor:32
+ * </pre>
+ * La clave es el hash canónico de la posición (el mismo para las 12
+ * posiciones simétricas) y la jugada y el tablero se guardan girados a esa
+ * orientación, así que una entrada sirve para todas ellas.
+ *
+ * Reemplazo por profundidad: una posición que ya está solo se sobrescribe
+ * con una búsqueda igual o más profunda; una nueva ocupa la entrada menos
+ * profunda del cubo.
+ *
+ * Una sola JVM escribe (se asegura con un FileLock sobre la cabecera) y las
+ * demás leen a la vez sin bloqueo. Una lectura que se cruza con una
+ * escritura se descarta: la primera palabra es clave^datos, y al calentar
+ * la tabla se rehace además el hash del tablero.
+ *
+ * Con {@code -Doust.cache=directorio} los PropPlayer usan la caché
+ * {@code cache-<size>.tt} de ese directorio; con
+ * {@code -Doust.cache.escribir=true} esa JVM es la que la escribe.
+ */
+public final class CachePosiciones implements Closeable {
+
+    static final byte[] MAGIC = {'O', 'U', 'S', 'T', 'T', 'T', '0', '1'};
+    static final int CABECERA = 64;
+    static final int POR_CUBO = 4;
+    private static final int VACIA = 0xFFFF;
+
+    private static final CachePosiciones[] COMPARTIDAS = new CachePosiciones[32];
+    private static final boolean[] ABIERTAS = new boolean[32];
+
+    public final int size;
+    private final Zobrist zobrist;
+    private final int bits;
+    private final int ancho;
+    private final FileChannel canal;
+    private final FileLock bloqueo;
+    private final MappedByteBuffer mapa;
+
+    /**
+     * Resultado guardado, con la jugada ya en la orientación de la posición
+     * consultada.
+     */
+    public static final class Entrada {
+
+        /** Índice compacto de la jugada (Geometria). */
+        public final int jugada;
+        public final int profundidad;
+        public final int valor;
+
+        Entrada(int jugada, int profundidad, int valor) {
+            this.jugada = jugada;
+            this.profundidad = profundidad;
+            this.valor = valor;
+        }
+    }
+
+    private CachePosiciones(FileChannel canal, FileLock bloqueo, int size, int bits) throws IOException {
+        this.canal = canal;
+        this.bloqueo = bloqueo;
+        this.size = size;
+        this.zobrist = Zobrist.de(size);
+        this.bits = bits;
+        this.ancho = ancho(size);
+        FileChannel.MapMode modo = bloqueo != null ? FileChannel.MapMode.READ_WRITE : FileChannel.MapMode.READ_ONLY;
+        mapa = canal.map(modo, 0, longitud(size, bits));
+    }
+
+    static int ancho(int size) {
+        int tablero = (Geometria.de(size).cells + 3) / 4;
+        return 16 + (tablero + 7) / 8 * 8;
+    }
+
+    static long longitud(int size, int bits) {
+        return CABECERA + ((long) POR_CUBO << bits) * ancho(size);
+    }
+
+    /**
+     * Abre (o crea) la caché para escribir. Solo una JVM a la vez.
+     *
+     * @param bits la caché tiene 2^bits cubos; si el fichero ya existe se
+     * usan los suyos
+     */
+    public static CachePosiciones escribir(File f, int size, int bits) throws IOException {
+        if (longitud(size, bits) > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Caché demasiado grande: bits=" + bits);
+        }
+        FileChannel ch = FileChannel.open(f.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        FileLock lock = ch.tryLock(0, CABECERA, false);
+        if (lock == null) {
+            ch.close();
+            throw new IOException("Otra JVM ya está escribiendo en " + f);
+        }
+        try {
+            if (ch.size() >= CABECERA) {
+                int[] h = leerCabecera(ch, f);
+                if (h[0] != size) throw new IOException(f + " es una caché de size=" + h[0]);
+                bits = h[1];
+            } else {
+                ByteBuffer h = ByteBuffer.allocate(CABECERA);
+                h.put(MAGIC).putInt(size).putInt(bits).putInt(ancho(size));
+                h.clear();
+                ch.write(h, 0);
+            }
+            return new CachePosiciones(ch, lock, size, bits);
+        } catch (IOException | RuntimeException ex) {
+            lock.release();
+            ch.close();
+            throw ex;
+        }
+    }
+
+    /**
+     * Abre una caché existente solo para leer; puede haber otra JVM
+     * escribiendo en ella.
+     */
+    public static CachePosiciones leer(File f) throws IOException {
+        FileChannel ch = FileChannel.open(f.toPath(), StandardOpenOption.READ);
+        try {
+            int[] h = leerCabecera(ch, f);
+            if (ch.size() < longitud(h[0], h[1])) throw new IOException(f + " está truncado");
+            return new CachePosiciones(ch, null, h[0], h[1]);
+        } catch (IOException | RuntimeException ex) {
+            ch.close();
+            throw ex;
+        }
+    }
+
+    private static int[] leerCabecera(FileChannel ch, File f) throws IOException {
+        ByteBuffer h = ByteBuffer.allocate(CABECERA);
+        ch.read(h, 0);
+        h.flip();
+        byte[] magic = new byte[MAGIC.length];
+        h.get(magic);
+        if (!Arrays.equals(magic, MAGIC)) throw new IOException(f + " no es una caché de posiciones");
+        int size = h.getInt();
+        int bits = h.getInt();
+        if (h.getInt() != ancho(size)) throw new IOException(f + " tiene otro formato de entrada");
+        return new int[]{size, bits};
+    }
+
+    /**
+     * Caché indicada con {@code -Doust.cache} para tableros de lado
+     * {@code size}, abierta una vez por JVM; null si no hay.
+     */
+    public static synchronized CachePosiciones compartida(int size) {
+        if (ABIERTAS[size]) return COMPARTIDAS[size];
+        ABIERTAS[size] = true;
+        String dir = System.getProperty("oust.cache");
+        if (dir == null) return null;
+        File f = new File(dir, "cache-" + size + ".tt");
+        try {
+            if (Boolean.getBoolean("oust.cache.escribir")) {
+                f.getParentFile().mkdirs();
+                COMPARTIDAS[size] = escribir(f, size, Integer.getInteger("oust.cache.bits", 16));
+            } else if (f.exists()) {
+                COMPARTIDAS[size] = leer(f);
+            }
+        } catch (IOException ex) {
+            throw new IllegalStateException("No se puede abrir la caché " + f, ex);
+        }
+        return COMPARTIDAS[size];
+    }
+
+    public boolean isEscritura() {
+        return bloqueo != null;
+    }
+
+    /**
+     * Resultado guardado para la posición s, o null.
+     */
+    public Entrada buscar(GameStatus s) {
+        byte[] colores = zobrist.colores(s);
+        boolean mueve2 = s.getCurrentPlayer() == PlayerType.PLAYER2;
+        int t = zobrist.simetriaCanonica(colores, mueve2);
+        long clave = zobrist.hash(colores, mueve2, t);
+        int cubo = (int) clave & ((1 << bits) - 1);
+        for (int i = 0; i < POR_CUBO; i++) {
+            int o = posicion(cubo, i);
+            long datos = mapa.getLong(o + 8);
+            if ((mapa.getLong(o) ^ datos) != clave) continue;
+            int jugada = (int) (datos >>> 48);
+            if (jugada == VACIA || jugada >= zobrist.geo.cells) return null;
+            int[] perm = zobrist.geo.simetrias[t];
+            for (int k = 0; k < perm.length; k++) {
+                if (perm[k] == jugada) {
+                    return new Entrada(k, (int) (datos >>> 40) & 0xFF, (int) datos);
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Guarda el resultado de buscar la posición s a {@code profundidad}.
+     *
+     * @param jugada índice compacto de la primera casilla de la jugada
+     * @param valor valor de la búsqueda para quien mueve
+     */
+    public synchronized void guardar(GameStatus s, int jugada, int profundidad, int valor) {
+        if (bloqueo == null) throw new IllegalStateException("Caché abierta solo para leer");
+        byte[] colores = zobrist.colores(s);
+        boolean mueve2 = s.getCurrentPlayer() == PlayerType.PLAYER2;
+        int t = zobrist.simetriaCanonica(colores, mueve2);
+        long clave = zobrist.hash(colores, mueve2, t);
+        int cubo = (int) clave & ((1 << bits) - 1);
+        int p = Math.min(profundidad, 0xFF);
+
+        int elegida = -1;
+        int menor = Integer.MAX_VALUE;
+        for (int i = 0; i < POR_CUBO; i++) {
+            int o = posicion(cubo, i);
+            long datos = mapa.getLong(o + 8);
+            int guardada = (datos >>> 48) == VACIA || (mapa.getLong(o) ^ datos) == 0 ? -1 : (int) (datos >>> 40) & 0xFF;
+            if ((mapa.getLong(o) ^ datos) == clave) {
+                if (p < guardada) return;
+                elegida = i;
+                break;
+            }
+            if (guardada < menor) {
+                menor = guardada;
+                elegida = i;
+            }
+        }
+
+        int[] perm = zobrist.geo.simetrias[t];
+        byte[] canonico = new byte[colores.length];
+        for (int k = 0; k < colores.length; k++) {
+            canonico[perm[k]] = colores[k];
+        }
+        long datos = (long) perm[jugada] << 48 | (long) p << 40 | (mueve2 ? 1L : 0) << 32 | (valor & 0xFFFFFFFFL);
+        int o = posicion(cubo, elegida);
+        // Primero se invalida la entrada y se escribe el tablero; la clave, al final
+        mapa.putLong(o, 0);
+        mapa.putLong(o + 8, (long) VACIA << 48);
+        for (int k = 0; k < canonico.length; k += 4) {
+            int b = 0;
+            for (int j = 0; j < 4 && k + j < canonico.length; j++) {
+                b |= canonico[k + j] << (2 * j);
+            }
+            mapa.put(o + 16 + k / 4, (byte) b);
+        }
+        mapa.putLong(o + 8, datos);
+        mapa.putLong(o, clave ^ datos);
+    }
+
+    /**
+     * Copia en la tabla de transposición la mejor jugada de cada entrada,
+     * en sus 12 orientaciones.
+     *
+     * @return entradas copiadas
+     */
+    public int calentar(TablaTransposicion tt) {
+        Geometria geo = zobrist.geo;
+        byte[] tablero = new byte[geo.cells];
+        int n = 0;
+        long entradas = (long) POR_CUBO << bits;
+        for (long e = 0; e < entradas; e++) {
+            int o = CABECERA + (int) e * ancho;
+            long datos = mapa.getLong(o + 8);
+            long clave = mapa.getLong(o) ^ datos;
+            int jugada = (int) (datos >>> 48);
+            if (clave == 0 || jugada == VACIA || jugada >= geo.cells) continue;
+            for (int k = 0; k < tablero.length; k++) {
+                tablero[k] = (byte) (mapa.get(o + 16 + k / 4) >>> (2 * (k % 4)) & 3);
+            }
+            boolean mueve2 = (datos >>> 32 & 1) != 0;
+            // Entrada a medio escribir por la otra JVM
+            if (zobrist.hash(tablero, mueve2, 0) != clave) continue;
+            for (int t = 0; t < 12; t++) {
+                tt.guardar(zobrist.hash(tablero, mueve2, t), geo.simetrias[t][jugada]);
+            }
+            n++;
+        }
+        return n;
+    }
+
+    private int posicion(int cubo, int i) {
+        return CABECERA + (cubo * POR_CUBO + i) * ancho;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (bloqueo != null) {
+            mapa.force();
+            bloqueo.release();
+        }
+        canal.close();
+    }
+}
@@ -0,0 +1,111 @@
+package edu.upc.epsevg.prop.oust.players;
+
+/**
+ * Señal de parada compartida entre el hilo que pide parar (el temporizador
+ * del entorno, con timeout()) y el hilo de búsqueda.
+ *
+ * La búsqueda llama a {@link #sondear()} en cada unidad de trabajo (nodo,
+ * paso de completarPath, evaluación); solo una de cada
+ * {@code MASCARA + 1} llamadas lee la variable volatile y el reloj, el resto
+ * es un contador local. Como cada unidad tiene un coste acotado por el
+ * tamaño del tablero, el tiempo entre timeout() y que la búsqueda lo vea
+ * también está acotado; a partir de ahí solo queda deshacer la recursión.
+ *
+ * La petición se borra con {@link #limpiar()} al acabar el movimiento, no
+ * al empezarlo: si el entorno avisa antes de que el hilo de búsqueda llegue
+ * a empezar (en una máquina cargada puede pasar), la búsqueda para enseguida
+ * en lugar de perder el aviso. Un aviso que llegue justo después del
+ * limpiar() de move() lo borra MoveExecutor al marcar el movimiento como
+ * acabado (PropPlayer.clearTimeout()), bajo el mismo cerrojo que la alarma.
+ *
+ * Todos los métodos salvo {@link #cancelar()} son del hilo de búsqueda.
+ */
+public final class Cancelacion {
+
+    /** Cada cuántas unidades de trabajo (máscara) se consulta la señal. */
+    public static final int MASCARA = 15;
+
+    private volatile boolean pedida;
+    private volatile long instante;
+    private boolean conLimite;
+    private long limite;
+    private boolean parada;
+    private int contador;
+
+    /**
+     * Empieza una búsqueda nueva, sin límite de tiempo. Una petición de
+     * parada ya recibida se mantiene.
+     */
+    public void reiniciar() {
+        conLimite = false;
+        parada = false;
+        contador = 0;
+    }
+
+    /**
+     * Borra la petición de parada, al acabar el movimiento.
+     */
+    public void limpiar() {
+        pedida = false;
+    }
+
+    /**
+     * Pide que la búsqueda pare; se puede llamar desde cualquier hilo.
+     */
+    public void cancelar() {
+        instante = System.nanoTime();
+        pedida = true;
+    }
+
+    /**
+     * La búsqueda también para sola al llegar a {@code nanoTime}.
+     */
+    public void limite(long nanoTime) {
+        limite = nanoTime;
+        conLimite = true;
+    }
+
+    /**
+     * Para la búsqueda desde el propio hilo de búsqueda (por ejemplo, al
+     * llegar a un límite de nodos).
+     */
+    public void parar() {
+        parada = true;
+    }
+
+    /**
+     * Cuenta una unidad de trabajo y, cada MASCARA + 1, mira si hay que
+     * parar.
+     *
+     * @return true si la búsqueda debe parar
+     */
+    public boolean sondear() {
+        if (parada) return true;
+        if ((++contador & MASCARA) != 0) return false;
+        return comprobar();
+    }
+
+    /**
+     * Mira la señal y el límite ahora, sin esperar a la máscara.
+     */
+    public boolean comprobar() {
+        if (!parada && (pedida || conLimite && System.nanoTime() - limite >= 0)) {
+            parada = true;
+        }
+        return parada;
+    }
+
+    /**
+     * Si ya se ha visto la parada; no consulta nada.
+     */
+    public boolean parada() {
+        return parada;
+    }
+
+    /**
+     * Momento (nanoTime) de la última llamada a cancelar().
+     */
+    public long getInstante() {
+        return instante;
+    }
+}
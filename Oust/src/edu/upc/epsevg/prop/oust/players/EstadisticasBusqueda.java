@@ -0,0 +1,151 @@
+package edu.upc.epsevg.prop.oust.players;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Contadores de una búsqueda: nodos, nodos de extensión de capturas,
+ * evaluaciones, consultas y aciertos de la tabla de transposición, posición
+ * de la jugada que provoca cada corte beta y nodos y tiempo por iteración.
+ *
+ * Cada hilo reutiliza su instancia ({@link #inicio()}), que se actualiza con
+ * campos normales sin sincronizar; al acabar la búsqueda se guarda una copia
+ * en el movimiento devuelto.
+ */
+public final class EstadisticasBusqueda {
+
+    /** Posiciones de corte distinguidas; la última agrupa el resto. */
+    public static final int CORTES = 16;
+    private static final int MAX_ITERACIONES = 64;
+
+    private static final ThreadLocal<EstadisticasBusqueda> ACTUAL = ThreadLocal.withInitial(EstadisticasBusqueda::new);
+
+    public long nodos;
+    /** Colocaciones que completan una secuencia de capturas. */
+    public long nodosQuiescencia;
+    public long evaluaciones;
+    public long ttConsultas;
+    public long ttAciertos;
+    /** cortes[i]: cortes beta provocados por la jugada i-ésima del nodo. */
+    public final long[] cortes = new long[CORTES];
+    /** Iteraciones completadas (profundidad alcanzada). */
+    public int iteraciones;
+    public final long[] nodosIteracion = new long[MAX_ITERACIONES];
+    public final long[] nanosIteracion = new long[MAX_ITERACIONES];
+    public long nanos;
+
+    /**
+     * Instancia del hilo actual, puesta a cero.
+     */
+    public static EstadisticasBusqueda inicio() {
+        EstadisticasBusqueda e = ACTUAL.get();
+        e.reiniciar();
+        return e;
+    }
+
+    public void reiniciar() {
+        nodos = 0;
+        nodosQuiescencia = 0;
+        evaluaciones = 0;
+        ttConsultas = 0;
+        ttAciertos = 0;
+        Arrays.fill(cortes, 0);
+        iteraciones = 0;
+        Arrays.fill(nodosIteracion, 0);
+        Arrays.fill(nanosIteracion, 0);
+        nanos = 0;
+    }
+
+    public void corte(int posicion) {
+        cortes[Math.min(posicion, CORTES - 1)]++;
+    }
+
+    /**
+     * Cierra una iteración completa de la profundización iterativa.
+     */
+    public void iteracion(long nodosAntes, long nanos) {
+        if (iteraciones < MAX_ITERACIONES) {
+            nodosIteracion[iteraciones] = nodos - nodosAntes;
+            nanosIteracion[iteraciones] = nanos;
+        }
+        iteraciones++;
+    }
+
+    public EstadisticasBusqueda copia() {
+        EstadisticasBusqueda e = new EstadisticasBusqueda();
+        e.nodos = nodos;
+        e.nodosQuiescencia = nodosQuiescencia;
+        e.evaluaciones = evaluaciones;
+        e.ttConsultas = ttConsultas;
+        e.ttAciertos = ttAciertos;
+        System.arraycopy(cortes, 0, e.cortes, 0, CORTES);
+        e.iteraciones = iteraciones;
+        System.arraycopy(nodosIteracion, 0, e.nodosIteracion, 0, MAX_ITERACIONES);
+        System.arraycopy(nanosIteracion, 0, e.nanosIteracion, 0, MAX_ITERACIONES);
+        e.nanos = nanos;
+        return e;
+    }
+
+    public double nodosPorSegundo() {
+        return nanos == 0 ? 0 : (nodos + nodosQuiescencia) * 1e9 / nanos;
+    }
+
+    /**
+     * Factor de ramificación efectivo: cociente de nodos entre las dos
+     * últimas iteraciones, o la raíz d-ésima de los nodos con una sola.
+     */
+    public double factorRamificacion() {
+        int n = Math.min(iteraciones, MAX_ITERACIONES);
+        if (n >= 2 && nodosIteracion[n - 2] > 0) {
+            return (double) nodosIteracion[n - 1] / nodosIteracion[n - 2];
+        }
+        return n == 0 || nodos == 0 ? 0 : Math.pow(nodos, 1.0 / n);
+    }
+
+    /**
+     * Fracción de cortes provocados por la primera jugada.
+     */
+    public double cortesPrimera() {
+        long total = 0;
+        for (long c : cortes) total += c;
+        return total == 0 ? 0 : (double) cortes[0] / total;
+    }
+
+    public static String cabeceraCsv() {
+        return "nodos,nodosQuiescencia,nps,ebf,evaluaciones,ttConsultas,ttAciertos,cortesPrimera,cortes,profundidad,ms,msIteracion";
+    }
+
+    public String toCsv() {
+        return String.format(Locale.ROOT, "%d,%d,%.0f,%.3f,%d,%d,%d,%.4f,%s,%d,%.3f,%s",
+                nodos, nodosQuiescencia, nodosPorSegundo(), factorRamificacion(), evaluaciones,
+                ttConsultas, ttAciertos, cortesPrimera(), lista(cortes, CORTES, ' ', 1),
+                iteraciones, nanos / 1e6, lista(nanosIteracion, Math.min(iteraciones, MAX_ITERACIONES), ' ', 1e6));
+    }
+
+    public String toJson() {
+        return String.format(Locale.ROOT, "{\"nodos\":%d,\"nodosQuiescencia\":%d,\"nps\":%.0f,\"ebf\":%.3f,"
+                + "\"evaluaciones\":%d,\"ttConsultas\":%d,\"ttAciertos\":%d,\"cortes\":[%s],"
+                + "\"profundidad\":%d,\"ms\":%.3f,\"nodosIteracion\":[%s],\"msIteracion\":[%s]}",
+                nodos, nodosQuiescencia, nodosPorSegundo(), factorRamificacion(), evaluaciones,
+                ttConsultas, ttAciertos, lista(cortes, CORTES, ',', 1), iteraciones, nanos / 1e6,
+                lista(nodosIteracion, Math.min(iteraciones, MAX_ITERACIONES), ',', 1),
+                lista(nanosIteracion, Math.min(iteraciones, MAX_ITERACIONES), ',', 1e6));
+    }
+
+    private static String lista(long[] v, int n, char sep, double div) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < n; i++) {
+            if (i > 0) sb.append(sep);
+            if (div == 1) sb.append(v[i]);
+            else sb.append(String.format(Locale.ROOT, "%.3f", v[i] / div));
+        }
+        return sb.toString();
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.ROOT, "prof %d, %d nodos (+%d q), %.0f nps, ebf %.2f, %d evals, tt %d/%d, 1a jugada %.0f%% de cortes",
+                iteraciones, nodos, nodosQuiescencia, nodosPorSegundo(), factorRamificacion(), evaluaciones,
+                ttAciertos, ttConsultas, 100 * cortesPrimera());
+    }
+}
@@ -0,0 +1,193 @@
+package edu.upc.epsevg.prop.oust.players;
+
+import edu.upc.epsevg.prop.oust.GameStatus;
+import edu.upc.epsevg.prop.oust.PlayerType;
+import java.awt.Point;
+import java.util.List;
+
+/**
+ * Evaluación por lotes de las posiciones hijas de un mismo padre.
+ *
+ * El padre se pasa una sola vez a bitboards; cada hijo (colocación y, si
+ * toca, captura de los grupos rivales adyacentes) se construye sobre esos
+ * bitboards sin copiar {@link GameStatus}. Los hijos se guardan como
+ * estructura de arrays (palabra w del hijo i en [w * capacidad + i]) y se
+ * puntúan todos en una sola pasada por casilla con la misma fórmula que
+ * {@link Heuristica#eval}.
+ *
+ * No es thread-safe: cada jugador usa su propia instancia.
+ */
+public final class EvaluacionLotes {
+
+    private final Geometria geo;
+    private final int words;
+    /** Máscaras de los anillos 1 y 2 de cada casilla: [casilla][palabra]. */
+    private final long[][] anillo1;
+    private final long[][] anillo2;
+
+    private long[] padre1;
+    private long[] padre2;
+    private int capacidad;
+    /** Bitboards de los hijos, por color absoluto (PLAYER1 / PLAYER2). */
+    private long[] hijos1;
+    private long[] hijos2;
+    private int[] pila;
+    private long[] visto;
+
+    public EvaluacionLotes(int size) {
+        geo = Geometria.de(size);
+        words = (geo.cells + 63) >>> 6;
+        anillo1 = new long[geo.cells][words];
+        anillo2 = new long[geo.cells][words];
+        for (int k = 0; k < geo.cells; k++) {
+            for (int v : geo.vecinos1[k]) anillo1[k][v >>> 6] |= 1L << v;
+            for (int v : geo.vecinos2[k]) anillo2[k][v >>> 6] |= 1L << v;
+        }
+        padre1 = new long[words];
+        padre2 = new long[words];
+        pila = new int[geo.cells];
+        visto = new long[words];
+        reservar(16);
+    }
+
+    /**
+     * Puntúa, desde el punto de vista de {@code p}, el resultado de colocar
+     * cada una de las piedras de {@code movimientos} sobre {@code padre}.
+     * Equivale a copiar el padre, hacer placeStone y llamar a
+     * {@link Heuristica#eval} para cada hijo.
+     */
+    public int[] evaluar(GameStatus padre, List<Point> movimientos, PlayerType p) {
+        int n = movimientos.size();
+        int[] res = new int[n];
+        if (n == 0) return res;
+        reservar(n);
+        cargarPadre(padre);
+        int mueve = PlayerType.to_01(padre.getCurrentPlayer());
+        for (int i = 0; i < n; i++) {
+            construirHijo(i, geo.index(movimientos.get(i)), mueve);
+        }
+        puntuar(n, PlayerType.to_01(p), res);
+        return res;
+    }
+
+    private void reservar(int n) {
+        if (n <= capacidad) return;
+        capacidad = Math.max(n, capacidad * 2);
+        hijos1 = new long[words * capacidad];
+        hijos2 = new long[words * capacidad];
+    }
+
+    private void cargarPadre(GameStatus s) {
+        for (int w = 0; w < words; w++) {
+            padre1[w] = 0;
+            padre2[w] = 0;
+        }
+        for (int k = 0; k < geo.cells; k++) {
+            PlayerType c = s.getColor(geo.puntos[k]);
+            if (c == PlayerType.PLAYER1) padre1[k >>> 6] |= 1L << k;
+            else if (c == PlayerType.PLAYER2) padre2[k >>> 6] |= 1L << k;
+        }
+    }
+
+    /**
+     * Coloca en el hijo i la piedra k del jugador {@code mueve}. Si toca
+     * piedras propias es una captura: se eliminan todos los grupos rivales
+     * adyacentes al grupo resultante (la jugada ya viene validada por
+     * getMoves, así que todos son menores).
+     */
+    private void construirHijo(int i, int k, int mueve) {
+        int cap = capacidad;
+        long[] propias = mueve == 0 ? hijos1 : hijos2;
+        long[] rivales = mueve == 0 ? hijos2 : hijos1;
+        long[] pp = mueve == 0 ? padre1 : padre2;
+        long[] pr = mueve == 0 ? padre2 : padre1;
+        for (int w = 0; w < words; w++) {
+            propias[w * cap + i] = pp[w];
+            rivales[w * cap + i] = pr[w];
+        }
+        propias[(k >>> 6) * cap + i] |= 1L << k;
+
+        boolean captura = false;
+        for (int v : geo.vecinos1[k]) {
+            if ((pp[v >>> 6] & (1L << v)) != 0) {
+                captura = true;
+                break;
+            }
+        }
+        if (!captura) return;
+
+        // Recorremos el grupo propio y, al encontrar un rival, borramos su grupo
+        for (int w = 0; w < words; w++) visto[w] = 0;
+        int top = 0;
+        pila[top++] = k;
+        visto[k >>> 6] |= 1L << k;
+        while (top > 0) {
+            int c = pila[--top];
+            for (int v : geo.vecinos1[c]) {
+                int vw = v >>> 6;
+                long vb = 1L << v;
+                if ((visto[vw] & vb) != 0) continue;
+                if ((propias[vw * cap + i] & vb) != 0) {
+                    visto[vw] |= vb;
+                    pila[top++] = v;
+                } else if ((rivales[vw * cap + i] & vb) != 0) {
+                    borrarGrupo(rivales, i, v);
+                }
+            }
+        }
+    }
+
+    private void borrarGrupo(long[] rivales, int i, int inicio) {
+        int cap = capacidad;
+        // La pila de borrado va desde el final para no pisar la del grupo propio
+        int fondo = pila.length - 1;
+        int top = fondo;
+        pila[top--] = inicio;
+        rivales[(inicio >>> 6) * cap + i] &= ~(1L << inicio);
+        while (top < fondo) {
+            int c = pila[++top];
+            for (int v : geo.vecinos1[c]) {
+                int idx = (v >>> 6) * cap + i;
+                long vb = 1L << v;
+                if ((rivales[idx] & vb) != 0) {
+                    rivales[idx] &= ~vb;
+                    pila[top--] = v;
+                }
+            }
+        }
+    }
+
+    /**
+     * Una pasada por casilla; el bucle interior recorre los hijos, que están
+     * contiguos en memoria.
+     */
+    private void puntuar(int n, int pIdx, int[] res) {
+        int cap = capacidad;
+        Pesos pesos = Pesos.actual();
+        for (int k = 0; k < geo.cells; k++) {
+            int kw = k >>> 6;
+            long kb = 1L << k;
+            long[] r1 = anillo1[k];
+            long[] r2 = anillo2[k];
+            for (int i = 0; i < n; i++) {
+                int c;
+                if ((hijos1[kw * cap + i] & kb) != 0) c = 0;
+                else if ((hijos2[kw * cap + i] & kb) != 0) c = 1;
+                else continue;
+                long[] propias = c == 0 ? hijos1 : hijos2;
+                long[] rivales = c == 0 ? hijos2 : hijos1;
+                int r1p = 0, r1r = 0, r2p = 0, r2r = 0;
+                for (int w = 0; w < words; w++) {
+                    long a = propias[w * cap + i];
+                    long b = rivales[w * cap + i];
+                    r1p += Long.bitCount(r1[w] & a);
+                    r1r += Long.bitCount(r1[w] & b);
+                    r2p += Long.bitCount(r2[w] & a);
+                    r2r += Long.bitCount(r2[w] & b);
+                }
+                int val = pesos.valor(r1p, r1r, r2p, r2r);
+                res[i] += (c == pIdx) ? val : -val;
+            }
+        }
+    }
+}
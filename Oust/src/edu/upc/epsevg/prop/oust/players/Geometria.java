@@ -0,0 +1,135 @@
+package edu.upc.epsevg.prop.oust.players;
+
+import edu.upc.epsevg.prop.oust.GameStatus;
+import java.awt.Point;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Geometría precalculada del tablero hexagonal: índice compacto de cada
+ * casilla válida y sus vecinos a distancia 1 y 2.
+ *
+ * Las instancias son inmutables y se comparten entre hilos.
+ */
+public final class Geometria {
+
+    /** Direcciones hexagonales, en el mismo orden que en {@link Heuristica}. */
+    static final int[][] DIRS = {
+        {0, 1}, {1, 0}, {1, 1}, {0, -1}, {-1, 0}, {-1, -1}
+    };
+
+    private static final Geometria[] CACHE = new Geometria[32];
+
+    /** Lado del hexágono. */
+    public final int size;
+    /** Lado del cuadrado que contiene el hexágono (2*size-1). */
+    public final int square;
+    /** Número de casillas válidas. */
+    public final int cells;
+    /** Índice compacto de cada (fila, columna), -1 si está fuera del tablero. */
+    public final int[][] index;
+    /** Punto de cada índice compacto. */
+    public final Point[] puntos;
+    /** Vecinos a distancia 1 de cada casilla. */
+    public final int[][] vecinos1;
+    /** Casillas a distancia 2 (sin repetir ni la propia) de cada casilla. */
+    public final int[][] vecinos2;
+    /**
+     * Las 12 simetrías del hexágono como permutaciones de índices:
+     * simetrias[t][k] es la casilla a la que va k. La 0 es la identidad,
+     * 0-5 son giros de 60° y 6-11 los mismos giros tras una reflexión.
+     */
+    public final int[][] simetrias;
+
+    private Geometria(int size) {
+        this.size = size;
+        this.square = 2 * size - 1;
+        GameStatus s = new GameStatus(size);
+
+        index = new int[square][square];
+        List<Point> ps = new ArrayList<>();
+        for (int i = 0; i < square; i++) {
+            for (int j = 0; j < square; j++) {
+                Point p = new Point(i, j);
+                if (s.isInBounds(p)) {
+                    index[i][j] = ps.size();
+                    ps.add(p);
+                } else {
+                    index[i][j] = -1;
+                }
+            }
+        }
+        cells = ps.size();
+        puntos = ps.toArray(new Point[cells]);
+
+        vecinos1 = new int[cells][];
+        vecinos2 = new int[cells][];
+        for (int k = 0; k < cells; k++) {
+            Point pt = puntos[k];
+            // Mismo recorrido que Heuristica.eval, para que los anillos coincidan
+            Set<Point> visitados = new HashSet<>();
+            List<Integer> r1 = new ArrayList<>();
+            List<Integer> r2 = new ArrayList<>();
+            for (int[] d : DIRS) {
+                Point v1 = new Point(pt.x + d[0], pt.y + d[1]);
+                if (!s.isInBounds(v1)) continue;
+                visitados.add(v1);
+                r1.add(index[v1.x][v1.y]);
+            }
+            for (int[] d1 : DIRS) {
+                Point v1 = new Point(pt.x + d1[0], pt.y + d1[1]);
+                if (!s.isInBounds(v1)) continue;
+                for (int[] d2 : DIRS) {
+                    Point v2 = new Point(v1.x + d2[0], v1.y + d2[1]);
+                    if (!s.isInBounds(v2) || visitados.contains(v2) || v2.equals(pt)) continue;
+                    visitados.add(v2);
+                    r2.add(index[v2.x][v2.y]);
+                }
+            }
+            vecinos1[k] = r1.stream().mapToInt(Integer::intValue).toArray();
+            vecinos2[k] = r2.stream().mapToInt(Integer::intValue).toArray();
+        }
+
+        // Coordenadas axiales centradas: a = x - c, b = c - y. Giro de 60°:
+        // (a, b) -> (-b, a + b); reflexión: (a, b) -> (a, -a - b)
+        int c = size - 1;
+        simetrias = new int[12][cells];
+        for (int t = 0; t < 12; t++) {
+            for (int k = 0; k < cells; k++) {
+                int a = puntos[k].x - c;
+                int b = c - puntos[k].y;
+                if (t >= 6) {
+                    b = -a - b;
+                }
+                for (int g = 0; g < t % 6; g++) {
+                    int na = -b;
+                    b = a + b;
+                    a = na;
+                }
+                simetrias[t][k] = index[a + c][c - b];
+            }
+        }
+    }
+
+    /**
+     * Geometría para un tablero de lado {@code size}.
+     */
+    public static Geometria de(int size) {
+        Geometria g = CACHE[size];
+        if (g == null) {
+            // Carrera benigna: la clase es inmutable
+            g = new Geometria(size);
+            CACHE[size] = g;
+        }
+        return g;
+    }
+
+    /**
+     * Índice compacto de un punto del tablero.
+     */
+    public int index(Point p) {
+        return index[p.x][p.y];
+    }
+}
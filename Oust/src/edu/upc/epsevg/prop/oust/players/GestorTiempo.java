@@ -0,0 +1,122 @@
+package edu.upc.epsevg.prop.oust.players;
+
+import edu.upc.epsevg.prop.oust.GameStatus;
+import java.awt.Point;
+
+/**
+ * Reparte el tiempo de un movimiento entre las iteraciones de la
+ * profundización iterativa.
+ *
+ * A partir del tiempo por movimiento que da el entorno calcula dos límites:
+ * <ul>
+ * <li>duro: el presupuesto menos un margen de seguridad; la búsqueda se
+ * corta al llegar a él, antes de que el entorno llame a timeout();</li>
+ * <li>blando: no se empieza otra iteración pasado este tiempo. Depende de
+ * la fase de la partida (más tiempo en el medio juego) y se reduce cuando
+ * la mejor jugada de la raíz se mantiene entre iteraciones.</li>
+ * </ul>
+ * Tampoco se empieza una iteración si, con los nodos por segundo medidos y
+ * el factor de ramificación de las dos últimas iteraciones, no acabaría
+ * antes del límite duro: una iteración cortada no se aprovecha.
+ */
+public class GestorTiempo {
+
+    /** Factor de ramificación efectivo mientras no hay dos iteraciones. */
+    private static final double RAMIFICACION_INICIAL = 4;
+
+    private final long presupuesto;
+    private final long margen;
+
+    private long inicio;
+    private long blando;
+    private long duro;
+    private Point anterior;
+    private int estables;
+    private long nodosAnteriores;
+
+    /**
+     * @param presupuestoMs tiempo por movimiento del entorno
+     */
+    public GestorTiempo(long presupuestoMs) {
+        this(presupuestoMs, Math.max(20, presupuestoMs / 20));
+    }
+
+    /**
+     * @param presupuestoMs tiempo por movimiento del entorno
+     * @param margenMs tiempo que se deja sin usar antes del límite del entorno
+     */
+    public GestorTiempo(long presupuestoMs, long margenMs) {
+        this.presupuesto = presupuestoMs * 1_000_000L;
+        this.margen = Math.min(margenMs * 1_000_000L, presupuesto / 2);
+    }
+
+    /**
+     * Empieza un movimiento en la posición s, con {@code jugadas} jugadas
+     * legales en la raíz.
+     *
+     * @param t0 momento (nanoTime) en que se ha empezado el movimiento
+     */
+    public void inicio(GameStatus s, int jugadas, long t0) {
+        inicio = t0;
+        duro = presupuesto - margen;
+        anterior = null;
+        estables = 0;
+        nodosAnteriores = 0;
+        if (jugadas <= 1) {
+            blando = 0;
+            return;
+        }
+        // Fracción ocupada: 0 al principio, 1 con el tablero lleno
+        Geometria geo = Geometria.de(s.getSize());
+        int ocupadas = 0;
+        for (Point p : geo.puntos) {
+            if (s.getColor(p) != null) ocupadas++;
+        }
+        double f = (double) ocupadas / geo.cells;
+        double fase = 0.7 + 0.6 * 4 * f * (1 - f);
+        blando = (long) (duro * 0.6 * fase);
+    }
+
+    /**
+     * Decide, al acabar una iteración, si se empieza la siguiente.
+     *
+     * @param mejor jugada elegida en la raíz
+     * @param nodos nodos de la iteración acabada
+     * @param nodosTotales nodos de todo el movimiento
+     */
+    public boolean seguir(Point mejor, long nodos, long nodosTotales) {
+        long t = System.nanoTime() - inicio;
+        if (mejor != null && mejor.equals(anterior)) {
+            estables++;
+        } else {
+            estables = 0;
+        }
+        anterior = mejor;
+        // Con la jugada estable durante 4 iteraciones solo se usa la mitad
+        double estabilidad = 1 - 0.125 * Math.min(estables, 4);
+        if (t >= blando * estabilidad) return false;
+
+        double ramificacion = nodosAnteriores > 0 ? (double) nodos / nodosAnteriores : RAMIFICACION_INICIAL;
+        ramificacion = Math.max(1.5, Math.min(ramificacion, 16));
+        nodosAnteriores = Math.max(1, nodos);
+        double nps = nodosTotales * 1e9 / Math.max(1, t);
+        double siguiente = nps > 0 ? nodos * ramificacion / nps * 1e9 : 0;
+        return t + siguiente < duro;
+    }
+
+    /**
+     * Momento (nanoTime) del límite duro, para la {@link Cancelacion} de la
+     * búsqueda.
+     */
+    public long getLimite() {
+        return inicio + duro;
+    }
+
+    public long getBlandoNanos() {
+        return blando;
+    }
+
+    public long getDuroNanos() {
+        return duro;
+    }
+}
@@ -19,6 +19,7 @@ public class Heuristica {
      * Evaluació
      */
     public static int eval(GameStatus s, PlayerType p) {
+        Pesos w = Pesos.actual();
         int score = 0;
         int size = s.getSquareSize();
         
@@ -30,7 +31,7 @@ public class Heuristica {
                 PlayerType c = s.getColor(pt);
                 if (c == null) continue;
                 
-                int val = 10; 
+                int val = w.base; 
                 
 
                 int r1Propios = 0;
@@ -73,10 +74,10 @@ public class Heuristica {
                 }
                 
                 // VALORACIÓN
-                val += r1Propios * r1Propios * 3;  // Conexiones directas
-                val -= r1Rivales * 15;              // Contacto rival
-                val += r2Propios * 2;               // Soporte indirecto
-                val -= r2Rivales * 3;               // Presión lejana
+                val += r1Propios * r1Propios * w.conexiones;  // Conexiones directas
+                val += r1Rivales * w.contacto;                // Contacto rival
+                val += r2Propios * w.soporte;                 // Soporte indirecto
+                val += r2Rivales * w.presion;                 // Presión lejana
                 
                 score += (c == p) ? val : -val;
             }
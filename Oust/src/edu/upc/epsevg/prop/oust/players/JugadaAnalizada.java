@@ -0,0 +1,27 @@
+package edu.upc.epsevg.prop.oust.players;
+
+import java.awt.Point;
+import java.util.List;
+
+/**
+ * Una jugada de la raíz con su valor, resultado de
+ * {@link PropPlayer#analizar}.
+ */
+public final class JugadaAnalizada {
+
+    /** Turno completo: la jugada y las capturas que la siguen. */
+    public final List<Point> camino;
+    /** Valor para quien mueve. */
+    public final int valor;
+    /** Profundidad de la búsqueda que ha dado el valor; 0 si no hay. */
+    public final int profundidad;
+    /** Variación principal, un turno por elemento separados por espacios. */
+    public final String pv;
+
+    public JugadaAnalizada(List<Point> camino, int valor, int profundidad, String pv) {
+        this.camino = camino;
+        this.valor = valor;
+        this.profundidad = profundidad;
+        this.pv = pv;
+    }
+}
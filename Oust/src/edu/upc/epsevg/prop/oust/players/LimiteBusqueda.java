@@ -0,0 +1,43 @@
+package edu.upc.epsevg.prop.oust.players;
+
+/**
+ * Cuándo para un análisis: a una profundidad, tras un número de nodos o
+ * tras un tiempo; lo que llegue antes. Además para siempre con timeout()
+ * y con la profundidad máxima del jugador.
+ */
+public final class LimiteBusqueda {
+
+    /** Sin más límite que los del jugador. */
+    public static final LimiteBusqueda NINGUNO = new LimiteBusqueda(Integer.MAX_VALUE, 0, 0);
+
+    public final int profundidad;
+    /** Nodos de minimax (sin los de completarPath); 0 sin límite. */
+    public final long nodos;
+    /** 0 sin límite. */
+    public final long milisegundos;
+
+    private LimiteBusqueda(int profundidad, long nodos, long milisegundos) {
+        this.profundidad = profundidad;
+        this.nodos = nodos;
+        this.milisegundos = milisegundos;
+    }
+
+    public static LimiteBusqueda profundidad(int d) {
+        return new LimiteBusqueda(d, 0, 0);
+    }
+
+    public static LimiteBusqueda nodos(long n) {
+        return new LimiteBusqueda(Integer.MAX_VALUE, n, 0);
+    }
+
+    public static LimiteBusqueda tiempo(long ms) {
+        return new LimiteBusqueda(Integer.MAX_VALUE, 0, ms);
+    }
+
+    @Override
+    public String toString() {
+        if (nodos > 0) return nodos + " nodos";
+        if (milisegundos > 0) return milisegundos + " ms";
+        return profundidad == Integer.MAX_VALUE ? "sin límite" : "profundidad " + profundidad;
+    }
+}
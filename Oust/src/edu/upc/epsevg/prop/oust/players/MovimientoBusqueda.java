@@ -0,0 +1,25 @@
+package edu.upc.epsevg.prop.oust.players;
+
+import edu.upc.epsevg.prop.oust.PlayerMove;
+import edu.upc.epsevg.prop.oust.SearchType;
+import java.awt.Point;
+import java.util.List;
+
+/**
+ * PlayerMove que además lleva las estadísticas de la búsqueda que lo ha
+ * producido.
+ */
+public class MovimientoBusqueda extends PlayerMove {
+
+    private final EstadisticasBusqueda estadisticas;
+
+    public MovimientoBusqueda(List<Point> points, SearchType type, float h, EstadisticasBusqueda estadisticas) {
+        super(points, estadisticas.nodos, estadisticas.iteraciones, type);
+        setH(h);
+        this.estadisticas = estadisticas;
+    }
+
+    public EstadisticasBusqueda getEstadisticas() {
+        return estadisticas;
+    }
+}
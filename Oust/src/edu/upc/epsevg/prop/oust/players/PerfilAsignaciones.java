@@ -0,0 +1,105 @@
+package edu.upc.epsevg.prop.oust.players;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+
+/**
+ * Bytes reservados por el hilo de búsqueda, repartidos por fase, leídos de
+ * {@code com.sun.management.ThreadMXBean.getThreadAllocatedBytes}.
+ *
+ * Cada cambio de fase lee el contador del hilo y atribuye lo reservado
+ * desde la lectura anterior a la fase que se deja, de manera que las fases
+ * anidadas (la evaluación dentro de completar un camino, por ejemplo) no
+ * se cuentan dos veces. Leer el contador cuesta unas decenas de
+ * nanosegundos y no reserva memoria; sin perfil, PropPlayer no lo lee.
+ *
+ * No es seguro entre hilos: un perfil por jugador y búsqueda.
+ */
+public final class PerfilAsignaciones {
+
+    /** getMoves() y la ordenación de las jugadas. */
+    public static final int GENERACION = 0;
+    /** Heurística, red o evaluación en lote de hijos. */
+    public static final int EVALUACION = 1;
+    /** Copia del estado y colocaciones hasta acabar el turno. */
+    public static final int CAMINOS = 2;
+    /** Lo demás: tabla de transposición, listas de la raíz, telemetría... */
+    public static final int RESTO = 3;
+    public static final int FASES = 4;
+    public static final String[] NOMBRES = {"generación", "evaluación", "caminos", "resto"};
+
+    private static final com.sun.management.ThreadMXBean MX = bean();
+
+    private final long[] bytes = new long[FASES];
+    private int fase = RESTO;
+    private long marca;
+    private long hilo;
+
+    private static com.sun.management.ThreadMXBean bean() {
+        java.lang.management.ThreadMXBean b = ManagementFactory.getThreadMXBean();
+        if (!(b instanceof com.sun.management.ThreadMXBean)) return null;
+        com.sun.management.ThreadMXBean mx = (com.sun.management.ThreadMXBean) b;
+        if (!mx.isThreadAllocatedMemorySupported()) return null;
+        mx.setThreadAllocatedMemoryEnabled(true);
+        return mx;
+    }
+
+    /**
+     * Si la JVM sabe contar los bytes reservados por hilo.
+     */
+    public static boolean disponible() {
+        return MX != null;
+    }
+
+    public PerfilAsignaciones() {
+        if (MX == null) throw new UnsupportedOperationException("La JVM no cuenta los bytes reservados por hilo");
+    }
+
+    /**
+     * Empieza a contar en el hilo actual, en la fase RESTO. Lo contado
+     * antes se conserva.
+     */
+    void empezar() {
+        hilo = Thread.currentThread().getId();
+        fase = RESTO;
+        marca = MX.getThreadAllocatedBytes(hilo);
+    }
+
+    /**
+     * Pasa a la fase f.
+     *
+     * @return la fase que se deja, para volver a ella
+     */
+    int entrar(int f) {
+        long ahora = MX.getThreadAllocatedBytes(hilo);
+        bytes[fase] += ahora - marca;
+        marca = ahora;
+        int anterior = fase;
+        fase = f;
+        return anterior;
+    }
+
+    /**
+     * Atribuye lo que queda a la fase actual; hasta el próximo empezar()
+     * no se cuenta nada más.
+     */
+    void terminar() {
+        entrar(RESTO);
+    }
+
+    public long getBytes(int fase) {
+        return bytes[fase];
+    }
+
+    public long getTotal() {
+        long t = 0;
+        for (long b : bytes) {
+            t += b;
+        }
+        return t;
+    }
+
+    public void reiniciar() {
+        Arrays.fill(bytes, 0);
+    }
+}
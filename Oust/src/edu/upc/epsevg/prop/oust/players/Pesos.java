@@ -0,0 +1,116 @@
+package edu.upc.epsevg.prop.oust.players;
+
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.Properties;
+
+/**
+ * Pesos de {@link Heuristica}. El valor de cada piedra es
+ * <pre>
+ *   base + conexiones·r1p² + contacto·r1r + soporte·r2p + presion·r2r
+ * </pre>
+ * con r1p/r1r las piedras propias/rivales a distancia 1 y r2p/r2r a
+ * distancia 2.
+ *
+ * Al arrancar se cargan del fichero indicado con {@code -Doust.pesos=fichero}
+ * (formato Properties); si no, se usan los de siempre.
+ */
+public final class Pesos {
+
+    /** Los pesos escogidos a mano: 10, ×3, −15, +2, −3. */
+    public static final Pesos DEFECTO = new Pesos(10, 3, -15, 2, -3);
+
+    public static final String[] NOMBRES = {"base", "conexiones", "contacto", "soporte", "presion"};
+
+    private static volatile Pesos actual;
+
+    public final int base;
+    public final int conexiones;
+    public final int contacto;
+    public final int soporte;
+    public final int presion;
+
+    public Pesos(int base, int conexiones, int contacto, int soporte, int presion) {
+        this.base = base;
+        this.conexiones = conexiones;
+        this.contacto = contacto;
+        this.soporte = soporte;
+        this.presion = presion;
+    }
+
+    /**
+     * Pesos en el orden de {@link #NOMBRES}.
+     */
+    public static Pesos de(int[] w) {
+        return new Pesos(w[0], w[1], w[2], w[3], w[4]);
+    }
+
+    public int[] toArray() {
+        return new int[]{base, conexiones, contacto, soporte, presion};
+    }
+
+    /**
+     * Pesos que usan la Heurística y la evaluación por lotes.
+     */
+    public static Pesos actual() {
+        Pesos p = actual;
+        if (p == null) {
+            String f = System.getProperty("oust.pesos");
+            try {
+                p = f == null ? DEFECTO : cargar(new File(f));
+            } catch (IOException ex) {
+                throw new IllegalStateException("No se pueden leer los pesos de " + f, ex);
+            }
+            actual = p;
+        }
+        return p;
+    }
+
+    /**
+     * Cambia los pesos de todas las evaluaciones a partir de ahora.
+     */
+    public static void usar(Pesos p) {
+        actual = p;
+    }
+
+    public static Pesos cargar(File f) throws IOException {
+        Properties props = new Properties();
+        try (Reader r = new FileReader(f)) {
+            props.load(r);
+        }
+        int[] w = DEFECTO.toArray();
+        for (int i = 0; i < w.length; i++) {
+            String v = props.getProperty(NOMBRES[i]);
+            if (v != null) w[i] = Integer.parseInt(v.trim());
+        }
+        return de(w);
+    }
+
+    public void guardar(File f, String comentario) throws IOException {
+        Properties props = new Properties();
+        int[] w = toArray();
+        for (int i = 0; i < w.length; i++) {
+            props.setProperty(NOMBRES[i], Integer.toString(w[i]));
+        }
+        try (Writer out = new FileWriter(f)) {
+            props.store(out, comentario);
+        }
+    }
+
+    /**
+     * Valor de una piedra según sus vecinas.
+     */
+    public int valor(int r1p, int r1r, int r2p, int r2r) {
+        return base + conexiones * r1p * r1p + contacto * r1r + soporte * r2p + presion * r2r;
+    }
+
+    @Override
+    public String toString() {
+        return "base=" + base + " conexiones=" + conexiones + " contacto=" + contacto
+                + " soporte=" + soporte + " presion=" + presion;
+    }
+}
@@ -5,59 +5,309 @@ import edu.upc.epsevg.prop.oust.IAuto;
 import edu.upc.epsevg.prop.oust.IPlayer;
 import edu.upc.epsevg.prop.oust.PlayerMove;
 import edu.upc.epsevg.prop.oust.PlayerType;
+import edu.upc.epsevg.prop.oust.SearchSnapshot;
+import edu.upc.epsevg.prop.oust.SearchTelemetry;
 import edu.upc.epsevg.prop.oust.SearchType;
+import edu.upc.epsevg.prop.oust.TimeoutAware;
+import edu.upc.epsevg.prop.oust.jfr.SearchIterationEvent;
 import java.awt.Point;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 
 /**
- * Jugador Minimax simple y rápido
+ * Jugador Minimax simple y rápido, con profundización iterativa hasta la
+ * profundidad máxima.
  */
-public class PropPlayer implements IPlayer, IAuto {
+public class PropPlayer implements IPlayer, IAuto, SearchTelemetry, TimeoutAware {
+    
+    /** Cada cuántos nodos (máscara) se publica el estado de la búsqueda. */
+    private static final int MASCARA_PUBLICAR = 255;
+    /** Profundidad mínima de una búsqueda para guardarla en la caché. */
+    private static final int PROFUNDIDAD_CACHE = 3;
     
     private String name;
     private final int MAX_DEPTH;
-    private boolean timeout;
-    private int nodesVisited;
+    private final Cancelacion cancelacion = new Cancelacion();
+    /** Profundidad de la iteración en curso. */
+    private int profundidad;
+    private EstadisticasBusqueda st;
+    private TablaTransposicion tt = new TablaTransposicion(16);
+    private Zobrist zobrist;
+    private List<Point> mejorCamino;
+    private Point mejorJugada;
+    private volatile SearchSnapshot snapshot;
+    private boolean telemetria = true;
+    private long inicio;
+    private int completada;
+    private int valorCompletado;
+    private String pv = "";
+    private EvaluacionLotes lotes;
+    private int lotesSize;
+    private final RedNeuronal red;
+    private Acumulador[] pila;
+    private GestorTiempo tiempo;
+    /** La búsqueda para al llegar a este número de nodos. */
+    private long limiteNodos = Long.MAX_VALUE;
+    /** Límite de nodos de cada move(); 0 sin límite. */
+    private long nodosPorJugada;
+    /** Orden de las jugadas con la misma heurística; 0 el de getMoves(). */
+    private long semilla;
+    private CachePosiciones cache;
+    private boolean cacheAbierta;
+    private PerfilAsignaciones perfil;
     
     public PropPlayer(String name, int depth) {
+        this(name, depth, null);
+    }
+    
+    /**
+     * Jugador que evalúa las hojas con una red NNUE en lugar de la Heurística.
+     */
+    public PropPlayer(String name, int depth, RedNeuronal red) {
         this.name = name;
         this.MAX_DEPTH = depth;
+        this.red = red;
     }
     
     @Override
     public PlayerMove move(GameStatus s) {
-        timeout = false;
-        nodesVisited = 0;
+        cancelacion.reiniciar();
+        limiteNodos = nodosPorJugada > 0 ? nodosPorJugada : Long.MAX_VALUE;
+        if (perfil != null) perfil.empezar();
+        try {
+            return buscar(s);
+        } finally {
+            if (perfil != null) perfil.terminar();
+            limiteNodos = Long.MAX_VALUE;
+            cancelacion.limpiar();
+        }
+    }
+    
+    /**
+     * Todas las jugadas de la raíz, de mejor a peor, con su valor exacto.
+     */
+    public List<JugadaAnalizada> analizar(GameStatus s) {
+        return analizar(s, Integer.MAX_VALUE, LimiteBusqueda.NINGUNO);
+    }
+    
+    /**
+     * Las {@code k} mejores jugadas de la raíz (multi-PV), de mejor a peor,
+     * con su valor exacto, profundidad y variación principal de la última
+     * iteración completa.
+     *
+     * Es una sola búsqueda: todas las jugadas comparten la tabla de
+     * transposición y la ordenación entre iteraciones. Una jugada se busca
+     * con ventana (v_k, +inf), con v_k el valor de la k-ésima mejor hasta el
+     * momento; si no lo supera no está entre las k mejores y su subárbol se
+     * poda como en move(). Con k = 1 el coste es casi el de move().
+     *
+     * Además del límite para con timeout() y con el gestor de tiempo.
+     */
+    public List<JugadaAnalizada> analizar(GameStatus s, int k, LimiteBusqueda limite) {
+        cancelacion.reiniciar();
+        if (perfil != null) perfil.empezar();
+        try {
+            return analizarRaiz(s, Math.max(1, k), limite);
+        } finally {
+            if (perfil != null) perfil.terminar();
+            limiteNodos = Long.MAX_VALUE;
+            cancelacion.limpiar();
+        }
+    }
+    
+    private List<JugadaAnalizada> analizarRaiz(GameStatus s, int k, LimiteBusqueda limite) {
+        long t0 = System.nanoTime();
+        st = EstadisticasBusqueda.inicio();
+        inicio = t0;
+        List<JugadaAnalizada> res = new ArrayList<>();
+        List<Point> moves = generar(s);
+        if (moves.isEmpty()) return res;
+        
+        PlayerType p = s.getCurrentPlayer();
+        zobrist = Zobrist.de(s.getSize());
+        long fin = limite.milisegundos > 0 ? t0 + limite.milisegundos * 1_000_000L : Long.MAX_VALUE;
+        if (tiempo != null) {
+            tiempo.inicio(s, moves.size(), t0);
+            if (limite.milisegundos == 0 || tiempo.getLimite() - fin < 0) fin = tiempo.getLimite();
+        }
+        if (fin != Long.MAX_VALUE) cancelacion.limite(fin);
+        limiteNodos = limite.nodos > 0 ? limite.nodos : Long.MAX_VALUE;
+        if (red != null) {
+            prepararPila(s);
+        }
         
-        List<Point> moves = s.getMoves();
+        int maxima = Math.min(MAX_DEPTH, limite.profundidad);
+        for (profundidad = 1; profundidad <= maxima && !cancelacion.comprobar(); profundidad++) {
+            long n0 = st.nodos;
+            long ti = System.nanoTime();
+            // Las k mejores hasta ahora, ordenadas
+            List<JugadaAnalizada> iteracion = new ArrayList<>(Math.min(k, moves.size()) + 1);
+            for (Point m : moves) {
+                int previa = fase(PerfilAsignaciones.CAMINOS);
+                GameStatus ns = new GameStatus(s);
+                List<Point> path = completarPath(ns, m, p);
+                fin(previa);
+                sincronizar(path, p, 0);
+                int a = iteracion.size() < k ? Integer.MIN_VALUE : iteracion.get(k - 1).valor;
+                int val = minimax(ns, 1, a, Integer.MAX_VALUE, p);
+                if (cancelacion.parada()) break;
+                if (iteracion.size() < k || val > a) {
+                    int i = iteracion.size();
+                    while (i > 0 && iteracion.get(i - 1).valor < val) i--;
+                    iteracion.add(i, new JugadaAnalizada(path, val, profundidad, null));
+                    if (iteracion.size() > k) iteracion.remove(k);
+                }
+            }
+            // De una iteración cortada solo sirven las jugadas acabadas, y
+            // solo si no hay ninguna iteración completa
+            if (cancelacion.parada()) {
+                if (res.isEmpty()) res = iteracion;
+                break;
+            }
+            res = iteracion;
+            st.iteracion(n0, System.nanoTime() - ti);
+            // Las k mejores primero, en su orden; el resto como estaban
+            List<Point> orden = new ArrayList<>(moves.size());
+            for (JugadaAnalizada j : iteracion) {
+                orden.add(j.camino.get(0));
+            }
+            for (Point m : moves) {
+                if (!orden.contains(m)) orden.add(m);
+            }
+            moves = orden;
+            if (tiempo != null && !tiempo.seguir(moves.get(0), st.nodos - n0, st.nodos)) break;
+        }
+        if (res.isEmpty()) {
+            res.add(new JugadaAnalizada(completarPath(new GameStatus(s), moves.get(0), p), 0, 0, null));
+        }
+        // Variaciones principales, de la tabla de transposición
+        List<JugadaAnalizada> conPv = new ArrayList<>(res.size());
+        for (JugadaAnalizada j : res) {
+            conPv.add(new JugadaAnalizada(j.camino, j.valor, j.profundidad, variacionPrincipal(s, j.camino, j.profundidad)));
+        }
+        st.nanos = System.nanoTime() - t0;
+        return conPv;
+    }
+    
+    private PlayerMove buscar(GameStatus s) {
+        long t0 = System.nanoTime();
+        st = EstadisticasBusqueda.inicio();
+        inicio = t0;
+        completada = 0;
+        valorCompletado = 0;
+        pv = "";
+        snapshot = null;
+        
+        List<Point> moves = generar(s);
         if (moves.isEmpty()) {
-            return new PlayerMove(null, nodesVisited, MAX_DEPTH, SearchType.MINIMAX);
+            st.nanos = System.nanoTime() - t0;
+            return new MovimientoBusqueda(null, SearchType.MINIMAX_IDS, 0, st.copia());
         }
         
         PlayerType p = s.getCurrentPlayer();
-        int best = Integer.MIN_VALUE;
+        zobrist = Zobrist.de(s.getSize());
+        if (tiempo != null) {
+            tiempo.inicio(s, moves.size(), t0);
+            cancelacion.limite(tiempo.getLimite());
+        }
+        if (red != null) {
+            prepararPila(s);
+        }
         List<Point> bestPath = null;
+        int best = 0;
+        
+        CachePosiciones c = cache(s.getSize());
+        if (c != null) {
+            CachePosiciones.Entrada e = c.buscar(s);
+            Point m = e != null ? zobrist.geo.puntos[e.jugada] : null;
+            if (m != null && moves.contains(m)) {
+                if (e.profundidad >= MAX_DEPTH) {
+                    // Ya buscada a esta profundidad en otra ejecución
+                    st.iteraciones = e.profundidad;
+                    st.nanos = System.nanoTime() - t0;
+                    return new MovimientoBusqueda(completarPath(new GameStatus(s), m, p), SearchType.MINIMAX_IDS, e.valor, st.copia());
+                }
+                moves = primero(moves, m);
+            }
+        }
+        
+        for (profundidad = 1; profundidad <= MAX_DEPTH && !cancelacion.comprobar(); profundidad++) {
+            long n0 = st.nodos;
+            long ti = System.nanoTime();
+            SearchIterationEvent ev = new SearchIterationEvent();
+            ev.begin();
+            int val = buscarRaiz(s, moves, p);
+            // Una iteración cortada solo sirve si no hay ninguna completa
+            if (cancelacion.parada() && bestPath != null) break;
+            if (mejorCamino != null) {
+                bestPath = mejorCamino;
+                best = val;
+            }
+            if (cancelacion.parada()) break;
+            st.iteracion(n0, System.nanoTime() - ti);
+            ev.end();
+            if (ev.shouldCommit()) {
+                ev.player = getName();
+                ev.depth = profundidad;
+                ev.nodes = st.nodos - n0;
+                ev.score = val;
+                ev.bestMove = formatear(bestPath);
+                ev.commit();
+            }
+            moves = primero(moves, mejorJugada);
+            if (telemetria) {
+                completada = profundidad;
+                valorCompletado = val;
+                pv = variacionPrincipal(s, bestPath, profundidad);
+                publicar();
+            }
+            if (tiempo != null && !tiempo.seguir(mejorJugada, st.nodos - n0, st.nodos)) break;
+        }
+        
+        if (bestPath == null) {
+            // Parada antes de acabar la primera jugada de la raíz: la primera según la ordenación
+            bestPath = completarPath(new GameStatus(s), moves.get(0), p);
+        } else if (c != null && c.isEscritura() && st.iteraciones >= PROFUNDIDAD_CACHE) {
+            c.guardar(s, zobrist.geo.index(bestPath.get(0)), st.iteraciones, best);
+        }
+        st.nanos = System.nanoTime() - t0;
+        if (telemetria) publicar();
+        return new MovimientoBusqueda(bestPath, SearchType.MINIMAX_IDS, best, st.copia());
+    }
+    
+    /**
+     * Una iteración en la raíz; deja el mejor camino en mejorCamino.
+     */
+    private int buscarRaiz(GameStatus s, List<Point> moves, PlayerType p) {
+        int best = Integer.MIN_VALUE;
+        mejorCamino = null;
         int a = Integer.MIN_VALUE;
         int b = Integer.MAX_VALUE;
         
         for (Point m : moves) {
-            if (timeout) break;
+            if (cancelacion.parada()) break;
             
+            int previa = fase(PerfilAsignaciones.CAMINOS);
             GameStatus ns = new GameStatus(s);
             List<Point> path = completarPath(ns, m, p);
+            fin(previa);
+            sincronizar(path, p, 0);
             int val = minimax(ns, 1, a, b, p);
+            // El valor de un subárbol cortado no vale
+            if (cancelacion.parada()) break;
             
-            if (val > best) {
+            if (val > best || mejorCamino == null) {
                 best = val;
-                bestPath = path;
+                mejorCamino = path;
+                mejorJugada = m;
             }
             
             a = Math.max(a, best);
             if (best >= b) break;
         }
-        
-        return new PlayerMove(bestPath, nodesVisited, MAX_DEPTH, SearchType.MINIMAX);
+        return best;
     }
     
     /**
@@ -73,17 +323,21 @@ public class PropPlayer implements IPlayer, IAuto {
             if (conts.isEmpty()) break;
             
             Point mejor = conts.get(0);
+            st.nodosQuiescencia++;
+            // Solo cuenta: un camino a medias sería una jugada ilegal
+            cancelacion.sondear();
             
             // Si hay múltiples opciones, elegir la que da mejor heurística
             if (conts.size() > 1) {
+                st.evaluaciones += conts.size();
+                int previa = fase(PerfilAsignaciones.EVALUACION);
+                int[] vals = lotes(s).evaluar(s, conts, p);
+                fin(previa);
                 int mejorV = Integer.MIN_VALUE;
-                for (Point c : conts) {
-                    GameStatus temp = new GameStatus(s);
-                    temp.placeStone(c);
-                    int v = Heuristica.eval(temp, p);
-                    if (v > mejorV) {
-                        mejorV = v;
-                        mejor = c;
+                for (int i = 0; i < vals.length; i++) {
+                    if (vals[i] > mejorV) {
+                        mejorV = vals[i];
+                        mejor = conts.get(i);
                     }
                 }
             }
@@ -99,7 +353,10 @@ public class PropPlayer implements IPlayer, IAuto {
      * Minimax
      */
     private int minimax(GameStatus s, int d, int a, int b, PlayerType maxP) {
-        nodesVisited++;
+        st.nodos++;
+        if (st.nodos >= limiteNodos) cancelacion.parar();
+        if (telemetria && (st.nodos & MASCARA_PUBLICAR) == 0) publicar();
+        boolean parar = cancelacion.sondear();
         
         if (s.isGameOver()) {
             PlayerType w = s.GetWinner();
@@ -108,42 +365,378 @@ public class PropPlayer implements IPlayer, IAuto {
             return 0;
         }
         
-        if (timeout || d >= MAX_DEPTH) {
-            return Heuristica.eval(s, maxP);
+        if (parar || d >= profundidad) {
+            return evaluar(s, d, maxP);
         }
         
-        List<Point> moves = s.getMoves();
+        List<Point> moves = generar(s);
         if (moves.isEmpty()) {
+            sincronizar(Collections.emptyList(), s.getCurrentPlayer(), d);
             return minimax(s, d + 1, a, b, maxP);
         }
         
+        // La mejor jugada de una iteración anterior va primero
+        long hash = zobrist.hash(s);
+        st.ttConsultas++;
+        int guardada = tt.mejor(hash);
+        if (guardada >= 0 && guardada < zobrist.geo.cells) {
+            List<Point> reordenadas = primero(moves, zobrist.geo.puntos[guardada]);
+            if (reordenadas != null) {
+                st.ttAciertos++;
+                moves = reordenadas;
+            }
+        }
+        
         boolean max = (s.getCurrentPlayer() == maxP);
         int val = max ? Integer.MIN_VALUE : Integer.MAX_VALUE;
+        Point mejor = null;
         
-        for (Point m : moves) {
-            if (timeout) break;
+        for (int i = 0; i < moves.size(); i++) {
+            if (cancelacion.parada()) break;
+            Point m = moves.get(i);
             
+            int previa = fase(PerfilAsignaciones.CAMINOS);
             GameStatus ns = new GameStatus(s);
-            completarPath(ns, m, s.getCurrentPlayer());
+            List<Point> path = completarPath(ns, m, s.getCurrentPlayer());
+            fin(previa);
+            sincronizar(path, s.getCurrentPlayer(), d);
             int v = minimax(ns, d + 1, a, b, maxP);
             
+            if (max ? v > val : v < val) {
+                mejor = m;
+            }
             if (max) {
                 val = Math.max(val, v);
-                if (val >= b) return val;
+                if (val >= b) return corte(hash, m, i, val);
                 a = Math.max(a, val);
             } else {
                 val = Math.min(val, v);
-                if (val <= a) return val;
+                if (val <= a) return corte(hash, m, i, val);
                 b = Math.min(b, val);
             }
         }
         
+        if (mejor != null && !cancelacion.parada()) tt.guardar(hash, zobrist.geo.index(mejor));
         return val;
     }
     
+    private int corte(long hash, Point m, int posicion, int val) {
+        st.corte(posicion);
+        if (!cancelacion.parada()) tt.guardar(hash, zobrist.geo.index(m));
+        return val;
+    }
+    
+    /**
+     * La jugada m al principio de la lista, o null si no está.
+     */
+    private static List<Point> primero(List<Point> moves, Point m) {
+        int i = moves.indexOf(m);
+        if (i < 0) return null;
+        if (i == 0) return moves;
+        List<Point> res = new ArrayList<>(moves.size());
+        res.add(m);
+        for (int j = 0; j < moves.size(); j++) {
+            if (j != i) res.add(moves.get(j));
+        }
+        return res;
+    }
+    
+    /**
+     * Jugadas de s, ordenadas.
+     */
+    private List<Point> generar(GameStatus s) {
+        int previa = fase(PerfilAsignaciones.GENERACION);
+        List<Point> moves = ordenar(s, s.getMoves());
+        fin(previa);
+        return moves;
+    }
+    
+    /**
+     * Pasa el perfil, si hay, a la fase f.
+     *
+     * @return la fase anterior, para fin()
+     */
+    private int fase(int f) {
+        return perfil == null ? 0 : perfil.entrar(f);
+    }
+    
+    private void fin(int previa) {
+        if (perfil != null) perfil.entrar(previa);
+    }
+    
+    /**
+     * Ordena las jugadas de mejor a peor para quien mueve, según la
+     * heurística de cada hijo (evaluados todos en un lote).
+     */
+    private List<Point> ordenar(GameStatus s, List<Point> moves) {
+        if (moves.size() < 2) return moves;
+        st.evaluaciones += moves.size();
+        int previa = fase(PerfilAsignaciones.EVALUACION);
+        int[] v = lotes(s).evaluar(s, moves, s.getCurrentPlayer());
+        fin(previa);
+        Point[] m = moves.toArray(new Point[0]);
+        if (semilla != 0) return ordenarConSemilla(s, v, m);
+        // Inserción: estable y las listas son cortas
+        for (int i = 1; i < m.length; i++) {
+            int vi = v[i];
+            Point mi = m[i];
+            int j = i - 1;
+            while (j >= 0 && v[j] < vi) {
+                v[j + 1] = v[j];
+                m[j + 1] = m[j];
+                j--;
+            }
+            v[j + 1] = vi;
+            m[j + 1] = mi;
+        }
+        return Arrays.asList(m);
+    }
+    
+    /**
+     * Como ordenar(), pero los empates se deshacen con una clave de la
+     * casilla que solo depende de la semilla.
+     */
+    private List<Point> ordenarConSemilla(GameStatus s, int[] v, Point[] m) {
+        Geometria geo = Geometria.de(s.getSize());
+        long[] c = new long[m.length];
+        for (int i = 0; i < m.length; i++) {
+            c[i] = mezclar(semilla + geo.index(m[i]));
+        }
+        for (int i = 1; i < m.length; i++) {
+            int vi = v[i];
+            long ci = c[i];
+            Point mi = m[i];
+            int j = i - 1;
+            while (j >= 0 && (v[j] < vi || (v[j] == vi && c[j] > ci))) {
+                v[j + 1] = v[j];
+                c[j + 1] = c[j];
+                m[j + 1] = m[j];
+                j--;
+            }
+            v[j + 1] = vi;
+            c[j + 1] = ci;
+            m[j + 1] = mi;
+        }
+        return Arrays.asList(m);
+    }
+    
+    /** Finalizador de SplitMix64. */
+    private static long mezclar(long x) {
+        x = (x ^ (x >>> 30)) * 0xBF58476D1CE4E5B9L;
+        x = (x ^ (x >>> 27)) * 0x94D049BB133111EBL;
+        return x ^ (x >>> 31);
+    }
+    
+    /**
+     * Caché del jugador o, si no se ha indicado, la de {@code -Doust.cache};
+     * al abrirla se calienta con ella la tabla de transposición.
+     */
+    private CachePosiciones cache(int size) {
+        if (cache != null && cache.size != size) {
+            cache = null;
+            cacheAbierta = false;
+        }
+        if (!cacheAbierta) {
+            cacheAbierta = true;
+            if (cache == null) cache = CachePosiciones.compartida(size);
+            if (cache != null) cache.calentar(tt);
+        }
+        return cache;
+    }
+    
+    private EvaluacionLotes lotes(GameStatus s) {
+        if (lotes == null || lotesSize != s.getSize()) {
+            lotes = new EvaluacionLotes(s.getSize());
+            lotesSize = s.getSize();
+        }
+        return lotes;
+    }
+    
+    /**
+     * Evaluación de una hoja; con red, el acumulador de la profundidad d ya
+     * está al día.
+     */
+    private int evaluar(GameStatus s, int d, PlayerType p) {
+        st.evaluaciones++;
+        cancelacion.sondear();
+        int previa = fase(PerfilAsignaciones.EVALUACION);
+        int v = red == null ? Heuristica.eval(s, p) : red.evaluar(pila[d], p);
+        fin(previa);
+        return v;
+    }
+    
+    /**
+     * Pila de acumuladores, uno por profundidad, reutilizada entre búsquedas.
+     */
+    private void prepararPila(GameStatus s) {
+        if (red.size != s.getSize()) {
+            throw new IllegalStateException("Red entrenada para size=" + red.size + " y el tablero es size=" + s.getSize());
+        }
+        if (pila == null || pila.length < MAX_DEPTH + 2) {
+            pila = new Acumulador[MAX_DEPTH + 2];
+            for (int i = 0; i < pila.length; i++) {
+                pila[i] = red.nuevoAcumulador();
+            }
+        }
+        pila[0].refrescar(s);
+    }
+    
+    /**
+     * El hijo en la profundidad d+1 parte del acumulador del padre y le
+     * aplica las piedras del turno de {@code p}, con sus capturas.
+     */
+    private void sincronizar(List<Point> camino, PlayerType p, int d) {
+        if (red == null) return;
+        int previa = fase(PerfilAsignaciones.EVALUACION);
+        pila[d + 1].copiarDe(pila[d]);
+        pila[d + 1].colocar(camino, p);
+        fin(previa);
+    }
+    
+    /**
+     * Publica el estado actual; la lectura es solo un volatile, así que la
+     * interfaz nunca bloquea la búsqueda.
+     */
+    private void publicar() {
+        snapshot = new SearchSnapshot(Math.min(profundidad, MAX_DEPTH), completada, st.nodos + st.nodosQuiescencia,
+                System.nanoTime() - inicio, valorCompletado, pv);
+    }
+    
+    /**
+     * Camino elegido en la raíz y, a continuación, las mejores jugadas que
+     * guarda la tabla de transposición, completadas como en la búsqueda.
+     */
+    private String variacionPrincipal(GameStatus s, List<Point> camino, int profundidad) {
+        StringBuilder sb = new StringBuilder(formatear(camino));
+        GameStatus ns = new GameStatus(s);
+        for (Point p : camino) ns.placeStone(p);
+        for (int i = 1; i < profundidad && !ns.isGameOver(); i++) {
+            int m = tt.mejor(zobrist.hash(ns));
+            if (m < 0 || m >= zobrist.geo.cells) break;
+            Point p = zobrist.geo.puntos[m];
+            if (!ns.getMoves().contains(p)) break;
+            long q = st.nodosQuiescencia;
+            long e = st.evaluaciones;
+            List<Point> siguiente = completarPath(ns, p, ns.getCurrentPlayer());
+            st.nodosQuiescencia = q;
+            st.evaluaciones = e;
+            sb.append(' ').append(formatear(siguiente));
+        }
+        return sb.toString();
+    }
+    
+    private static String formatear(List<Point> camino) {
+        StringBuilder sb = new StringBuilder();
+        for (Point p : camino) {
+            if (sb.length() > 0) sb.append('+');
+            sb.append(p.x).append(',').append(p.y);
+        }
+        return sb.toString();
+    }
+    
+    @Override
+    public SearchSnapshot getSnapshot() {
+        return snapshot;
+    }
+    
+    /**
+     * Activa o desactiva la publicación del estado de la búsqueda.
+     */
+    public void setTelemetria(boolean telemetria) {
+        this.telemetria = telemetria;
+    }
+    
+    /**
+     * Reparte el tiempo de cada movimiento con el gestor indicado; sin
+     * gestor se busca hasta la profundidad máxima o hasta timeout().
+     *
+     * @return este jugador, para usarlo en una PlayerFactory
+     */
+    public PropPlayer setGestorTiempo(GestorTiempo tiempo) {
+        this.tiempo = tiempo;
+        return this;
+    }
+    
+    /**
+     * Cada move() para al llegar a {@code nodos} nodos, en lugar de (o
+     * además de) por tiempo; 0 quita el límite. Sin gestor de tiempo ni
+     * timeout(), dos búsquedas iguales recorren exactamente los mismos
+     * nodos y devuelven la misma jugada: el resultado no depende del reloj.
+     *
+     * @return este jugador, para usarlo en una PlayerFactory
+     */
+    public PropPlayer setLimiteNodos(long nodos) {
+        this.nodosPorJugada = Math.max(0, nodos);
+        return this;
+    }
+    
+    public long getLimiteNodos() {
+        return nodosPorJugada;
+    }
+    
+    /**
+     * Deshace los empates de la ordenación de jugadas con un orden
+     * pseudoaleatorio fijado por la semilla, en lugar del de getMoves().
+     * La misma semilla da siempre la misma búsqueda; semillas distintas
+     * dan búsquedas distintas pero igual de reproducibles. 0 vuelve al
+     * orden de getMoves().
+     *
+     * @return este jugador, para usarlo en una PlayerFactory
+     */
+    public PropPlayer setSemilla(long semilla) {
+        this.semilla = semilla;
+        return this;
+    }
+    
+    /**
+     * Cuenta en el perfil los bytes que reserva cada búsqueda, por fase;
+     * null para no contar (por defecto).
+     *
+     * @return este jugador, para usarlo en una PlayerFactory
+     */
+    public PropPlayer setPerfil(PerfilAsignaciones perfil) {
+        this.perfil = perfil;
+        return this;
+    }
+    
+    /**
+     * Usa la caché persistente indicada en lugar de la de
+     * {@code -Doust.cache}.
+     *
+     * @return este jugador, para usarlo en una PlayerFactory
+     */
+    public PropPlayer setCache(CachePosiciones cache) {
+        this.cache = cache;
+        this.cacheAbierta = false;
+        return this;
+    }
+    
+    /**
+     * Usa la tabla de transposición indicada (por ejemplo, una porción de
+     * una tabla compartida) en lugar de una propia.
+     *
+     * @return este jugador, para usarlo en una PlayerFactory
+     */
+    public PropPlayer setTabla(TablaTransposicion tt) {
+        this.tt = tt;
+        return this;
+    }
+    
+    /**
+     * Estadísticas de la última búsqueda o análisis.
+     */
+    public EstadisticasBusqueda getEstadisticas() {
+        return st == null ? null : st.copia();
+    }
+    
     @Override
     public void timeout() {
-        timeout = true;
+        cancelacion.cancelar();
+    }
+    
+    @Override
+    public void clearTimeout() {
+        cancelacion.limpiar();
     }
     
     @Override
@@ -0,0 +1,163 @@
+package edu.upc.epsevg.prop.oust.players;
+
+import edu.upc.epsevg.prop.oust.GameStatus;
+import edu.upc.epsevg.prop.oust.PlayerType;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+/**
+ * Red neuronal cuantizada (estilo NNUE) para evaluar posiciones.
+ *
+ * Entradas: una característica por casilla y color relativo (propia/rival)
+ * desde cada perspectiva. La primera capa vive en un {@link Acumulador} que
+ * se actualiza de forma incremental; la salida es una capa lineal sobre la
+ * activación ClippedReLU de los dos acumuladores (jugador y rival).
+ *
+ * Toda la aritmética es entera: pesos int16 y sumas int32.
+ */
+public class RedNeuronal {
+
+    private static final int MAGIC = 0x4F4E4E31; // "ONN1"
+
+    /** Techo de la ClippedReLU. */
+    static final int QA = 255;
+
+    public final int size;
+    public final int cells;
+    public final int hidden;
+
+    /** Pesos de entrada: [(casilla*2 + relativo) * hidden + h]. */
+    final short[] pesosEntrada;
+    final short[] sesgoEntrada;
+    /** Pesos de salida: primero el acumulador propio, luego el del rival. */
+    final short[] pesosSalida;
+    final int sesgoSalida;
+    final int escala;
+
+    RedNeuronal(int size, int hidden, short[] pesosEntrada, short[] sesgoEntrada,
+            short[] pesosSalida, int sesgoSalida, int escala) {
+        this.size = size;
+        this.cells = Geometria.de(size).cells;
+        this.hidden = hidden;
+        if (pesosEntrada.length != 2 * cells * hidden || sesgoEntrada.length != hidden
+                || pesosSalida.length != 2 * hidden || escala <= 0) {
+            throw new IllegalArgumentException("Dimensiones de red incorrectas para size=" + size);
+        }
+        this.pesosEntrada = pesosEntrada;
+        this.sesgoEntrada = sesgoEntrada;
+        this.pesosSalida = pesosSalida;
+        this.sesgoSalida = sesgoSalida;
+        this.escala = escala;
+    }
+
+    /**
+     * Red por defecto cuando no hay fichero de pesos: solo cuenta material
+     * (10 puntos por piedra, como la base de {@link Heuristica}).
+     */
+    public static RedNeuronal material(int size) {
+        int cells = Geometria.de(size).cells;
+        int hidden = 2;
+        short[] w = new short[2 * cells * hidden];
+        for (int k = 0; k < cells; k++) {
+            w[(k * 2) * hidden] = 1;         // propia -> neurona 0
+            w[(k * 2 + 1) * hidden + 1] = 1; // rival  -> neurona 1
+        }
+        short[] out = {10, -10, 0, 0};
+        return new RedNeuronal(size, hidden, w, new short[hidden], out, 0, 1);
+    }
+
+    /**
+     * Carga los pesos de un fichero generado con {@link #guardar(File)}.
+     */
+    public static RedNeuronal cargar(File f) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(f)))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("No es un fichero de pesos NNUE: " + f);
+            }
+            int size = in.readInt();
+            int hidden = in.readInt();
+            int escala = in.readInt();
+            int sesgoSalida = in.readInt();
+            int cells = Geometria.de(size).cells;
+            short[] sesgo = leer(in, hidden);
+            short[] w = leer(in, 2 * cells * hidden);
+            short[] out = leer(in, 2 * hidden);
+            return new RedNeuronal(size, hidden, w, sesgo, out, sesgoSalida, escala);
+        }
+    }
+
+    /**
+     * Guarda los pesos en formato binario (big-endian).
+     */
+    public void guardar(File f) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(f)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(size);
+            out.writeInt(hidden);
+            out.writeInt(escala);
+            out.writeInt(sesgoSalida);
+            escribir(out, sesgoEntrada);
+            escribir(out, pesosEntrada);
+            escribir(out, pesosSalida);
+        }
+    }
+
+    /**
+     * Acumulador vacío asociado a esta red.
+     */
+    public Acumulador nuevoAcumulador() {
+        return new Acumulador(this);
+    }
+
+    /**
+     * Evaluación desde el punto de vista de {@code p} con un acumulador ya
+     * sincronizado con la posición.
+     */
+    public int evaluar(Acumulador acc, PlayerType p) {
+        int us = PlayerType.to_01(p);
+        short[] propio = acc.valores[us];
+        short[] rival = acc.valores[1 - us];
+        int h = hidden;
+        int sum = sesgoSalida;
+        for (int i = 0; i < h; i++) {
+            sum += crelu(propio[i]) * pesosSalida[i];
+        }
+        for (int i = 0; i < h; i++) {
+            sum += crelu(rival[i]) * pesosSalida[h + i];
+        }
+        return sum / escala;
+    }
+
+    /**
+     * Evaluación completa (sin incrementalidad), útil como referencia.
+     */
+    public int evaluar(GameStatus s, PlayerType p) {
+        Acumulador acc = nuevoAcumulador();
+        acc.refrescar(s);
+        return evaluar(acc, p);
+    }
+
+    private static int crelu(short v) {
+        return v < 0 ? 0 : (v > QA ? QA : v);
+    }
+
+    private static short[] leer(DataInputStream in, int n) throws IOException {
+        short[] r = new short[n];
+        for (int i = 0; i < n; i++) {
+            r[i] = in.readShort();
+        }
+        return r;
+    }
+
+    private static void escribir(DataOutputStream out, short[] v) throws IOException {
+        for (short x : v) {
+            out.writeShort(x);
+        }
+    }
+}
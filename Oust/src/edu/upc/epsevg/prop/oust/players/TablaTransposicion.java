@@ -0,0 +1,63 @@
+package edu.upc.epsevg.prop.oust.players;
+
+import java.util.Arrays;
+
+/**
+ * Tabla de transposición de reemplazo siempre que guarda, para cada hash
+ * de Zobrist, la mejor jugada encontrada (índice compacto de la casilla).
+ * Solo se usa para ordenar: el valor de la búsqueda no depende de ella.
+ *
+ * Una tabla grande se puede repartir en porciones que comparten los arrays
+ * ({@link #porcion}). Si varios hilos usan la misma porción, una lectura
+ * puede mezclar dos escrituras: quien la usa comprueba que la jugada sea
+ * legal.
+ */
+public final class TablaTransposicion {
+
+    private final long[] claves;
+    private final short[] jugadas;
+    private final int base;
+    private final int mascara;
+
+    /**
+     * @param bits la tabla tiene 2^bits entradas
+     */
+    public TablaTransposicion(int bits) {
+        this(new long[1 << bits], new short[1 << bits], 0, bits);
+    }
+
+    private TablaTransposicion(long[] claves, short[] jugadas, int base, int bits) {
+        this.claves = claves;
+        this.jugadas = jugadas;
+        this.base = base;
+        this.mascara = (1 << bits) - 1;
+    }
+
+    /**
+     * Porción i-ésima de 2^bits entradas de esta tabla, con los mismos
+     * arrays; i se toma módulo el número de porciones.
+     */
+    public TablaTransposicion porcion(int i, int bits) {
+        int porciones = (mascara + 1) >> bits;
+        if (porciones == 0) throw new IllegalArgumentException("Porción mayor que la tabla: bits=" + bits);
+        return new TablaTransposicion(claves, jugadas, base + (Math.floorMod(i, porciones) << bits), bits);
+    }
+
+    /**
+     * Mejor jugada guardada para el hash, o -1.
+     */
+    public int mejor(long hash) {
+        int i = base + ((int) hash & mascara);
+        return claves[i] == hash ? jugadas[i] : -1;
+    }
+
+    public void guardar(long hash, int jugada) {
+        int i = base + ((int) hash & mascara);
+        claves[i] = hash;
+        jugadas[i] = (short) jugada;
+    }
+
+    public void limpiar() {
+        Arrays.fill(claves, base, base + mascara + 1, 0);
+    }
+}
@@ -0,0 +1,106 @@
+package edu.upc.epsevg.prop.oust.players;
+
+import edu.upc.epsevg.prop.oust.GameStatus;
+import edu.upc.epsevg.prop.oust.PlayerType;
+import java.util.SplittableRandom;
+
+/**
+ * Claves de Zobrist por tamaño de tablero: una clave por casilla y color y
+ * otra para el turno de PLAYER2.
+ *
+ * La semilla es fija, así que los hashes son estables entre ejecuciones y
+ * se pueden guardar en disco.
+ */
+public final class Zobrist {
+
+    private static final Zobrist[] CACHE = new Zobrist[32];
+
+    public final Geometria geo;
+    /** claves[k * 2 + color] */
+    private final long[] claves;
+    private final long turno;
+
+    private Zobrist(int size) {
+        geo = Geometria.de(size);
+        SplittableRandom r = new SplittableRandom(0x4F55535453L * 31 + size);
+        claves = new long[geo.cells * 2];
+        for (int i = 0; i < claves.length; i++) {
+            claves[i] = r.nextLong();
+        }
+        turno = r.nextLong();
+    }
+
+    /**
+     * Claves para un tablero de lado {@code size}.
+     */
+    public static Zobrist de(int size) {
+        Zobrist z = CACHE[size];
+        if (z == null) {
+            // Carrera benigna: la clase es inmutable
+            z = new Zobrist(size);
+            CACHE[size] = z;
+        }
+        return z;
+    }
+
+    /**
+     * Clave de la casilla k con el color 0 (PLAYER1) o 1 (PLAYER2).
+     */
+    public long clave(int k, int color) {
+        return claves[k * 2 + color];
+    }
+
+    /**
+     * Color de cada casilla: 0 vacía, 1 PLAYER1, 2 PLAYER2.
+     */
+    public byte[] colores(GameStatus s) {
+        byte[] res = new byte[geo.cells];
+        for (int k = 0; k < geo.cells; k++) {
+            PlayerType c = s.getColor(geo.puntos[k]);
+            if (c != null) res[k] = (byte) (PlayerType.to_01(c) + 1);
+        }
+        return res;
+    }
+
+    /**
+     * Hash de la posición transformada por la simetría t de
+     * {@link Geometria#simetrias}; con t = 0 coincide con {@link #hash}.
+     */
+    public long hash(byte[] colores, boolean mueve2, int t) {
+        int[] perm = geo.simetrias[t];
+        long h = mueve2 ? turno : 0;
+        for (int k = 0; k < colores.length; k++) {
+            if (colores[k] != 0) h ^= claves[perm[k] * 2 + colores[k] - 1];
+        }
+        return h;
+    }
+
+    /**
+     * Simetría que da el hash canónico de la posición (el menor de los 12),
+     * igual para todas las posiciones equivalentes.
+     */
+    public int simetriaCanonica(byte[] colores, boolean mueve2) {
+        int mejor = 0;
+        long min = hash(colores, mueve2, 0);
+        for (int t = 1; t < 12; t++) {
+            long h = hash(colores, mueve2, t);
+            if (Long.compareUnsigned(h, min) < 0) {
+                min = h;
+                mejor = t;
+            }
+        }
+        return mejor;
+    }
+
+    /**
+     * Hash de la posición, incluido el jugador que mueve.
+     */
+    public long hash(GameStatus s) {
+        long h = s.getCurrentPlayer() == PlayerType.PLAYER2 ? turno : 0;
+        for (int k = 0; k < geo.cells; k++) {
+            PlayerType c = s.getColor(geo.puntos[k]);
+            if (c != null) h ^= claves[k * 2 + PlayerType.to_01(c)];
+        }
+        return h;
+    }
+}
@@ -0,0 +1,46 @@
+package edu.upc.epsevg.prop.oust.bench;
+
+import edu.upc.epsevg.prop.oust.FixturePositions;
+import edu.upc.epsevg.prop.oust.GameStatus;
+import java.awt.Point;
+import java.util.List;
+
+/**
+ * Posicions de mitja partida compartides pels benchmarks. Es recorren en
+ * cercle perquè cada invocació treballi amb una posició diferent.
+ */
+final class Fixtures {
+
+    static final int COUNT = 64;
+    static final long SEED = 42;
+
+    private final GameStatus[] positions;
+    private final Point[] firstMove;
+    private int next;
+
+    Fixtures(int size) {
+        List<GameStatus> ps = FixturePositions.generate(size, COUNT, SEED);
+        positions = ps.toArray(new GameStatus[0]);
+        firstMove = new Point[positions.length];
+        for (int i = 0; i < positions.length; i++) {
+            firstMove[i] = positions[i].getMoves().get(0);
+        }
+    }
+
+    /**
+     * Índex de la següent posició.
+     */
+    int next() {
+        int i = next;
+        next = i + 1 == positions.length ? 0 : i + 1;
+        return i;
+    }
+
+    GameStatus position(int i) {
+        return positions[i];
+    }
+
+    Point firstMove(int i) {
+        return firstMove[i];
+    }
+}
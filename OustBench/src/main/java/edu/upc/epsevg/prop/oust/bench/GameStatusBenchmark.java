@@ -0,0 +1,73 @@
+package edu.upc.epsevg.prop.oust.bench;
+
+import edu.upc.epsevg.prop.oust.GameStatus;
+import edu.upc.epsevg.prop.oust.players.Heuristica;
+import java.awt.Point;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Operacions bàsiques del GameStatus d'OustLib i la Heuristica, sobre
+ * posicions de mitja partida.
+ *
+ * placeStone ha de treballar sobre una còpia; copyAndPlaceStone menys copy
+ * dona el cost de la col·locació.
+ *
+ * Cada invocació agafa la posició següent dins del mètode: un
+ * {@code @Setup(Level.Invocation)} costa més que aquestes operacions de
+ * nanosegons i en falsejaria el temps.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class GameStatusBenchmark {
+
+    @Param({"4", "5", "6", "7", "8", "9", "10"})
+    public int size;
+
+    private Fixtures fixtures;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        fixtures = new Fixtures(size);
+    }
+
+    @Benchmark
+    public GameStatus copy() {
+        return new GameStatus(fixtures.position(fixtures.next()));
+    }
+
+    @Benchmark
+    public GameStatus copyAndPlaceStone() {
+        int i = fixtures.next();
+        GameStatus s = new GameStatus(fixtures.position(i));
+        s.placeStone(fixtures.firstMove(i));
+        return s;
+    }
+
+    @Benchmark
+    public List<Point> getMoves() {
+        return fixtures.position(fixtures.next()).getMoves();
+    }
+
+    @Benchmark
+    public int heuristicaEval() {
+        GameStatus s = fixtures.position(fixtures.next());
+        return Heuristica.eval(s, s.getCurrentPlayer());
+    }
+}
@@ -0,0 +1,89 @@
+package edu.upc.epsevg.prop.oust.bench;
+
+import edu.upc.epsevg.prop.oust.GameStatus;
+import edu.upc.epsevg.prop.oust.PlayerMove;
+import edu.upc.epsevg.prop.oust.players.PropPlayer;
+import edu.upc.epsevg.prop.oust.players.RandomPlayer;
+import edu.upc.epsevg.prop.oust.players.TablaTransposicion;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Un moviment complet dels jugadors. PropPlayer es mesura en moviments/s
+ * perquè el comptador {@code nodes} (mode OPERATIONS) surti com a nodes/s.
+ *
+ * La posició es tria dins del mètode, sense {@code @Setup(Level.Invocation)}.
+ * PropPlayer buida la seva taula de transposició abans de cada moviment,
+ * perquè les posicions es repeteixen i el que s'hi hagués guardat abans
+ * canviaria la cerca; la taula és petita (2^TT_BITS entrades) perquè
+ * buidar-la pesi poc dins del temps mesurat.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class PlayerBenchmark {
+
+    @Param({"4", "5", "6", "7", "8", "9", "10"})
+    public int size;
+
+    @Param({"1", "2"})
+    public int depth;
+
+    static final int TT_BITS = 12;
+
+    private Fixtures fixtures;
+    private TablaTransposicion tt;
+    private PropPlayer prop;
+    private RandomPlayer random;
+
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    @State(Scope.Thread)
+    public static class Nodes {
+
+        public long nodes;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            nodes = 0;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setup() {
+        fixtures = new Fixtures(size);
+        tt = new TablaTransposicion(TT_BITS);
+        prop = new PropPlayer("bench", depth).setTabla(tt);
+        random = new RandomPlayer("bench");
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    public PlayerMove propPlayerMove(Nodes counter) {
+        tt.limpiar();
+        PlayerMove m = prop.move(fixtures.position(fixtures.next()));
+        counter.nodes += m.getNumerOfNodesExplored();
+        return m;
+    }
+
+    @Benchmark
+    public PlayerMove randomPlayerMove() {
+        GameStatus s = fixtures.position(fixtures.next());
+        return random.move(s);
+    }
+}